@@ -0,0 +1,95 @@
+package com.programthis.review_service.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.programthis.review_service.dto.ReviewPage;
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.EvoInflectorLinkRelationProvider;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serialización HAL de un listado de reseñas como la que devuelve GET /api/reviews/product/{id}
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewJsonSerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int reviews;
+
+    private ObjectMapper halMapper;
+    private ObjectMapper plainMapper;
+    private ObjectMapper smileMapper;
+    private ObjectMapper cborMapper;
+    private CollectionModel<EntityModel<ReviewResponseDto>> collection;
+    private ReviewPage leanPage;
+
+    @Setup
+    public void setUp() {
+        halMapper = new ObjectMapper().findAndRegisterModules();
+        halMapper.registerModule(new Jackson2HalModule());
+        halMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new EvoInflectorLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+
+        plainMapper = new ObjectMapper().findAndRegisterModules();
+        smileMapper = new ObjectMapper(new SmileFactory()).findAndRegisterModules();
+        cborMapper = new ObjectMapper(new CBORFactory()).findAndRegisterModules();
+
+        List<ReviewResponseDto> dtos = new ArrayList<>(reviews);
+        for (long i = 1; i <= reviews; i++) {
+            Review review = Review.builder().id(i).productId(101L).userId(i).rating((int) (i % 5) + 1)
+                    .title("Review " + i).comment("Comment number " + i + " about the product.")
+                    .reviewDate(LocalDateTime.now().minusMinutes(i)).build();
+            dtos.add(new ReviewResponseDto(review, new UserDto(i, "user" + i, "User " + i)));
+        }
+        collection = CollectionModel.of(new ReviewController().toReviewResponseModels(dtos));
+        leanPage = new ReviewPage(dtos, "next-cursor");
+    }
+
+    @Benchmark
+    public byte[] serializeCollection() throws Exception {
+        return halMapper.writeValueAsBytes(collection);
+    }
+
+    // La misma página en la representación ligera (application/vnd.reviews.lean+json)
+    @Benchmark
+    public byte[] serializeLeanPage() throws Exception {
+        return plainMapper.writeValueAsBytes(leanPage);
+    }
+
+    // La representación ligera en binario (application/x-jackson-smile y application/cbor)
+    @Benchmark
+    public byte[] serializeLeanPageSmile() throws Exception {
+        return smileMapper.writeValueAsBytes(leanPage);
+    }
+
+    @Benchmark
+    public byte[] serializeLeanPageCbor() throws Exception {
+        return cborMapper.writeValueAsBytes(leanPage);
+    }
+}
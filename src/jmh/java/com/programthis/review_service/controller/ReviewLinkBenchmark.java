@@ -0,0 +1,55 @@
+package com.programthis.review_service.controller;
+
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.EntityModel;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Coste de añadir los enlaces self, product-reviews y user-reviews a las reseñas
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewLinkBenchmark {
+
+    private ReviewController controller;
+    private ReviewResponseDto review;
+    private List<ReviewResponseDto> page;
+
+    @Setup
+    public void setUp() {
+        controller = new ReviewController(); // Los enlaces no usan las dependencias del controlador
+        review = new ReviewResponseDto(Review.builder().id(1L).productId(101L).userId(7L).rating(5)
+                .title("Great product").comment("Works as described.").reviewDate(LocalDateTime.now()).build(),
+                new UserDto(7L, "user7", "User Seven"));
+        page = Collections.nCopies(1000, review);
+    }
+
+    @Benchmark
+    public EntityModel<ReviewResponseDto> toReviewResponseModel() {
+        return controller.toReviewResponseModel(review);
+    }
+
+    // Un listado de 1000 reseñas: la URI base se resuelve una sola vez para todo el listado
+    @Benchmark
+    public List<EntityModel<ReviewResponseDto>> toReviewResponseModels() {
+        return controller.toReviewResponseModels(page);
+    }
+}
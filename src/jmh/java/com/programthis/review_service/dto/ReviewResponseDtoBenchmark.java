@@ -0,0 +1,47 @@
+package com.programthis.review_service.dto;
+
+import com.programthis.review_service.entity.Review;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Coste de construir el DTO de respuesta a partir de la entidad y el usuario
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewResponseDtoBenchmark {
+
+    private Review review;
+    private UserDto user;
+
+    @Setup
+    public void setUp() {
+        review = Review.builder().id(1L).productId(101L).userId(7L).rating(5)
+                .title("Great product").comment("Works as described, fast delivery.")
+                .reviewDate(LocalDateTime.now()).build();
+        user = new UserDto(7L, "user7", "User Seven");
+    }
+
+    @Benchmark
+    public ReviewResponseDto withUser() {
+        return new ReviewResponseDto(review, user);
+    }
+
+    @Benchmark
+    public ReviewResponseDto withoutUser() {
+        return new ReviewResponseDto(review, null);
+    }
+}
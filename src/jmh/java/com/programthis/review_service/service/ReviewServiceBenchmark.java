@@ -0,0 +1,126 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.ReviewServiceApplication;
+import com.programthis.review_service.client.UserServiceClient;
+import com.programthis.review_service.config.UserServiceProperties;
+import com.programthis.review_service.dto.ReviewPage;
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// ReviewService.getReviewsByProductId paginado completo (consulta JPA, enriquecimiento y mapeo) sobre H2,
+// con un UserServiceClient que responde en memoria para medir solo este servicio
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReviewServiceBenchmark {
+
+    private static final long PRODUCT_ID = 101L;
+
+    @Param({"10", "1000"})
+    private int reviews;
+
+    private ConfigurableApplicationContext context;
+    private ReviewService reviewService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ReviewServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .initializers(ctx -> ((GenericApplicationContext) ctx).registerBean("stubUserServiceClient",
+                        UserServiceClient.class, StubUserServiceClient::new, bd -> bd.setPrimary(true)))
+                .run("--spring.jpa.show-sql=false");
+        reviewService = context.getBean(ReviewService.class);
+
+        ReviewRepository repository = context.getBean(ReviewRepository.class);
+        List<Review> rows = new ArrayList<>(reviews);
+        for (long i = 1; i <= reviews; i++) {
+            rows.add(Review.builder().productId(PRODUCT_ID).userId(i).rating((int) (i % 5) + 1)
+                    .title("Review " + i).comment("Comment number " + i)
+                    .reviewDate(LocalDateTime.now().minusMinutes(i)).build());
+        }
+        repository.saveAll(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Recorre todas las páginas del producto siguiendo el cursor, como haría un cliente que lo lee entero
+    @Benchmark
+    public List<ReviewResponseDto> allReviewsOfProduct() {
+        List<ReviewResponseDto> all = new ArrayList<>(reviews);
+        String cursor = null;
+        do {
+            ReviewPage page = reviewService.getReviewsByProductId(PRODUCT_ID, ReviewSortOrder.NEWEST, cursor, 100);
+            all.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    @Benchmark
+    public ReviewPage firstPageOfProduct() {
+        return reviewService.getReviewsByProductId(PRODUCT_ID, ReviewSortOrder.NEWEST, null, 20);
+    }
+
+    // Responde sin red: cada usuario existe y se llama "user<id>"
+    static class StubUserServiceClient extends UserServiceClient {
+
+        StubUserServiceClient() {
+            super(new RestTemplate(), stubProperties());
+        }
+
+        @Override
+        public Optional<UserDto> getUserById(Long userId) {
+            return Optional.of(new UserDto(userId, "user" + userId, "User " + userId));
+        }
+
+        @Override
+        public Map<Long, UserDto> getUsersByIds(Collection<Long> userIds) {
+            Map<Long, UserDto> users = new HashMap<>();
+            userIds.forEach(userId -> users.put(userId, new UserDto(userId, "user" + userId, "User " + userId)));
+            return users;
+        }
+
+        private static UserServiceProperties stubProperties() {
+            UserServiceProperties properties = new UserServiceProperties();
+            properties.setUrl("http://localhost:0");
+            return properties;
+        }
+    }
+}
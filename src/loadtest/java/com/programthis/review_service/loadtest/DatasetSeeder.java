@@ -0,0 +1,99 @@
+package com.programthis.review_service.loadtest;
+
+import com.programthis.review_service.service.ProductRatingSummaryService;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Siembra la tabla review con una distribución parecida a la de producción: los productos reciben reseñas según su
+ * popularidad (Zipf), los autores se repiten (también Zipf) respetando una reseña por usuario y producto, y solo una
+ * parte de las filas lleva la copia del autor, así que el resto se enriquece con el User Service al leerla.
+ * Se inserta con JDBC por lotes; después se ajusta el generador de IDs y se recalculan los resúmenes.
+ */
+final class DatasetSeeder {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_AUTHOR_ATTEMPTS = 20;
+    // Reparto de puntuaciones de 1 a 5 estrellas, sesgado hacia las positivas
+    private static final double[] RATING_CUMULATIVE = {0.05, 0.12, 0.25, 0.55, 1.0};
+    private static final String INSERT = "INSERT INTO review (id, product_id, user_id, rating, title, comment, review_date, "
+            + "author_username, author_full_name, author_snapshot_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRatingSummaryService ratingSummaryService;
+
+    DatasetSeeder(JdbcTemplate jdbcTemplate, ProductRatingSummaryService ratingSummaryService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ratingSummaryService = ratingSummaryService;
+    }
+
+    SeededData seed(LoadTestSettings settings) {
+        SplittableRandom random = new SplittableRandom(settings.seed());
+        ZipfSampler products = new ZipfSampler(settings.products(), settings.productSkew());
+        ZipfSampler authors = new ZipfSampler(settings.authors(), settings.authorSkew());
+        LocalDateTime now = LocalDateTime.now();
+
+        long target = (long) settings.products() * settings.reviewsPerProduct();
+        Set<Long> pairs = new HashSet<>();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        long id = 0;
+        long skipped = 0;
+        for (long i = 0; i < target; i++) {
+            long productId = products.sample(random);
+            long userId = -1;
+            // Un producto muy popular puede haber agotado a los autores más activos: se prueba con otros
+            for (int attempt = 0; attempt < MAX_AUTHOR_ATTEMPTS && userId < 0; attempt++) {
+                long candidate = authors.sample(random);
+                if (pairs.add(productId * (settings.authors() + 1L) + candidate)) {
+                    userId = candidate;
+                }
+            }
+            if (userId < 0) {
+                skipped++;
+                continue;
+            }
+
+            id++;
+            boolean snapshot = random.nextDouble() < settings.snapshotFraction();
+            batch.add(new Object[]{id, productId, userId, rating(random), "Review " + id + " of product " + productId,
+                    "Synthetic review number " + id + " written by user " + userId,
+                    Timestamp.valueOf(now.minusMinutes(random.nextLong(365L * 24 * 60))),
+                    snapshot ? StubUsers.username(userId) : null,
+                    snapshot ? StubUsers.fullName(userId) : null,
+                    snapshot ? Timestamp.valueOf(now) : null});
+            if (batch.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(INSERT, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+
+        // El optimizador pooled entrega next_val - 49 .. next_val: se deja un bloque de margen (como en V3)
+        jdbcTemplate.update("UPDATE id_generator SET next_val = ? WHERE sequence_name = 'review'", id + 51);
+        ratingSummaryService.rebuildAll();
+        return new SeededData(id, skipped, products, authors);
+    }
+
+    private static int rating(SplittableRandom random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < RATING_CUMULATIVE.length; i++) {
+            if (value < RATING_CUMULATIVE[i]) {
+                return i + 1;
+            }
+        }
+        return RATING_CUMULATIVE.length;
+    }
+
+    // Lo sembrado, con los muestreadores que usa la carga para elegir productos y autores con la misma popularidad
+    record SeededData(long reviews, long skippedDuplicates, ZipfSampler products, ZipfSampler authors) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.programthis.review_service.loadtest;
+
+import java.util.Arrays;
+import java.util.Set;
+
+// Operaciones de la mezcla de carga, con los códigos HTTP que cuentan como respuesta correcta
+enum Endpoint {
+
+    PRODUCT_PAGE("product-page", Set.of(200, 304, 404)), // 404: producto de la cola larga sin reseñas
+    PRODUCT_PAGE_LEAN("product-page-lean", Set.of(200, 304, 404)),
+    PRODUCT_OVERVIEWS("product-overviews", Set.of(200)),
+    SUMMARY("summary", Set.of(200, 404)),
+    REVIEW("review", Set.of(200, 304, 404)),
+    USER_PAGE("user-page", Set.of(200, 304, 404)),
+    CREATE("create", Set.of(201));
+
+    private final String key;
+    private final Set<Integer> expectedStatuses;
+
+    Endpoint(String key, Set<Integer> expectedStatuses) {
+        this.key = key;
+        this.expectedStatuses = expectedStatuses;
+    }
+
+    String key() {
+        return key;
+    }
+
+    boolean isExpected(int status) {
+        return expectedStatuses.contains(status);
+    }
+
+    static Endpoint fromKey(String key) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint: " + key));
+    }
+}
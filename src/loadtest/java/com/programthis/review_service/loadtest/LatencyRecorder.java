@@ -0,0 +1,58 @@
+package com.programthis.review_service.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencias de un endpoint durante la medición. Se guardan todas (8 bytes por petición) y los percentiles se calculan
+ * ordenándolas al final, así que son exactos; a las tasas de una prueba local la memoria no es un problema.
+ * La latencia se mide desde el instante en que la petición debía salir, no desde que salió: si el cliente se retrasa
+ * porque el servicio va lento, ese retraso cuenta (sin "coordinated omission").
+ */
+final class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long dropped;
+
+    synchronized void record(long latencyNanos, boolean error) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+    }
+
+    // Petición que no llegó a enviarse porque ya había loadtest.max-in-flight en curso; cuenta como error
+    synchronized void recordDropped() {
+        dropped++;
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors, dropped);
+    }
+
+    record Snapshot(long[] sorted, long errors, long dropped) {
+
+        long requests() {
+            return sorted.length + dropped;
+        }
+
+        // Percentil por el método del rango más cercano, en milisegundos
+        double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.programthis.review_service.loadtest;
+
+import com.programthis.review_service.ReviewServiceApplication;
+import com.programthis.review_service.service.ProductRatingSummaryService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de carga de extremo a extremo sin MySQL ni User Service: arranca el servicio completo (Tomcat, JPA, cachés,
+ * Resilience4j) en un puerto libre sobre H2 con el perfil "test", con el User Service apuntando a {@link UserServiceStub},
+ * siembra los datos con {@link DatasetSeeder} y lanza la mezcla de peticiones con {@link WorkloadDriver}.
+ * Termina con código 1 si algún umbral no se cumple, para poder usarla como control antes de publicar una versión.
+ * Ejecutar con: mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--loadtest.rate=500 --user-service.client=webclient"
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.from(args);
+        int exitCode;
+        try (UserServiceStub userService = new UserServiceStub(settings.userLatency(), settings.userLatencyJitter(),
+                settings.userErrorRate())) {
+            userService.start();
+
+            List<String> springArgs = new ArrayList<>(List.of(args));
+            // Valores propios salvo que se pasen en la línea de comandos (Spring uniría los dos con una coma)
+            addUnlessPresent(springArgs, "server.port", "0");
+            addUnlessPresent(springArgs, "user-service.url", userService.baseUrl());
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ReviewServiceApplication.class)
+                    .profiles("test")
+                    .run(springArgs.toArray(String[]::new))) {
+                DatasetSeeder.SeededData data = new DatasetSeeder(context.getBean(JdbcTemplate.class),
+                        context.getBean(ProductRatingSummaryService.class)).seed(settings);
+                System.out.printf("Sembradas %d reseñas (%d pares producto-autor repetidos descartados)%n",
+                        data.reviews(), data.skippedDuplicates());
+
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                WorkloadDriver.Result result = new WorkloadDriver("http://localhost:" + port, settings, data).run();
+
+                LoadTestReport report = LoadTestReport.of(settings, data, result, userService.stats());
+                report.print(System.out);
+                report.write(Path.of(settings.reportPath()));
+                System.out.println("Informe en " + settings.reportPath());
+                exitCode = report.passed() ? 0 : 1;
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static void addUnlessPresent(List<String> args, String name, String value) {
+        if (args.stream().noneMatch(arg -> arg.startsWith("--" + name + "="))) {
+            args.add("--" + name + "=" + value);
+        }
+    }
+}
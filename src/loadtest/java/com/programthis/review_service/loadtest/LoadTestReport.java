@@ -0,0 +1,109 @@
+package com.programthis.review_service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de la prueba: rendimiento y percentiles por endpoint, llamadas recibidas por el User Service simulado y los
+ * umbrales incumplidos. Se imprime como tabla y se guarda en JSON (loadtest.report) para compararlo entre versiones.
+ */
+record LoadTestReport(
+        double targetRate,
+        long measuredSeconds,
+        long seededReviews,
+        List<EndpointStats> endpoints,
+        EndpointStats total,
+        UserServiceStub.Stats userService,
+        List<String> violations) {
+
+    static LoadTestReport of(LoadTestSettings settings, DatasetSeeder.SeededData data, WorkloadDriver.Result result,
+                             UserServiceStub.Stats userService) {
+        double seconds = result.measured().toMillis() / 1000.0;
+        List<EndpointStats> endpoints = new ArrayList<>();
+        List<long[]> all = new ArrayList<>();
+        long totalErrors = 0;
+        long totalDropped = 0;
+        for (Map.Entry<Endpoint, LatencyRecorder.Snapshot> entry : result.endpoints().entrySet()) {
+            LatencyRecorder.Snapshot snapshot = entry.getValue();
+            endpoints.add(EndpointStats.of(entry.getKey().key(), snapshot, seconds));
+            all.add(snapshot.sorted());
+            totalErrors += snapshot.errors();
+            totalDropped += snapshot.dropped();
+        }
+        long[] merged = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        EndpointStats total = EndpointStats.of("total", new LatencyRecorder.Snapshot(merged, totalErrors, totalDropped), seconds);
+
+        List<String> violations = new ArrayList<>();
+        for (EndpointStats stats : endpoints) {
+            Duration limit = settings.maxP99().get(Endpoint.fromKey(stats.endpoint()));
+            if (limit != null && stats.p99Ms() > limit.toMillis()) {
+                violations.add(String.format("%s: p99 %.1f ms > %d ms", stats.endpoint(), stats.p99Ms(), limit.toMillis()));
+            }
+        }
+        if (total.errorRate() > settings.maxErrorRate()) {
+            violations.add(String.format("error rate %.4f > %.4f", total.errorRate(), settings.maxErrorRate()));
+        }
+        double minThroughput = settings.rate() * settings.minThroughputRatio();
+        if (total.throughput() < minThroughput) {
+            violations.add(String.format("throughput %.1f req/s < %.1f req/s", total.throughput(), minThroughput));
+        }
+        return new LoadTestReport(settings.rate(), result.measured().toSeconds(), data.reviews(), endpoints, total,
+                userService, violations);
+    }
+
+    boolean passed() {
+        return violations.isEmpty();
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nCarga: %.0f req/s durante %d s sobre %d reseñas%n", targetRate, measuredSeconds, seededReviews);
+        out.printf("%-20s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach(stats -> print(out, stats));
+        print(out, total);
+        out.printf("User Service: %d llamadas individuales, %d por lote (%d usuarios), %d errores inyectados%n",
+                userService.singleCalls(), userService.batchCalls(), userService.batchUsers(), userService.injectedErrors());
+        if (passed()) {
+            out.println("Umbrales: OK");
+        } else {
+            violations.forEach(violation -> out.println("Umbral incumplido: " + violation));
+        }
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), this);
+    }
+
+    private static void print(PrintStream out, EndpointStats stats) {
+        out.printf("%-20s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", stats.endpoint(), stats.requests(),
+                stats.errors(), stats.throughput(), stats.p50Ms(), stats.p99Ms(), stats.p999Ms(), stats.maxMs());
+    }
+
+    // Las peticiones descartadas por loadtest.max-in-flight cuentan como errores
+    record EndpointStats(String endpoint, long requests, long errors, double errorRate, double throughput,
+                         double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        static EndpointStats of(String endpoint, LatencyRecorder.Snapshot snapshot, double seconds) {
+            long requests = snapshot.requests();
+            long errors = snapshot.errors() + snapshot.dropped();
+            return new EndpointStats(endpoint, requests, errors,
+                    requests == 0 ? 0 : (double) errors / requests,
+                    seconds > 0 ? snapshot.sorted().length / seconds : 0,
+                    snapshot.percentileMillis(50), snapshot.percentileMillis(99), snapshot.percentileMillis(99.9),
+                    snapshot.maxMillis());
+        }
+    }
+}
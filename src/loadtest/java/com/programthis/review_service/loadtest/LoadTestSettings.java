@@ -0,0 +1,118 @@
+package com.programthis.review_service.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parámetros de la prueba de carga. Se leen de los argumentos {@code --loadtest.<nombre>=<valor>} (los mismos que
+ * recibe Spring, que los ignora) o de las propiedades de sistema del mismo nombre; el resto de argumentos
+ * ({@code --user-service.client=webclient}, {@code --reviews.write-queue.enabled=true}...) configuran el servicio.
+ */
+record LoadTestSettings(
+        // Carga
+        Duration warmup,
+        Duration duration,
+        double rate,
+        int maxInFlight,
+        int clients,
+        Map<Endpoint, Integer> mix,
+        // Datos sembrados
+        int products,
+        int reviewsPerProduct,
+        double productSkew,
+        int authors,
+        double authorSkew,
+        double snapshotFraction,
+        long seed,
+        // User Service simulado
+        Duration userLatency,
+        Duration userLatencyJitter,
+        double userErrorRate,
+        // Umbrales para dar la prueba por buena
+        Map<Endpoint, Duration> maxP99,
+        double maxErrorRate,
+        double minThroughputRatio,
+        String reportPath) {
+
+    private static final String PREFIX = "loadtest.";
+
+    static LoadTestSettings from(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(PREFIX))
+                .forEach(name -> values.put(name.substring(PREFIX.length()), System.getProperty(name)));
+        for (String arg : args) {
+            if (arg.startsWith("--" + PREFIX) && arg.contains("=")) {
+                int separator = arg.indexOf('=');
+                values.put(arg.substring(2 + PREFIX.length(), separator), arg.substring(separator + 1));
+            }
+        }
+
+        Map<Endpoint, Duration> maxP99 = new LinkedHashMap<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            String value = values.get("max-p99." + endpoint.key());
+            if (value != null) {
+                maxP99.put(endpoint, parseDuration(value));
+            }
+        }
+
+        return new LoadTestSettings(
+                parseDuration(values.getOrDefault("warmup", "10s")),
+                parseDuration(values.getOrDefault("duration", "60s")),
+                Double.parseDouble(values.getOrDefault("rate", "200")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "1000")),
+                Integer.parseInt(values.getOrDefault("clients", "500")),
+                parseMix(values.getOrDefault("mix",
+                        "product-page:35,product-page-lean:20,product-overviews:10,summary:10,review:10,user-page:10,create:5")),
+                Integer.parseInt(values.getOrDefault("products", "1000")),
+                Integer.parseInt(values.getOrDefault("reviews-per-product", "50")),
+                Double.parseDouble(values.getOrDefault("product-skew", "1.0")),
+                Integer.parseInt(values.getOrDefault("authors", "10000")),
+                Double.parseDouble(values.getOrDefault("author-skew", "0.8")),
+                Double.parseDouble(values.getOrDefault("snapshot-fraction", "0.8")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                parseDuration(values.getOrDefault("user-latency", "20ms")),
+                parseDuration(values.getOrDefault("user-latency-jitter", "10ms")),
+                Double.parseDouble(values.getOrDefault("user-error-rate", "0.01")),
+                maxP99,
+                Double.parseDouble(values.getOrDefault("max-error-rate", "0.01")),
+                Double.parseDouble(values.getOrDefault("min-throughput-ratio", "0.95")),
+                values.getOrDefault("report", "target/loadtest-report.json"));
+    }
+
+    // Pesos relativos por endpoint: "product-page:35,create:5"
+    private static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                mix.put(Endpoint.fromKey(parts[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The workload mix must contain at least one endpoint.");
+        }
+        return mix;
+    }
+
+    // Acepta el formato de Spring para duraciones simples: 500ms, 30s, 2m
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        return Duration.ofMillis(Long.parseLong(trimmed));
+    }
+}
@@ -0,0 +1,20 @@
+package com.programthis.review_service.loadtest;
+
+// Perfil que el User Service simulado devuelve para cada ID; la siembra usa los mismos datos en la copia del autor
+final class StubUsers {
+
+    private StubUsers() {
+    }
+
+    static String username(long userId) {
+        return "user" + userId;
+    }
+
+    static String fullName(long userId) {
+        return "User " + userId;
+    }
+
+    static String json(long userId) {
+        return "{\"id\":" + userId + ",\"username\":\"" + username(userId) + "\",\"fullName\":\"" + fullName(userId) + "\"}";
+    }
+}
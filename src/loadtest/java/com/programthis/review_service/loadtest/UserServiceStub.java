@@ -0,0 +1,144 @@
+package com.programthis.review_service.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * User Service en el mismo proceso: responde GET /api/users/{id} y GET /api/users/batch?ids=1,2,3 con el perfil de
+ * {@link StubUsers} para cualquier ID positivo. Cada llamada espera la latencia base más un retardo exponencial
+ * (una cola larga como la de un servicio real) y una fracción configurable responde 503.
+ * Cada petición se atiende en un hilo virtual, así que la latencia inyectada no limita la concurrencia.
+ */
+final class UserServiceStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+
+    private final AtomicLong singleCalls = new AtomicLong();
+    private final AtomicLong batchCalls = new AtomicLong();
+    private final AtomicLong batchUsers = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    UserServiceStub(Duration latency, Duration jitter, double errorRate) throws IOException {
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/api/users/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    Stats stats() {
+        return new Stats(singleCalls.get(), batchCalls.get(), batchUsers.get(), injectedErrors.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String last = path.substring(path.lastIndexOf('/') + 1);
+            boolean batch = last.equals("batch");
+            if (batch) {
+                batchCalls.incrementAndGet();
+            } else {
+                singleCalls.incrementAndGet();
+            }
+
+            sleepInjectedLatency();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            if (batch) {
+                long[] ids = parseIds(exchange.getRequestURI().getQuery());
+                batchUsers.addAndGet(ids.length);
+                respond(exchange, Arrays.stream(ids).filter(id -> id > 0).mapToObj(StubUsers::json)
+                        .collect(Collectors.joining(",", "[", "]")));
+                return;
+            }
+            long userId;
+            try {
+                userId = Long.parseLong(last);
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            if (userId <= 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            respond(exchange, StubUsers.json(userId));
+        }
+    }
+
+    private void sleepInjectedLatency() {
+        long jitter = jitterNanos > 0 ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * jitterNanos) : 0;
+        long delay = latencyNanos + jitter;
+        if (delay > 0) {
+            try {
+                Thread.sleep(Duration.ofNanos(delay));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ids=1,2,3 (la coma puede llegar codificada)
+    private static long[] parseIds(String query) {
+        if (query == null) {
+            return new long[0];
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("ids=")) {
+                return Arrays.stream(parameter.substring(4).replace("%2C", ",").split(","))
+                        .filter(value -> !value.isBlank())
+                        .mapToLong(Long::parseLong)
+                        .toArray();
+            }
+        }
+        return new long[0];
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    record Stats(long singleCalls, long batchCalls, long batchUsers, long injectedErrors) {
+    }
+}
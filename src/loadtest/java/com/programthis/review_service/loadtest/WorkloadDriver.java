@@ -0,0 +1,170 @@
+package com.programthis.review_service.loadtest;
+
+import com.programthis.review_service.controller.ReviewController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Genera la carga con un modelo abierto: las peticiones salen a ritmo fijo (loadtest.rate por segundo) tanto si las
+ * anteriores han terminado como si no, igual que llegan los clientes reales. Cada una se envía desde un hilo virtual y
+ * se mide desde su instante previsto de salida. Si hay loadtest.max-in-flight peticiones en curso la nueva se descarta
+ * y cuenta como error: el servicio no sostiene la tasa objetivo.
+ * Las peticiones del calentamiento se envían pero no se registran. Cada petición lleva el X-Client-Id de uno de
+ * loadtest.clients clientes simulados, así que el control de admisión reparte la tasa entre ellos como en producción.
+ */
+final class WorkloadDriver {
+
+    private static final int OVERVIEW_PRODUCTS = 24;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String CLIENT_HEADER = "X-Client-Id";
+
+    private final String baseUrl;
+    private final LoadTestSettings settings;
+    private final DatasetSeeder.SeededData data;
+    private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Endpoint[] weightedMix;
+    // Los autores de las altas son usuarios nuevos, por encima de los sembrados: nunca chocan con uk_review_product_user
+    private final AtomicLong nextNewAuthor;
+
+    WorkloadDriver(String baseUrl, LoadTestSettings settings, DatasetSeeder.SeededData data) {
+        this.baseUrl = baseUrl;
+        this.settings = settings;
+        this.data = data;
+        this.nextNewAuthor = new AtomicLong(settings.authors() + 1L);
+        settings.mix().keySet().forEach(endpoint -> recorders.put(endpoint, new LatencyRecorder()));
+        this.weightedMix = settings.mix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Endpoint[]::new);
+    }
+
+    /**
+     * Ejecuta el calentamiento y la medición, y espera a que terminen las peticiones en curso.
+     * @return Las latencias por endpoint y la duración de la medición.
+     */
+    Result run() {
+        long intervalNanos = (long) (1_000_000_000L / settings.rate());
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        Semaphore inFlight = new Semaphore(settings.maxInFlight());
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Endpoint endpoint = weightedMix[ThreadLocalRandom.current().nextInt(weightedMix.length)];
+                boolean measured = intended >= measureFrom;
+                if (!inFlight.tryAcquire()) {
+                    if (measured) {
+                        recorders.get(endpoint).recordDropped();
+                    }
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        boolean error = !send(client, endpoint);
+                        if (measured) {
+                            recorders.get(endpoint).record(System.nanoTime() - intended, error);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Al cerrar el executor se espera a las peticiones en curso (cada una tiene su timeout)
+        }
+
+        Map<Endpoint, LatencyRecorder.Snapshot> snapshots = new EnumMap<>(Endpoint.class);
+        recorders.forEach((endpoint, recorder) -> snapshots.put(endpoint, recorder.snapshot()));
+        return new Result(snapshots, settings.duration());
+    }
+
+    // Devuelve si la respuesta es la esperada para el endpoint
+    private boolean send(HttpClient client, Endpoint endpoint) {
+        try {
+            HttpResponse<Void> response = client.send(request(endpoint), HttpResponse.BodyHandlers.discarding());
+            return endpoint.isExpected(response.statusCode());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false; // Timeout, conexión rechazada...
+        }
+    }
+
+    private HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (endpoint) {
+            case PRODUCT_PAGE -> get("/api/reviews/product/" + product() + "?size=20", "application/hal+json");
+            case PRODUCT_PAGE_LEAN -> get("/api/reviews/product/" + product() + "?size=20", ReviewController.LEAN_JSON_VALUE);
+            case PRODUCT_OVERVIEWS -> {
+                Set<Integer> ids = new LinkedHashSet<>();
+                while (ids.size() < Math.min(OVERVIEW_PRODUCTS, data.products().size())) {
+                    ids.add(product());
+                }
+                yield get("/api/reviews/products?latest=3&ids="
+                        + ids.stream().map(String::valueOf).collect(Collectors.joining(",")), "application/json");
+            }
+            case SUMMARY -> get("/api/reviews/product/" + product() + "/summary", "application/hal+json");
+            case REVIEW -> get("/api/reviews/" + random.nextLong(1, Math.max(2, data.reviews() + 1)), "application/hal+json");
+            case USER_PAGE -> get("/api/reviews/user/" + data.authors().sample(random) + "?size=20", "application/hal+json");
+            case CREATE -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/reviews"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header(CLIENT_HEADER, client())
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/hal+json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\":" + product()
+                            + ",\"userId\":" + nextNewAuthor.getAndIncrement()
+                            + ",\"rating\":" + random.nextInt(1, 6)
+                            + ",\"title\":\"Load test review\",\"comment\":\"Written by the load test harness\"}"))
+                    .build();
+        };
+    }
+
+    private String client() {
+        return "loadtest-" + ThreadLocalRandom.current().nextInt(Math.max(1, settings.clients()));
+    }
+
+    private int product() {
+        return data.products().sample(ThreadLocalRandom.current());
+    }
+
+    private HttpRequest get(String path, String accept) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header(CLIENT_HEADER, client())
+                .header("Accept", accept)
+                .GET()
+                .build();
+    }
+
+    record Result(Map<Endpoint, LatencyRecorder.Snapshot> endpoints, Duration measured) {
+    }
+}
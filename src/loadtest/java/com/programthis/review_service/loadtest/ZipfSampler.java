@@ -0,0 +1,40 @@
+package com.programthis.review_service.loadtest;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Muestrea rangos de 1 a n con probabilidad proporcional a 1 / rango^exponente: unos pocos productos (o autores)
+ * concentran la mayor parte del tráfico y el resto forma una cola larga. Con exponente 0 la distribución es uniforme.
+ * Se precalcula la función de distribución acumulada y cada muestra es una búsqueda binaria.
+ */
+final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf size must be positive.");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 1; rank <= n; rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    // Devuelve un rango entre 1 y n
+    int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index + 1 : -index;
+        return Math.min(rank, cumulative.length);
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+}
@@ -0,0 +1,65 @@
+package com.programthis.review_service.client;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuenta las llamadas HTTP al User Service que hace cada petición entrante, para detectar el patrón N+1
+ * (una llamada remota por reseña). El contador vive en el hilo de la petición y se propaga a los hilos
+ * virtuales del fan-out a través de {@link #propagating(Executor)}. Las llamadas reactivas terminan en hilos de
+ * Reactor Netty, donde no hay contador: quien las prepara toma el de la petición con {@link #current()} y lo
+ * incrementa él mismo.
+ */
+public final class RemoteCallCounter {
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    private RemoteCallCounter() {
+    }
+
+    /**
+     * Empieza a contar en el hilo actual.
+     * @return El contador de la petición, que sigue acumulando las llamadas de las tareas propagadas.
+     */
+    public static AtomicInteger start() {
+        AtomicInteger calls = new AtomicInteger();
+        CURRENT.set(calls);
+        return calls;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    // Contador de la petición en curso, o null fuera de una petición
+    static AtomicInteger current() {
+        return CURRENT.get();
+    }
+
+    // Suma una llamada a la petición en curso; fuera de una petición (tareas programadas, tests) no hace nada
+    static void increment() {
+        AtomicInteger calls = CURRENT.get();
+        if (calls != null) {
+            calls.incrementAndGet();
+        }
+    }
+
+    // Executor que ejecuta cada tarea con el contador del hilo que la envía
+    public static Executor propagating(Executor delegate) {
+        return task -> {
+            AtomicInteger calls = CURRENT.get();
+            if (calls == null) {
+                delegate.execute(task);
+                return;
+            }
+            delegate.execute(() -> {
+                CURRENT.set(calls);
+                try {
+                    task.run();
+                } finally {
+                    CURRENT.remove();
+                }
+            });
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.programthis.review_service.client;
+
+import com.programthis.review_service.dto.UserDto;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Consulta de usuarios del User Service, con caché, deduplicación de peticiones concurrentes y valor de respaldo.
+ * Hay dos implementaciones según user-service.client: UserServiceClient (RestTemplate, "rest", por defecto)
+ * y WebClientUserServiceClient (WebClient sobre Reactor Netty, "webclient").
+ */
+public interface UserLookup {
+
+    /**
+     * @param userId El ID del usuario a buscar.
+     * @return El usuario, o vacío si no existe o no se pudo obtener y no hay un valor conocido.
+     */
+    Optional<UserDto> getUserById(Long userId);
+
+    /**
+     * @param userIds Los IDs de los usuarios a buscar (se ignoran los null y los repetidos).
+     * @return Un mapa userId -> UserDto que solo contiene los usuarios encontrados (o conocidos) a tiempo.
+     */
+    Map<Long, UserDto> getUsersByIds(Collection<Long> userIds);
+
+    /**
+     * Variante reactiva de {@link #getUserById(Long)}: no bloquea el hilo que se suscribe.
+     */
+    Mono<Optional<UserDto>> lookupUser(Long userId);
+
+    /**
+     * Variante reactiva de {@link #getUsersByIds(Collection)}: no bloquea el hilo que se suscribe.
+     */
+    Mono<Map<Long, UserDto>> lookupUsers(Collection<Long> userIds);
+
+    /**
+     * Olvida lo que se sabe del usuario (la entrada de la caché y su último valor conocido), p. ej. cuando el User
+     * Service avisa de un cambio de perfil: la siguiente consulta vuelve a pedirlo.
+     * @param userId El ID del usuario.
+     */
+    void invalidate(Long userId);
+}
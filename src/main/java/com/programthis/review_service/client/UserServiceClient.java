@@ -1,50 +1,522 @@
 package com.programthis.review_service.client;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.programthis.review_service.config.UserServiceProperties;
 import com.programthis.review_service.dto.UserDto; // Asegúrate de que este DTO exista
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Component // Marca esta clase como un componente de Spring
-public class UserServiceClient {
+public class UserServiceClient implements UserLookup {
+
+    private static final Logger log = LoggerFactory.getLogger(UserServiceClient.class);
+
+    // Latencia de cada llamada HTTP, etiquetada por endpoint (single, batch) y resultado (found, not_found, error, rejected)
+    private static final String REQUESTS_METRIC = "user.service.requests";
 
     private final RestTemplate restTemplate;
     private final String userServiceBaseUrl;
+    private final int batchSize;
+
+    // Caché en memoria de usuarios: Optional.empty() representa un usuario no encontrado (caché negativa).
+    // Se guardan futuros para que las peticiones concurrentes del mismo userId compartan una sola llamada.
+    private final AsyncCache<Long, Optional<UserDto>> userCache;
+
+    // Último valor conocido de cada usuario, con una vida mucho más larga que userCache.
+    // Solo se consulta cuando el User Service falla, tarda demasiado o el circuito está abierto.
+    private final Cache<Long, UserDto> lastKnownUsers;
+
+    // Cuando el User Service responde que no tiene endpoint de lote (400, 404 o 405) no se vuelve a intentar
+    // hasta este instante (System.nanoTime), para no repetir una llamada que sabemos que no existe.
+    // Otros 4xx (401, 403, 408, 429...) son fallos de esa llamada y no desactivan el lote.
+    private final Duration batchProbeInterval;
+    private volatile long batchEndpointRetryAt = System.nanoTime();
+
+    // Los lotes y las consultas individuales se lanzan en paralelo, cada una en su hilo virtual.
+    // Las tareas heredan el contador de llamadas remotas de la petición que las lanza (RemoteCallCounter).
+    private final ExecutorService fanOutExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Executor fanOut = RemoteCallCounter.propagating(fanOutExecutor);
+    // Las variantes reactivas ejecutan la consulta bloqueante en un hilo virtual, no en el que se suscribe
+    private final Scheduler lookupScheduler = Schedulers.fromExecutor(fanOut);
+    private final Duration fanOutDeadline;
+
+    // Corta las llamadas mientras el User Service falla o va lento, para responder al momento con el valor de respaldo
+    private final CircuitBreaker circuitBreaker;
 
-    @Autowired // Inyecta RestTemplate (asegúrate de que esté configurado en review-service) y la URL del user-service
-    public UserServiceClient(RestTemplate restTemplate,
-                               @Value("${user-service.url}") String userServiceUrl) {
+    // Limita cuántas llamadas HTTP hay a la vez para no saturar el User Service
+    private final Bulkhead bulkhead;
+
+    // Si una llamada no ha respondido en este tiempo se lanza una segunda igual y se usa la primera respuesta (0 = desactivado)
+    private final Duration hedgeDelay;
+
+    private final MeterRegistry meterRegistry;
+
+    // Sin registro de métricas de la aplicación (tests y benchmarks): las métricas quedan en un registro local
+    public UserServiceClient(RestTemplate restTemplate, UserServiceProperties properties) {
+        this(restTemplate, properties, new SimpleMeterRegistry());
+    }
+
+    @Autowired // Inyecta RestTemplate (asegúrate de que esté configurado en review-service) y la configuración del user-service
+    public UserServiceClient(RestTemplate restTemplate, UserServiceProperties properties, MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
         // La URL base para el servicio de usuarios (ej. http://localhost:8082)
         // Se añade "/api" porque es el prefijo de los controladores en user-service
-        this.userServiceBaseUrl = userServiceUrl + "/api"; 
+        this.userServiceBaseUrl = properties.getUrl() + "/api";
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.batchProbeInterval = properties.getBatchProbeInterval();
+        this.userCache = buildUserCache(properties.getCache());
+        this.fanOutDeadline = properties.getFanOut().getDeadline();
+
+        UserServiceProperties.Resilience resilience = properties.getResilience();
+        this.lastKnownUsers = Caffeine.newBuilder()
+                .maximumSize(properties.getCache().getMaximumSize())
+                .expireAfterWrite(resilience.getLastKnownTtl())
+                .build();
+        this.circuitBreaker = CircuitBreaker.of("user-service", CircuitBreakerConfig.custom()
+                .slidingWindowSize(resilience.getSlidingWindowSize())
+                .minimumNumberOfCalls(resilience.getMinimumNumberOfCalls())
+                .failureRateThreshold(resilience.getFailureRateThreshold())
+                .slowCallDurationThreshold(resilience.getSlowCallDuration())
+                .slowCallRateThreshold(resilience.getSlowCallRateThreshold())
+                .waitDurationInOpenState(resilience.getOpenStateDuration())
+                .permittedNumberOfCallsInHalfOpenState(resilience.getHalfOpenCalls())
+                // Un 4xx es una respuesta válida (usuario no encontrado, endpoint de lote inexistente), no un fallo del servicio
+                .ignoreExceptions(HttpClientErrorException.class, BulkheadFullException.class)
+                .build());
+        this.bulkhead = Bulkhead.of("user-service", BulkheadConfig.custom()
+                .maxConcurrentCalls(Math.max(1, properties.getFanOut().getMaxConcurrency()))
+                .maxWaitDuration(resilience.getBulkheadMaxWait())
+                .build());
+        this.hedgeDelay = resilience.getHedgeDelay();
     }
 
     /**
      * Obtiene los detalles de un usuario del User Service por su ID.
+     * El resultado (incluido el "no encontrado") se guarda en caché durante {@code user-service.cache.ttl}
+     * o {@code user-service.cache.negative-ttl}, y las peticiones concurrentes del mismo ID comparten una sola llamada.
+     * Si el User Service falla o el circuito está abierto se devuelve el último valor conocido del usuario, si lo hay.
+     * Como en {@link #getUsersByIds(Collection)}, se espera como máximo {@code user-service.fan-out.deadline}, también
+     * cuando otra petición ya está pidiendo el mismo usuario; la consulta sigue en segundo plano y su resultado queda en caché.
      *
      * @param userId El ID del usuario a buscar.
-     * @return Un Optional que contiene el UserDto si se encuentra el usuario, o Optional.empty() si no se encuentra (404 Not Found).
-     * @throws RuntimeException Si ocurre un error inesperado de comunicación.
+     * @return Un Optional que contiene el UserDto si se encuentra el usuario, o Optional.empty() si no se encuentra
+     *         (404 Not Found) o no se pudo obtener a tiempo y no hay un valor conocido.
      */
+    @Override
     public Optional<UserDto> getUserById(Long userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        long deadline = System.nanoTime() + fanOutDeadline.toNanos();
+        CompletableFuture<Optional<UserDto>> cached = userCache.getIfPresent(userId);
+        if (cached != null) {
+            return awaitUntil(userId, cached, deadline);
+        }
+
+        CompletableFuture<Optional<UserDto>> loading = new CompletableFuture<>();
+        CompletableFuture<Optional<UserDto>> inFlight = userCache.asMap().putIfAbsent(userId, loading);
+        if (inFlight != null) {
+            // Otro hilo ya está pidiendo este usuario: esperamos su resultado en lugar de repetir la llamada
+            return awaitUntil(userId, inFlight, deadline);
+        }
+        // La llamada va en un hilo virtual para poder dejar de esperarla al vencer el plazo sin cancelarla
+        fanOut.execute(() -> {
+            try {
+                complete(userId, loading, fetchUserById(userId));
+            } catch (RuntimeException ex) {
+                fail(userId, loading, ex); // El siguiente intento vuelve a la red
+            }
+        });
+        return awaitUntil(userId, loading, deadline);
+    }
+
+    // Llamada remota sin caché a /api/users/{id}
+    private Optional<UserDto> fetchUserById(Long userId) {
         String url = userServiceBaseUrl + "/users/{id}"; // Endpoint completo para obtener usuario por ID
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
             // Realiza la llamada GET. RestTemplate deserializa automáticamente la respuesta JSON a UserDto.
-            UserDto userDto = restTemplate.getForObject(url, UserDto.class, userId);
+            UserDto userDto = protectedCall(() -> restTemplate.getForObject(url, UserDto.class, userId));
+            record(sample, "single", userDto != null ? "found" : "not_found");
             return Optional.ofNullable(userDto); // Envuelve el DTO en un Optional.of() si no es null.
         } catch (HttpClientErrorException.NotFound ex) {
             // Captura específicamente las excepciones 404 Not Found (usuario no encontrado).
-            System.err.println("Usuario con ID " + userId + " no encontrado en el User Service.");
+            record(sample, "single", "not_found");
+            log.debug("Usuario {} no encontrado en el User Service", userId);
             return Optional.empty(); // Retorna un Optional vacío si el usuario no se encuentra.
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            // Circuito abierto o demasiadas llamadas en curso: no se llega a llamar al User Service
+            record(sample, "single", "rejected");
+            throw ex;
         } catch (Exception ex) {
             // Captura cualquier otra excepción (ej. problemas de conexión, 5xx del servidor).
-            System.err.println("Error al comunicarse con User Service para obtener el usuario " + userId + ": " + ex.getMessage());
-            throw new RuntimeException("Error en comunicación con User Service", ex); // Relanza para que el servicio llamador pueda manejarlo
+            record(sample, "single", "error");
+            log.warn("Error al comunicarse con User Service para obtener el usuario {}: {}", userId, ex.getMessage());
+            throw new RuntimeException("Error en comunicación con User Service", ex); // Relanza para que el llamador use el valor de respaldo
+        }
+    }
+
+    /**
+     * Obtiene varios usuarios del User Service con el menor número posible de llamadas.
+     * Los IDs se deduplican, se resuelven primero desde la caché y el resto se piden en lotes de
+     * {@code user-service.batch-size} al endpoint {@code GET /api/users/batch?ids=...}. Si el User Service
+     * no expone ese endpoint, cada lote se resuelve con llamadas individuales a {@code /api/users/{id}}.
+     * Los lotes y las llamadas individuales se hacen en paralelo (como mucho {@code user-service.fan-out.max-concurrency}
+     * a la vez) y se espera como máximo {@code user-service.fan-out.deadline}. Los usuarios que no lleguen a tiempo
+     * o cuya consulta falle se sustituyen por su último valor conocido, si lo hay; la consulta sigue en segundo plano
+     * y su resultado queda en caché.
+     *
+     * @param userIds Los IDs de los usuarios a buscar (se ignoran los null y los repetidos).
+     * @return Un mapa userId -> UserDto que solo contiene los usuarios encontrados (o conocidos) a tiempo.
+     */
+    @Override
+    public Map<Long, UserDto> getUsersByIds(Collection<Long> userIds) {
+        Set<Long> distinctIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // Separamos los usuarios que ya están en caché (o en vuelo en otro hilo) de los que debemos pedir nosotros
+        Map<Long, CompletableFuture<Optional<UserDto>>> pending = new HashMap<>();
+        Map<Long, CompletableFuture<Optional<UserDto>>> owned = new LinkedHashMap<>();
+        for (Long userId : distinctIds) {
+            CompletableFuture<Optional<UserDto>> cached = userCache.getIfPresent(userId);
+            if (cached == null) {
+                CompletableFuture<Optional<UserDto>> loading = new CompletableFuture<>();
+                cached = userCache.asMap().putIfAbsent(userId, loading);
+                if (cached == null) {
+                    owned.put(userId, loading);
+                    continue;
+                }
+            }
+            pending.put(userId, cached);
+        }
+
+        long deadline = System.nanoTime() + fanOutDeadline.toNanos();
+        for (List<Long> chunk : partition(owned.keySet(), batchSize)) {
+            fanOut.execute(() -> loadChunk(chunk, owned));
+        }
+
+        Map<Long, UserDto> users = new HashMap<>();
+        owned.forEach((userId, future) -> awaitUntil(userId, future, deadline).ifPresent(userDto -> users.put(userId, userDto)));
+        pending.forEach((userId, future) -> awaitUntil(userId, future, deadline).ifPresent(userDto -> users.put(userId, userDto)));
+        return users;
+    }
+
+    @Override
+    public Mono<Optional<UserDto>> lookupUser(Long userId) {
+        return Mono.fromCallable(() -> getUserById(userId)).subscribeOn(lookupScheduler);
+    }
+
+    @Override
+    public Mono<Map<Long, UserDto>> lookupUsers(Collection<Long> userIds) {
+        return Mono.fromCallable(() -> getUsersByIds(userIds)).subscribeOn(lookupScheduler);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            userCache.synchronous().invalidate(userId);
+            lastKnownUsers.invalidate(userId);
+        }
+    }
+
+    /**
+     * Estadísticas de la caché de usuarios (aciertos, fallos, desalojos) para dimensionarla.
+     *
+     * @return Una instantánea de las estadísticas acumuladas desde el arranque.
+     */
+    public CacheStats getCacheStats() {
+        return userCache.synchronous().stats();
+    }
+
+    /**
+     * @return El número aproximado de usuarios (encontrados o no) guardados en la caché.
+     */
+    public long getCachedUserCount() {
+        return userCache.synchronous().estimatedSize();
+    }
+
+    /**
+     * @return El circuit breaker que protege las llamadas al User Service, para consultar su estado y métricas.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return El bulkhead que limita las llamadas simultáneas al User Service.
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    // Resuelve un lote de IDs completando sus futuros en caché, primero con el endpoint de lote y si no existe,
+    // con una llamada individual en paralelo por usuario. Se ejecuta en un hilo virtual de fanOutExecutor.
+    private void loadChunk(List<Long> chunk, Map<Long, CompletableFuture<Optional<UserDto>>> loading) {
+        if (isBatchEndpointAvailable()) {
+            try {
+                Optional<Map<Long, UserDto>> fetched = fetchBatch(chunk);
+                if (fetched.isPresent()) {
+                    // Los IDs que el User Service no devolvió quedan en caché como "no encontrado"
+                    Map<Long, UserDto> users = fetched.get();
+                    chunk.forEach(userId -> complete(userId, loading.get(userId), Optional.ofNullable(users.get(userId))));
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                chunk.forEach(userId -> fail(userId, loading.get(userId), ex));
+                return;
+            }
+        }
+
+        for (Long userId : chunk) {
+            CompletableFuture<Optional<UserDto>> future = loading.get(userId);
+            fanOut.execute(() -> {
+                try {
+                    complete(userId, future, fetchUserById(userId));
+                } catch (RuntimeException ex) {
+                    fail(userId, future, ex);
+                }
+            });
         }
     }
-}
\ No newline at end of file
+
+    // Llamada remota sin caché al endpoint de lote. Devuelve vacío si el User Service no lo expone.
+    private Optional<Map<Long, UserDto>> fetchBatch(List<Long> chunk) {
+        String url = userServiceBaseUrl + "/users/batch?ids={ids}";
+        String ids = chunk.stream().map(String::valueOf).collect(Collectors.joining(","));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            UserDto[] found = protectedCall(() -> restTemplate.getForObject(url, UserDto[].class, ids));
+            record(sample, "batch", "found");
+            Map<Long, UserDto> users = new HashMap<>();
+            if (found != null) {
+                for (UserDto userDto : found) {
+                    if (userDto != null && userDto.getId() != null) {
+                        users.put(userDto.getId(), userDto);
+                    }
+                }
+            }
+            return Optional.of(users);
+        } catch (HttpClientErrorException ex) {
+            if (!isMissingBatchEndpoint(ex.getStatusCode().value())) {
+                // 401, 403, 408, 429...: el endpoint existe pero esta llamada falló; los usuarios del lote usan su valor de respaldo
+                record(sample, "batch", "error");
+                log.warn("El User Service rechazó la consulta de {} usuarios: {}", chunk.size(), ex.getStatusCode());
+                throw ex;
+            }
+            // El User Service no tiene endpoint de lote (p. ej. "/users/batch" termina en "/users/{id}" y responde 400 o 404)
+            record(sample, "batch", "not_found");
+            log.info("El User Service no soporta consultas por lote ({}), se usarán llamadas individuales durante {}",
+                    ex.getStatusCode(), batchProbeInterval);
+            batchEndpointRetryAt = System.nanoTime() + batchProbeInterval.toNanos();
+            return Optional.empty();
+        } catch (CallNotPermittedException | BulkheadFullException ex) {
+            record(sample, "batch", "rejected");
+            throw ex;
+        } catch (Exception ex) {
+            record(sample, "batch", "error");
+            log.warn("Error al comunicarse con User Service para obtener {} usuarios: {}", chunk.size(), ex.getMessage());
+            throw new RuntimeException("Error en comunicación con User Service", ex);
+        }
+    }
+
+    private boolean isBatchEndpointAvailable() {
+        return System.nanoTime() - batchEndpointRetryAt >= 0;
+    }
+
+    // Respuestas que indican que la ruta /users/batch no existe, no que la llamada haya fallado
+    static boolean isMissingBatchEndpoint(int status) {
+        return status == 400 || status == 404 || status == 405;
+    }
+
+    // Ejecuta una llamada HTTP a través del circuit breaker y el bulkhead, con una réplica de respaldo si va lenta
+    private <T> T protectedCall(Supplier<T> call) {
+        Supplier<T> counted = () -> {
+            RemoteCallCounter.increment(); // Solo cuentan las llamadas que pasan el circuito y el bulkhead, incluidas las réplicas
+            return call.get();
+        };
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(circuitBreaker, Bulkhead.decorateSupplier(bulkhead, counted));
+        if (hedgeDelay.isZero() || hedgeDelay.isNegative()) {
+            return guarded.get();
+        }
+
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(guarded, fanOut);
+        try {
+            return primary.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            // La primera llamada va lenta: lanzamos otra igual (otra réplica tras el balanceador) y gana la primera que responda bien
+            CompletableFuture<T> hedge = CompletableFuture.supplyAsync(guarded, fanOut);
+            return join(firstSuccessful(primary, hedge));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Llamada al User Service interrumpida", ex);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    private void record(Timer.Sample sample, String endpoint, String outcome) {
+        sample.stop(Timer.builder(REQUESTS_METRIC)
+                .description("Llamadas HTTP al User Service")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    // Quita de la caché el futuro fallido antes de completarlo: Caffeine también lo descarta, pero después de despertar
+    // a quien lo espera, que al reintentar en seguida aún lo encontraría y usaría el valor de respaldo sin ir a la red
+    private void fail(Long userId, CompletableFuture<Optional<UserDto>> future, Throwable ex) {
+        userCache.asMap().remove(userId, future);
+        future.completeExceptionally(ex);
+    }
+
+    // Completa el futuro de la caché y actualiza el último valor conocido del usuario
+    private void complete(Long userId, CompletableFuture<Optional<UserDto>> future, Optional<UserDto> user) {
+        user.ifPresentOrElse(userDto -> lastKnownUsers.put(userId, userDto), () -> lastKnownUsers.invalidate(userId));
+        future.complete(user);
+    }
+
+    // Valor de respaldo cuando el User Service no responde a tiempo o falla
+    private Optional<UserDto> fallback(Long userId) {
+        return Optional.ofNullable(lastKnownUsers.getIfPresent(userId));
+    }
+
+    // Espera un usuario hasta el plazo indicado; si no llega a tiempo o su consulta falla se usa el valor de respaldo
+    private Optional<UserDto> awaitUntil(Long userId, CompletableFuture<Optional<UserDto>> future, long deadlineNanos) {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException ex) {
+            return fallback(userId);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return fallback(userId);
+        }
+    }
+
+    private static List<List<Long>> partition(Collection<Long> ids, int size) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>(Math.min(size, ids.size()));
+        for (Long id : ids) {
+            current.add(id);
+            if (current.size() == size) {
+                chunks.add(current);
+                current = new ArrayList<>(size);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    // Futuro que se completa con la primera respuesta correcta, o con el último error si fallan todas
+    @SafeVarargs
+    private static <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T>... attempts) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(attempts.length);
+        for (CompletableFuture<T> attempt : attempts) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.completeExceptionally(error);
+                }
+            });
+        }
+        return result;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new RuntimeException("Error en comunicación con User Service", cause);
+    }
+
+    private static AsyncCache<Long, Optional<UserDto>> buildUserCache(UserServiceProperties.Cache settings) {
+        long ttlNanos = settings.getTtl().toNanos();
+        long negativeTtlNanos = settings.getNegativeTtl().toNanos();
+        return Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<Long, Optional<UserDto>>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, Optional<UserDto> user, long currentTime) {
+                        return user.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, Optional<UserDto> user, long currentTime, long currentDuration) {
+                        return user.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, Optional<UserDto> user, long currentTime, long currentDuration) {
+                        return currentDuration; // Leer no alarga la vida de la entrada
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+}
@@ -0,0 +1,443 @@
+package com.programthis.review_service.client;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.programthis.review_service.config.UserServiceProperties;
+import com.programthis.review_service.dto.UserDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Cliente no bloqueante del User Service sobre WebClient y Reactor Netty (user-service.client=webclient).
+ * Sigue las mismas reglas que {@link UserServiceClient}: caché con "no encontrado", endpoint de lote con vuelta a
+ * llamadas individuales, circuit breaker, bulkhead y último valor conocido como respaldo. Una consulta en curso es
+ * un futuro en la caché que comparten todas las peticiones del mismo usuario, y esperarla no ocupa ningún hilo.
+ * Los métodos bloqueantes de {@link UserLookup} esperan a la variante reactiva: no deben llamarse desde un hilo de Netty.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(prefix = "user-service", name = "client", havingValue = "webclient")
+public class WebClientUserServiceClient implements UserLookup {
+
+    private static final Logger log = LoggerFactory.getLogger(WebClientUserServiceClient.class);
+
+    // Mismas métricas que UserServiceClient, para comparar las dos implementaciones en los mismos paneles
+    private static final String REQUESTS_METRIC = "user.service.requests";
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider; // null si el WebClient lo construye el llamador (tests)
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final Duration deadline;
+    private final AsyncCache<Long, Optional<UserDto>> userCache;
+    private final Cache<Long, UserDto> lastKnownUsers;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+
+    // Como en UserServiceClient: tras un 400, 404 o 405 del endpoint de lote no se vuelve a probar hasta este instante
+    private final Duration batchProbeInterval;
+    private volatile long batchEndpointRetryAt = System.nanoTime();
+
+    @Autowired
+    public WebClientUserServiceClient(WebClient.Builder webClientBuilder, UserServiceProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this(webClientBuilder, connectionPool(properties.getHttp()), properties, meterRegistry);
+    }
+
+    // El WebClient ya lleva la URL base del User Service con el prefijo /api
+    WebClientUserServiceClient(WebClient webClient, UserServiceProperties properties, MeterRegistry meterRegistry) {
+        this(webClient, null, properties, meterRegistry);
+    }
+
+    private WebClientUserServiceClient(WebClient.Builder webClientBuilder, ConnectionProvider connectionProvider,
+                                       UserServiceProperties properties, MeterRegistry meterRegistry) {
+        this(webClientBuilder.clone()
+                        .baseUrl(properties.getUrl() + "/api")
+                        .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getHttp().getConnectTimeout().toMillis())
+                                .responseTimeout(properties.getHttp().getResponseTimeout())))
+                        .build(),
+                connectionProvider, properties, meterRegistry);
+    }
+
+    private WebClientUserServiceClient(WebClient webClient, ConnectionProvider connectionProvider,
+                                       UserServiceProperties properties, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.connectionProvider = connectionProvider;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.maxConcurrency = Math.max(1, properties.getFanOut().getMaxConcurrency());
+        this.batchProbeInterval = properties.getBatchProbeInterval();
+        this.deadline = properties.getFanOut().getDeadline();
+        this.userCache = buildUserCache(properties.getCache());
+
+        UserServiceProperties.Resilience resilience = properties.getResilience();
+        this.lastKnownUsers = Caffeine.newBuilder()
+                .maximumSize(properties.getCache().getMaximumSize())
+                .expireAfterWrite(resilience.getLastKnownTtl())
+                .build();
+        this.circuitBreaker = CircuitBreaker.of("user-service-webclient", CircuitBreakerConfig.custom()
+                .slidingWindowSize(resilience.getSlidingWindowSize())
+                .minimumNumberOfCalls(resilience.getMinimumNumberOfCalls())
+                .failureRateThreshold(resilience.getFailureRateThreshold())
+                .slowCallDurationThreshold(resilience.getSlowCallDuration())
+                .slowCallRateThreshold(resilience.getSlowCallRateThreshold())
+                .waitDurationInOpenState(resilience.getOpenStateDuration())
+                .permittedNumberOfCallsInHalfOpenState(resilience.getHalfOpenCalls())
+                // Un 4xx es una respuesta válida del User Service, no un fallo
+                .ignoreException(ex -> ex instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError()
+                        || ex instanceof BulkheadFullException)
+                .build());
+        // Sin espera: el operador reactivo rechaza al momento cuando no hay hueco, y se usa el valor de respaldo.
+        // Cada consulta de varios usuarios limita ella misma sus llamadas a max-concurrency (flatMap con concurrencia),
+        // así que el bulkhead solo rechaza cuando varias peticiones coinciden y superan el límite entre todas.
+        this.bulkhead = Bulkhead.of("user-service-webclient", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrency)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+    }
+
+    @Override
+    public Optional<UserDto> getUserById(Long userId) {
+        return lookupUser(userId).block();
+    }
+
+    @Override
+    public Map<Long, UserDto> getUsersByIds(Collection<Long> userIds) {
+        return lookupUsers(userIds).block();
+    }
+
+    @Override
+    public Mono<Optional<UserDto>> lookupUser(Long userId) {
+        if (userId == null) {
+            return Mono.just(Optional.empty());
+        }
+        // Solo se llama si no hay una consulta en caché o en curso para este usuario.
+        // suppressCancel: si este suscriptor se va, la consulta sigue para los demás y su resultado queda en caché.
+        AtomicInteger calls = RemoteCallCounter.current();
+        return Mono.defer(() -> {
+                    CompletableFuture<Optional<UserDto>> future = userCache.getIfPresent(userId);
+                    if (future == null) {
+                        CompletableFuture<Optional<UserDto>> loading = new CompletableFuture<>();
+                        future = userCache.asMap().putIfAbsent(userId, loading);
+                        if (future == null) {
+                            loadUser(userId, loading, calls).subscribe(); // Sin ligarla a este suscriptor, como en lookupUsers
+                            future = loading;
+                        }
+                    }
+                    return Mono.fromFuture(future, true);
+                })
+                .timeout(deadline)
+                .onErrorResume(ex -> Mono.just(fallback(userId)));
+    }
+
+    @Override
+    public Mono<Map<Long, UserDto>> lookupUsers(Collection<Long> userIds) {
+        AtomicInteger calls = RemoteCallCounter.current();
+        return Mono.defer(() -> {
+            Set<Long> distinctIds = userIds.stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+
+            // Igual que UserServiceClient: pedimos solo los usuarios que no están en caché ni en vuelo
+            Map<Long, CompletableFuture<Optional<UserDto>>> futures = new HashMap<>();
+            Map<Long, CompletableFuture<Optional<UserDto>>> owned = new LinkedHashMap<>();
+            for (Long userId : distinctIds) {
+                CompletableFuture<Optional<UserDto>> future = userCache.getIfPresent(userId);
+                if (future == null) {
+                    CompletableFuture<Optional<UserDto>> loading = new CompletableFuture<>();
+                    future = userCache.asMap().putIfAbsent(userId, loading);
+                    if (future == null) {
+                        owned.put(userId, loading);
+                        future = loading;
+                    }
+                }
+                futures.put(userId, future);
+            }
+            // Las cargas se lanzan sin ligarlas a este suscriptor: terminan aunque él deje de esperar
+            load(owned, calls).subscribe();
+
+            return Flux.fromIterable(futures.entrySet())
+                    .flatMap(entry -> Mono.fromFuture(entry.getValue(), true)
+                            .timeout(deadline)
+                            .onErrorResume(ex -> Mono.just(fallback(entry.getKey())))
+                            .flatMap(user -> Mono.justOrEmpty(user.map(userDto -> Map.entry(entry.getKey(), userDto)))))
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+        });
+    }
+
+    @Override
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            userCache.synchronous().invalidate(userId);
+            lastKnownUsers.invalidate(userId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+    }
+
+    // Resuelve los usuarios completando sus futuros: primero los lotes y después, una por usuario, las consultas de los
+    // lotes que no se pudieron pedir al endpoint de lote. Cada fase tiene como mucho max-concurrency llamadas en curso
+    // y la segunda empieza al terminar la primera, así que nunca se supera el límite del bulkhead.
+    // calls es el contador de la petición que las lanza (RemoteCallCounter), tomado en su hilo.
+    private Mono<Void> load(Map<Long, CompletableFuture<Optional<UserDto>>> loading, AtomicInteger calls) {
+        if (loading.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(partition(loading.keySet(), batchSize))
+                .flatMap(chunk -> loadChunk(chunk, loading, calls), maxConcurrency)
+                .collectList()
+                .flatMapMany(Flux::fromIterable)
+                .flatMap(userId -> loadUser(userId, loading.get(userId), calls), maxConcurrency)
+                .then();
+    }
+
+    // Resuelve un lote con el endpoint de lote; emite los IDs que hay que pedir uno a uno porque el endpoint no existe
+    private Flux<Long> loadChunk(List<Long> chunk, Map<Long, CompletableFuture<Optional<UserDto>>> loading,
+                                 AtomicInteger calls) {
+        if (!isBatchEndpointAvailable()) {
+            return Flux.fromIterable(chunk);
+        }
+        return fetchBatch(chunk, calls)
+                .flatMapMany(fetched -> {
+                    if (fetched.isEmpty()) {
+                        return Flux.fromIterable(chunk);
+                    }
+                    Map<Long, UserDto> users = fetched.get();
+                    chunk.forEach(userId -> complete(userId, loading.get(userId), Optional.ofNullable(users.get(userId))));
+                    return Flux.<Long>empty();
+                })
+                .onErrorResume(ex -> {
+                    chunk.forEach(userId -> fail(userId, loading.get(userId), ex));
+                    return Flux.empty();
+                });
+    }
+
+    private Mono<Void> loadUser(Long userId, CompletableFuture<Optional<UserDto>> future, AtomicInteger calls) {
+        return fetchUser(userId, calls)
+                .doOnNext(user -> complete(userId, future, user))
+                .onErrorResume(ex -> {
+                    fail(userId, future, ex);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    // Llamada remota sin caché a /api/users/{id}
+    private Mono<Optional<UserDto>> fetchUser(Long userId, AtomicInteger calls) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Mono<Optional<UserDto>> call = webClient.get().uri("/users/{id}", userId)
+                    .exchangeToMono(response -> {
+                        if (response.statusCode().value() == HttpStatus.NOT_FOUND.value()) {
+                            return response.releaseBody().thenReturn(Optional.<UserDto>empty());
+                        }
+                        return body(response, UserDto.class).map(Optional::ofNullable).defaultIfEmpty(Optional.empty());
+                    });
+            return protect(call, calls)
+                    .doOnNext(user -> {
+                        record(sample, "single", user.isPresent() ? "found" : "not_found");
+                        remember(userId, user);
+                    })
+                    .doOnError(ex -> {
+                        record(sample, "single", outcome(ex));
+                        log.warn("Error al comunicarse con User Service para obtener el usuario {}: {}", userId, ex.getMessage());
+                    });
+        });
+    }
+
+    // Llamada remota sin caché al endpoint de lote. Devuelve vacío si el User Service no lo expone.
+    private Mono<Optional<Map<Long, UserDto>>> fetchBatch(List<Long> chunk, AtomicInteger calls) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String ids = chunk.stream().map(String::valueOf).collect(Collectors.joining(","));
+            Mono<Optional<Map<Long, UserDto>>> call = webClient.get().uri("/users/batch?ids={ids}", ids)
+                    .exchangeToMono(response -> {
+                        // 400, 404 o 405: no hay endpoint de lote. Otros 4xx (401, 403, 429...) son fallos de esta llamada.
+                        if (UserServiceClient.isMissingBatchEndpoint(response.statusCode().value())) {
+                            return response.releaseBody().thenReturn(Optional.<Map<Long, UserDto>>empty());
+                        }
+                        return body(response, UserDto[].class).map(found -> Optional.of(toMap(found)));
+                    });
+            return protect(call, calls)
+                    .doOnNext(found -> {
+                        record(sample, "batch", found.isPresent() ? "found" : "not_found");
+                        if (found.isEmpty()) {
+                            log.info("El User Service no soporta consultas por lote, se usarán llamadas individuales durante {}",
+                                    batchProbeInterval);
+                            batchEndpointRetryAt = System.nanoTime() + batchProbeInterval.toNanos();
+                        }
+                    })
+                    .doOnError(ex -> {
+                        record(sample, "batch", outcome(ex));
+                        log.warn("Error al comunicarse con User Service para obtener {} usuarios: {}", chunk.size(), ex.getMessage());
+                    });
+        });
+    }
+
+    private boolean isBatchEndpointAvailable() {
+        return System.nanoTime() - batchEndpointRetryAt >= 0;
+    }
+
+    // Cuerpo de una respuesta 2xx; cualquier otro estado termina en WebClientResponseException
+    private static <T> Mono<T> body(ClientResponse response, Class<T> type) {
+        if (response.statusCode().is2xxSuccessful()) {
+            return response.bodyToMono(type);
+        }
+        return response.createError();
+    }
+
+    // La llamada pasa por el bulkhead y el circuit breaker, y cuenta para la petición que la lanzó. Se suscribe en
+    // hilos de Reactor Netty, así que se incrementa el contador recibido y no el del hilo actual.
+    private <T> Mono<T> protect(Mono<T> call, AtomicInteger calls) {
+        return Mono.defer(() -> {
+                    if (calls != null) {
+                        calls.incrementAndGet();
+                    }
+                    return call;
+                })
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private void record(Timer.Sample sample, String endpoint, String outcome) {
+        sample.stop(Timer.builder(REQUESTS_METRIC)
+                .description("Llamadas HTTP al User Service")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static String outcome(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException ? "rejected" : "error";
+    }
+
+    // Igual que en UserServiceClient: el futuro fallido sale de la caché antes de despertar a quien lo espera
+    private void fail(Long userId, CompletableFuture<Optional<UserDto>> future, Throwable ex) {
+        userCache.asMap().remove(userId, future);
+        future.completeExceptionally(ex);
+    }
+
+    private void complete(Long userId, CompletableFuture<Optional<UserDto>> future, Optional<UserDto> user) {
+        remember(userId, user);
+        future.complete(user);
+    }
+
+    private void remember(Long userId, Optional<UserDto> user) {
+        user.ifPresentOrElse(userDto -> lastKnownUsers.put(userId, userDto), () -> lastKnownUsers.invalidate(userId));
+    }
+
+    private Optional<UserDto> fallback(Long userId) {
+        return Optional.ofNullable(lastKnownUsers.getIfPresent(userId));
+    }
+
+    private static Map<Long, UserDto> toMap(UserDto[] found) {
+        Map<Long, UserDto> users = new HashMap<>();
+        if (found != null) {
+            for (UserDto userDto : found) {
+                if (userDto != null && userDto.getId() != null) {
+                    users.put(userDto.getId(), userDto);
+                }
+            }
+        }
+        return users;
+    }
+
+    private static List<List<Long>> partition(Collection<Long> ids, int size) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>(Math.min(size, ids.size()));
+        for (Long id : ids) {
+            current.add(id);
+            if (current.size() == size) {
+                chunks.add(current);
+                current = new ArrayList<>(size);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private static ConnectionProvider connectionPool(UserServiceProperties.Http http) {
+        return ConnectionProvider.builder("user-service")
+                .maxConnections(http.getMaxTotal())
+                .pendingAcquireTimeout(http.getConnectionRequestTimeout())
+                .maxIdleTime(http.getIdleTimeout())
+                .build();
+    }
+
+    private static AsyncCache<Long, Optional<UserDto>> buildUserCache(UserServiceProperties.Cache settings) {
+        long ttlNanos = settings.getTtl().toNanos();
+        long negativeTtlNanos = settings.getNegativeTtl().toNanos();
+        return Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(new Expiry<Long, Optional<UserDto>>() {
+                    @Override
+                    public long expireAfterCreate(Long userId, Optional<UserDto> user, long currentTime) {
+                        return user.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long userId, Optional<UserDto> user, long currentTime, long currentDuration) {
+                        return user.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long userId, Optional<UserDto> user, long currentTime, long currentDuration) {
+                        return currentDuration; // Leer no alarga la vida de la entrada
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+}
@@ -0,0 +1,167 @@
+package com.programthis.review_service.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Control de admisión antes de llegar al controlador, para que un cliente que se desboca (p. ej. un crawler sobre
+ * /api/reviews/product/{id}) no agote el pool de conexiones ni el fan-out al User Service de los demás:
+ * <ul>
+ *     <li>Un límite global de peticiones en curso descarta el exceso con 503 en lugar de encolarlo. Se comprueba
+ *     primero, así que una petición descartada no gasta tokens de su cliente.</li>
+ *     <li>Cada cliente tiene un {@link TokenBucket} de lecturas y otro de escrituras; sin tokens se responde 429.</li>
+ * </ul>
+ * El cliente es el usuario autenticado si lo hay; si no, la cabecera client-key-header cuando la envía una dirección
+ * de confianza (trusted-client-key-sources) y, en otro caso, la dirección remota. Detrás de un balanceador, la
+ * dirección remota es la que resuelve Tomcat a partir de X-Forwarded-For con server.forward-headers-strategy=native
+ * y server.tomcat.remoteip.internal-proxies: un cliente no puede elegir su cubo enviando cabeceras.
+ * Las dos respuestas llevan Retry-After. Ninguna decisión toma candados: los cubos son un long con compareAndSet,
+ * el mapa de clientes es una caché Caffeine y el contador global es un AtomicInteger.
+ * Métricas: "reviews.admission.decisions" (por tipo y decisión), "reviews.admission.in.flight" y
+ * "reviews.admission.tracked.clients".
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SLOT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".slot";
+
+    private final AdmissionControlProperties properties;
+    private final LongSupplier nanoClock;
+    private final Pattern trustedClientKeySources;
+    private final Cache<String, ClientLimits> clients;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter readsAdmitted;
+    private final Counter readsRateLimited;
+    private final Counter readsShed;
+    private final Counter writesAdmitted;
+    private final Counter writesRateLimited;
+    private final Counter writesShed;
+
+    public AdmissionControlInterceptor(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    // Visible en el paquete para los tests, con un reloj controlado
+    AdmissionControlInterceptor(AdmissionControlProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        String trusted = properties.getTrustedClientKeySources();
+        this.trustedClientKeySources = trusted == null || trusted.isBlank() ? null : Pattern.compile(trusted);
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedClients())
+                .expireAfterAccess(properties.getIdleClientExpiry())
+                .build();
+
+        this.readsAdmitted = decisions(meterRegistry, "read", "admitted");
+        this.readsRateLimited = decisions(meterRegistry, "read", "rate_limited");
+        this.readsShed = decisions(meterRegistry, "read", "shed");
+        this.writesAdmitted = decisions(meterRegistry, "write", "admitted");
+        this.writesRateLimited = decisions(meterRegistry, "write", "rate_limited");
+        this.writesShed = decisions(meterRegistry, "write", "shed");
+        Gauge.builder("reviews.admission.in.flight", inFlight, AtomicInteger::get)
+                .description("Peticiones admitidas en curso")
+                .register(meterRegistry);
+        Gauge.builder("reviews.admission.tracked.clients", clients, Cache::estimatedSize)
+                .description("Clientes con límites en memoria")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true; // Continuación de una respuesta asíncrona ya admitida
+        }
+        boolean write = isWrite(request.getMethod());
+        if (inFlight.incrementAndGet() > properties.getMaxConcurrentRequests()) {
+            inFlight.decrementAndGet();
+            (write ? writesShed : readsShed).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1);
+            return false;
+        }
+
+        long now = nanoClock.getAsLong();
+        ClientLimits limits = clients.get(clientKey(request), key -> new ClientLimits(
+                new TokenBucket(properties.getReads().getPermitsPerSecond(), properties.getReads().getBurst(), now),
+                new TokenBucket(properties.getWrites().getPermitsPerSecond(), properties.getWrites().getBurst(), now)));
+        long waitNanos = (write ? limits.writes() : limits.reads()).tryAcquire(now);
+        if (waitNanos > 0) {
+            inFlight.decrementAndGet();
+            (write ? writesRateLimited : readsRateLimited).increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L)));
+            return false;
+        }
+        request.setAttribute(SLOT_ATTRIBUTE, Boolean.TRUE);
+        (write ? writesAdmitted : readsAdmitted).increment();
+        return true;
+    }
+
+    // Las respuestas asíncronas (listado reactivo, exportación) siguen en curso mientras se generan: el hueco se
+    // libera en el afterCompletion del despacho ASYNC, no en afterConcurrentHandlingStarted
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        release(request);
+    }
+
+    // Peticiones admitidas en curso; visible en el paquete para los tests
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private void release(HttpServletRequest request) {
+        if (request.getAttribute(SLOT_ATTRIBUTE) != null) {
+            request.removeAttribute(SLOT_ATTRIBUTE);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        String remoteAddr = request.getRemoteAddr();
+        if (trustedClientKeySources != null && remoteAddr != null && trustedClientKeySources.matcher(remoteAddr).matches()) {
+            String key = request.getHeader(properties.getClientKeyHeader());
+            if (key != null && !key.isBlank()) {
+                return "key:" + key;
+            }
+        }
+        return "ip:" + remoteAddr;
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+
+    private static boolean isWrite(String method) {
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static Counter decisions(MeterRegistry meterRegistry, String kind, String decision) {
+        return Counter.builder("reviews.admission.decisions")
+                .description("Decisiones del control de admisión")
+                .tag("kind", kind)
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+
+    private record ClientLimits(TokenBucket reads, TokenBucket writes) {
+    }
+}
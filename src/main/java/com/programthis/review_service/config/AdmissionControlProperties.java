@@ -0,0 +1,51 @@
+package com.programthis.review_service.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Control de admisión de /api/** (prefijo "reviews.admission")
+@Data
+@ConfigurationProperties(prefix = "reviews.admission")
+public class AdmissionControlProperties {
+
+    // false = se admiten todas las peticiones, como antes
+    private boolean enabled = true;
+
+    // Cabecera que identifica al cliente (BFF, job, crawler...). Solo se respeta si la petición llega desde una
+    // dirección de trusted-client-key-sources; de cualquier otro origen se ignora y se usa la dirección IP.
+    private String clientKeyHeader = "X-Client-Id";
+
+    // Expresión regular (mismo formato que server.tomcat.remoteip.internal-proxies) con las direcciones que pueden
+    // identificarse con client-key-header, p. ej. las del BFF. Vacía = la cabecera no se respeta nunca.
+    private String trustedClientKeySources = "";
+
+    // Límite por cliente de GET/HEAD/OPTIONS; al superarlo se responde 429
+    private Limit reads = new Limit(100, 200);
+
+    // Límite por cliente del resto de métodos, separado para que un cliente que lee mucho pueda seguir escribiendo
+    private Limit writes = new Limit(10, 20);
+
+    // Peticiones en curso en todo el servicio; las que lleguen por encima se rechazan con 503 antes de tocar la base
+    // de datos o el User Service. Conviene dejarlo por debajo de lo que aguantan el pool de conexiones y el fan-out.
+    private int maxConcurrentRequests = 400;
+
+    // Clientes con límites en memoria; los que no llaman en idle-client-expiry se olvidan (y vuelven con el cubo lleno)
+    private long maxTrackedClients = 100_000;
+    private Duration idleClientExpiry = Duration.ofMinutes(10);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        // Ritmo sostenido
+        private double permitsPerSecond;
+
+        // Peticiones seguidas que se admiten antes de aplicar el ritmo
+        private int burst;
+    }
+}
@@ -0,0 +1,32 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Copia del autor guardada en cada reseña y su refresco en segundo plano (prefijo "reviews.author-snapshot")
+@Data
+@ConfigurationProperties(prefix = "reviews.author-snapshot")
+public class AuthorSnapshotProperties {
+
+    // false = el refresco programado no se ejecuta; las copias solo cambian al crear reseñas o con los avisos del User Service
+    private boolean refreshEnabled = true;
+
+    // Pausa entre dos ejecuciones del refresco
+    private Duration refreshInterval = Duration.ofMinutes(1);
+
+    // Una copia más antigua que esto se vuelve a comprobar contra el User Service
+    private Duration staleAfter = Duration.ofHours(1);
+
+    // Autores con copias caducadas por bloque; se piden juntos con una consulta por lote y cada uno actualiza
+    // todas sus reseñas con una sentencia
+    private int batchSize = 500;
+
+    // Bloques por ejecución, para no ocupar al User Service con un recorrido completo de los autores
+    private int maxBatchesPerRun = 20;
+
+    // Un autor que el User Service no devolvió (borrado, desconocido o sin respuesta) no se vuelve a pedir en el
+    // refresco hasta pasado este tiempo; un aviso de cambio de perfil lo vuelve a incluir antes
+    private Duration missingUserRetryAfter = Duration.ofHours(6);
+}
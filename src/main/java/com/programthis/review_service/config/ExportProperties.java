@@ -0,0 +1,13 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Exportación de reseñas en NDJSON (prefijo "reviews.export")
+@Data
+@ConfigurationProperties(prefix = "reviews.export")
+public class ExportProperties {
+
+    // Filas por viaje a la base de datos; también es el tamaño de cada consulta de lote al User Service
+    private int chunkSize = 500;
+}
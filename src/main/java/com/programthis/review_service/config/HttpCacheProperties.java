@@ -0,0 +1,49 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.CacheControl;
+
+import java.time.Duration;
+
+// Cabecera Cache-Control de cada endpoint GET de reseñas (prefijo "reviews.http-cache")
+@Data
+@ConfigurationProperties(prefix = "reviews.http-cache")
+public class HttpCacheProperties {
+
+    // GET /api/reviews/product/{productId}
+    private final Policy productReviews = new Policy();
+
+    // GET /api/reviews/user/{userId}
+    private final Policy userReviews = new Policy();
+
+    // GET /api/reviews/{id}
+    private final Policy review = new Policy();
+
+    @Data
+    public static class Policy {
+
+        // 0 = "no-cache": los clientes y la CDN guardan la respuesta pero la revalidan siempre (304 si no cambió)
+        private Duration maxAge = Duration.ZERO;
+
+        // Tiempo que la CDN puede servirla sin revalidar (s-maxage); null para no enviarlo
+        private Duration sharedMaxAge;
+
+        // Tiempo que se puede servir una copia caducada mientras se revalida en segundo plano; null para no enviarlo
+        private Duration staleWhileRevalidate;
+
+        // true = "private": solo la caché del cliente, no la CDN
+        private boolean privateCache = false;
+
+        public CacheControl toCacheControl() {
+            CacheControl cacheControl = maxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(maxAge);
+            if (sharedMaxAge != null) {
+                cacheControl = cacheControl.sMaxAge(sharedMaxAge);
+            }
+            if (staleWhileRevalidate != null) {
+                cacheControl = cacheControl.staleWhileRevalidate(staleWhileRevalidate);
+            }
+            return privateCache ? cacheControl.cachePrivate() : cacheControl.cachePublic();
+        }
+    }
+}
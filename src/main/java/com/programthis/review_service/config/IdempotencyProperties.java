@@ -0,0 +1,29 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Claves de idempotencia de POST /api/reviews (prefijo "reviews.idempotency")
+@Data
+@ConfigurationProperties(prefix = "reviews.idempotency")
+public class IdempotencyProperties {
+
+    // Respuestas que se recuerdan en memoria y durante cuánto tiempo; un reintento posterior vuelve a crear
+    private long maxKeys = 100_000;
+    private Duration retention = Duration.ofHours(24);
+
+    // true = también en la tabla idempotency_key, para repetir respuestas tras un reinicio o desde otra instancia
+    private boolean persistent = false;
+
+    // Cada cuánto se borran de la tabla las respuestas caducadas
+    private Duration purgeInterval = Duration.ofMinutes(10);
+
+    // Espera de un duplicado concurrente a que termine la petición original; después se responde 409
+    private Duration inFlightWait = Duration.ofSeconds(10);
+
+    // Con la tabla, cuánto bloquea la clave la reserva de una petición cuya instancia se cayó antes de responder;
+    // debe superar lo que tarda un alta
+    private Duration claimTimeout = Duration.ofMinutes(1);
+}
@@ -0,0 +1,16 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Carga masiva de reseñas (prefijo "reviews.ingest")
+@Data
+@ConfigurationProperties(prefix = "reviews.ingest")
+public class IngestProperties {
+
+    // Filas por lote: cada lote se inserta con un único batch JDBC y se confirma en su propia transacción
+    private int batchSize = 500;
+
+    // Errores por fila que se detallan en la respuesta; el resto solo se cuentan
+    private int maxReportedErrors = 1000;
+}
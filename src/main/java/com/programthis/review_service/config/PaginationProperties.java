@@ -0,0 +1,35 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Límites de tamaño de página para los listados de reseñas (prefijo "reviews.pagination")
+@Data
+@ConfigurationProperties(prefix = "reviews.pagination")
+public class PaginationProperties {
+
+    // Tamaño de página cuando el cliente no envía "size"
+    private int defaultSize = 20;
+
+    // Tamaño máximo permitido; los valores mayores se recortan a este
+    private int maxSize = 100;
+
+    // Consulta de varios productos a la vez (GET /api/reviews/products): productos por petición
+    private int maxBatchProducts = 100;
+
+    // Reseñas recientes por producto en esa consulta cuando el cliente no envía "latest", y su máximo
+    private int defaultLatestReviews = 5;
+    private int maxLatestReviews = 20;
+
+    /**
+     * Normaliza el tamaño de página pedido por el cliente.
+     * @param requested El tamaño recibido, o null.
+     * @return Un tamaño entre 1 y maxSize.
+     */
+    public int resolveSize(Integer requested) {
+        if (requested == null) {
+            return Math.min(defaultSize, maxSize);
+        }
+        return Math.max(1, Math.min(requested, maxSize));
+    }
+}
@@ -0,0 +1,54 @@
+package com.programthis.review_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Réplicas de lectura (reviews.read-replicas.enabled=true). Sustituye al DataSource de Spring Boot: el primario se
+// crea con spring.datasource.* y cada réplica con su entrada de reviews.read-replicas.pools
+@Configuration
+@ConditionalOnProperty(prefix = "reviews.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             ReadReplicaProperties properties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < properties.getPools().size(); i++) {
+            ReadReplicaProperties.Pool pool = properties.getPools().get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(pool.getUrl());
+            replica.setUsername(pool.getUsername());
+            replica.setPassword(pool.getPassword());
+            replica.setDriverClassName(dataSourceProperties.getDriverClassName());
+            replica.setMaximumPoolSize(properties.getMaxPoolSize());
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties.getMaxLag());
+    }
+
+    // El DataSource que usan JPA y Flyway
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesInterceptor readYourWritesInterceptor(ReadReplicaProperties properties) {
+        return new ReadYourWritesInterceptor(properties.getStickyWindow());
+    }
+}
@@ -0,0 +1,38 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Réplicas de lectura de MySQL (prefijo "reviews.read-replicas"); el primario es spring.datasource.*
+@Data
+@ConfigurationProperties(prefix = "reviews.read-replicas")
+public class ReadReplicaProperties {
+
+    // false = todas las consultas van al primario
+    private boolean enabled = false;
+
+    private List<Pool> pools = new ArrayList<>();
+
+    // Conexiones máximas de cada pool de réplica
+    private int maxPoolSize = 10;
+
+    // Tras una escritura, las lecturas del mismo cliente van al primario durante este tiempo (lee lo que escribió)
+    private Duration stickyWindow = Duration.ofSeconds(5);
+
+    // Retraso máximo admitido; una réplica más retrasada (o que no responde) deja de recibir lecturas hasta alcanzarlo
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    // Cada cuánto se escribe el latido en el primario y se mide el retraso de las réplicas
+    private Duration healthCheckInterval = Duration.ofSeconds(1);
+
+    @Data
+    public static class Pool {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,67 @@
+package com.programthis.review_service.config;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Decisión de enrutado de la petición HTTP en curso, que abre y cierra ReadYourWritesInterceptor.
+ * Fuera de una petición (tareas programadas, tests) no hay contexto y las lecturas pueden ir a cualquier réplica sana.
+ */
+final class ReadRoutingContext {
+
+    private static final ThreadLocal<ReadRoutingContext> CURRENT = new ThreadLocal<>();
+
+    private final boolean primaryOnly;
+    private String replica; // Réplica fijada en la primera lectura de la petición
+
+    private ReadRoutingContext(boolean primaryOnly) {
+        this.primaryOnly = primaryOnly;
+    }
+
+    /**
+     * @param primaryOnly true si el cliente escribió hace poco y debe leer del primario.
+     */
+    static void begin(boolean primaryOnly) {
+        CURRENT.set(new ReadRoutingContext(primaryOnly));
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static ReadRoutingContext current() {
+        return CURRENT.get();
+    }
+
+    // Executor que ejecuta cada tarea con el contexto del hilo que la envía (misma decisión y misma réplica)
+    static Executor propagating(Executor delegate) {
+        return task -> {
+            ReadRoutingContext context = CURRENT.get();
+            if (context == null) {
+                delegate.execute(task);
+                return;
+            }
+            delegate.execute(() -> {
+                CURRENT.set(context);
+                try {
+                    task.run();
+                } finally {
+                    CURRENT.remove();
+                }
+            });
+        };
+    }
+
+    boolean isPrimaryOnly() {
+        return primaryOnly;
+    }
+
+    // Todas las lecturas de una petición van a la misma réplica: la versión (ETag) y los datos de un listado
+    // se leen en transacciones distintas y no deben venir de réplicas con distinto retraso
+    String getReplica() {
+        return replica;
+    }
+
+    void setReplica(String replica) {
+        this.replica = replica;
+    }
+}
@@ -0,0 +1,87 @@
+package com.programthis.review_service.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Lee lo que escribiste: tras una escritura el cliente recibe la cookie "reviews-primary" durante
+ * reviews.read-replicas.sticky-window, y mientras la envíe sus lecturas van al primario, que ya tiene su cambio
+ * aunque las réplicas aún no lo hayan recibido.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    static final String COOKIE = "reviews-primary";
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesInterceptor(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isWrite(request.getMethod())) {
+            long until = System.currentTimeMillis() + stickyWindow.toMillis();
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(until))
+                    .path("/api")
+                    .maxAge(stickyWindow)
+                    .httpOnly(true)
+                    .build()
+                    .toString());
+            ReadRoutingContext.begin(true);
+        } else {
+            ReadRoutingContext.begin(isSticky(request));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Respuestas asíncronas: el resto se hace en otros hilos, que solo siguen esta decisión si se les propaga
+        ReadRoutingContext.end();
+    }
+
+    /**
+     * Envuelve un executor para que las lecturas de sus tareas sigan la decisión de la petición que las lanza
+     * (primario tras una escritura, y la misma réplica que el resto de la petición).
+     * @param delegate El executor que ejecuta las tareas.
+     * @return Un executor que propaga el contexto de enrutado del hilo que envía cada tarea.
+     */
+    public static Executor propagating(Executor delegate) {
+        return ReadRoutingContext.propagating(delegate);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadRoutingContext.end();
+    }
+
+    private static boolean isWrite(String method) {
+        return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method) && !HttpMethod.OPTIONS.matches(method);
+    }
+
+    // La cookie lleva el instante hasta el que se lee del primario, por si el cliente no respeta su Max-Age
+    private static boolean isSticky(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
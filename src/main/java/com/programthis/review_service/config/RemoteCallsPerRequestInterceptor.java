@@ -0,0 +1,57 @@
+package com.programthis.review_service.config;
+
+import com.programthis.review_service.client.RemoteCallCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registra cuántas llamadas al User Service hace cada petición, por endpoint ("user.service.calls.per.request").
+ * Con el enriquecimiento por lotes un listado debería hacer una llamada o ninguna (caché); un máximo que crece
+ * con el tamaño de la página indica un N+1.
+ */
+public class RemoteCallsPerRequestInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String COUNTER_ATTRIBUTE = RemoteCallsPerRequestInterceptor.class.getName() + ".calls";
+
+    private final MeterRegistry meterRegistry;
+
+    public RemoteCallsPerRequestInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) { // En el despacho ASYNC se sigue con el mismo contador
+            request.setAttribute(COUNTER_ATTRIBUTE, RemoteCallCounter.start());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Respuestas asíncronas: el resto se hace en otros hilos, que suman al contador si se les propaga
+        // (ReactiveReviewService lo hace); se registra al terminar el despacho ASYNC
+        RemoteCallCounter.stop();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RemoteCallCounter.stop();
+        if (request.getAttribute(COUNTER_ATTRIBUTE) instanceof AtomicInteger calls) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("user.service.calls.per.request")
+                    .description("Llamadas al User Service por petición entrante")
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(calls.get());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.programthis.review_service.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envía las transacciones de solo lectura (@Transactional(readOnly = true)) a una réplica sana y todo lo demás
+ * (escrituras, consultas sin transacción, Flyway) al primario.
+ * Se usa detrás de un LazyConnectionDataSourceProxy: la conexión física se pide en la primera consulta, cuando
+ * el indicador de solo lectura de la transacción ya está fijado.
+ * Las lecturas van al primario si el cliente escribió hace poco (ReadRoutingContext) o si ninguna réplica está sana.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaNames;
+    private final Duration maxLag;
+    private final Map<String, Boolean> healthy = new HashMap<>(); // Solo lo escribe checkReplicas
+    private volatile List<String> healthyReplicas = List.of();
+    private final AtomicInteger next = new AtomicInteger();
+    private LocalDateTime lastBeat; // Último latido escrito en el primario
+
+    /**
+     * @param primary El pool del primario.
+     * @param replicas Los pools de las réplicas por nombre. Empiezan sin recibir lecturas hasta el primer latido replicado.
+     * @param maxLag El retraso máximo admitido.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaNames = List.copyOf(this.replicas.keySet());
+        this.maxLag = maxLag;
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        ReadRoutingContext context = ReadRoutingContext.current();
+        if (context == null) {
+            return chooseReplica();
+        }
+        if (context.isPrimaryOnly()) {
+            return PRIMARY;
+        }
+        if (context.getReplica() == null || !healthyReplicas.contains(context.getReplica())) {
+            context.setReplica(chooseReplica());
+        }
+        return context.getReplica();
+    }
+
+    // Reparte las lecturas entre las réplicas sanas; sin ninguna, el primario
+    private String chooseReplica() {
+        List<String> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Mide el retraso de cada réplica y escribe un latido nuevo en el primario.
+     * El retraso es lo que el latido leído en la réplica va por detrás del último escrito en el primario, así que
+     * una réplica al día nunca está más de un intervalo por detrás. Una réplica que no responde se da por caída.
+     */
+    @Scheduled(fixedDelayString = "${reviews.read-replicas.health-check-interval:1s}")
+    public synchronized void checkReplicas() {
+        for (String name : replicaNames) {
+            updateHealth(name, isWithinLag(name));
+        }
+        healthyReplicas = replicaNames.stream().filter(name -> healthy.getOrDefault(name, false)).toList();
+
+        LocalDateTime beat = LocalDateTime.now();
+        try {
+            new JdbcTemplate(primary).update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", beat);
+            lastBeat = beat;
+        } catch (RuntimeException e) {
+            log.warn("No se pudo escribir el latido de réplicas en el primario: {}", e.getMessage());
+        }
+    }
+
+    private boolean isWithinLag(String name) {
+        if (lastBeat == null) {
+            return false; // Todavía no hay latido con el que comparar
+        }
+        try {
+            LocalDateTime replicated = new JdbcTemplate(replicas.get(name))
+                    .queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", LocalDateTime.class);
+            return replicated != null && Duration.between(replicated, lastBeat).compareTo(maxLag) <= 0;
+        } catch (RuntimeException e) {
+            log.debug("La réplica {} no respondió a la comprobación de retraso: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    private void updateHealth(String name, boolean nowHealthy) {
+        Boolean previous = healthy.put(name, nowHealthy);
+        if (previous == null || previous != nowHealthy) {
+            if (nowHealthy) {
+                log.info("La réplica {} está al día y vuelve a recibir lecturas", name);
+            } else if (previous != null) {
+                log.warn("La réplica {} supera el retraso máximo ({}) o no responde: sus lecturas van al primario", name, maxLag);
+            }
+        }
+    }
+
+    // Réplicas que reciben lecturas ahora mismo
+    List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas.values()) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
@@ -1,14 +1,54 @@
 package com.programthis.review_service.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration // Indica que esta clase es una fuente de definición de beans
 public class RestTemplateConfig {
 
+    // Pool de conexiones persistentes (keep-alive) hacia el User Service, configurado con user-service.http.*
+    @Bean
+    public PoolingHttpClientConnectionManager userServiceConnectionManager(UserServiceProperties properties) {
+        UserServiceProperties.Http http = properties.getHttp();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(http.getMaxTotal())
+                .setMaxConnPerRoute(http.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(http.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(http.getResponseTimeout()))
+                        .setValidateAfterInactivity(TimeValue.of(http.getValidateAfterInactivity()))
+                        .build())
+                .build();
+    }
+
+    @Bean
+    public CloseableHttpClient userServiceHttpClient(PoolingHttpClientConnectionManager userServiceConnectionManager,
+                                                     UserServiceProperties properties) {
+        UserServiceProperties.Http http = properties.getHttp();
+        return HttpClients.custom()
+                .setConnectionManager(userServiceConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(http.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(http.getResponseTimeout()))
+                        .setConnectionKeepAlive(TimeValue.of(http.getKeepAlive())) // Si el servidor no indica otro valor
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(http.getIdleTimeout()))
+                .build();
+    }
+
     @Bean // Marca este método como un productor de un bean que Spring gestionará
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient userServiceHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(userServiceHttpClient));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.programthis.review_service.config;
+
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurationContext;
+import org.hibernate.search.backend.lucene.analysis.LuceneAnalysisConfigurer;
+
+// Analizador del índice de búsqueda de reseñas (hibernate.search.backend.analysis.configurer en application.properties)
+public class ReviewSearchAnalysisConfigurer implements LuceneAnalysisConfigurer {
+
+    // Analizador de título y comentario: sin distinguir mayúsculas ni acentos ("café" encuentra "Cafe")
+    public static final String REVIEW_TEXT = "review_text";
+
+    @Override
+    public void configure(LuceneAnalysisConfigurationContext context) {
+        context.analyzer(REVIEW_TEXT).custom()
+                .tokenizer("standard")
+                .tokenFilter("lowercase")
+                .tokenFilter("asciiFolding");
+    }
+}
@@ -0,0 +1,43 @@
+package com.programthis.review_service.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cubo de tokens sin bloqueos: admite ráfagas de hasta {@code burst} peticiones y después {@code permitsPerSecond}.
+ * Se implementa como GCRA (el instante teórico en que el cubo vuelve a estar lleno), así que todo el estado es un
+ * único long que se actualiza con compareAndSet: ni candados ni un hilo que rellene el cubo.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;   // Tiempo que tarda en reponerse un token
+    private final long toleranceNanos;  // Ráfaga admitida, expresada en tiempo
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive.");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Consume un token si lo hay.
+     * @param nowNanos Instante actual (System.nanoTime()).
+     * @return 0 si la petición se admite; si no, los nanosegundos que faltan para el siguiente token.
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long wait = next - nowNanos - toleranceNanos;
+            if (wait > 0) {
+                return wait; // Sin tokens: el estado no cambia, así que los rechazos no alargan la espera
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
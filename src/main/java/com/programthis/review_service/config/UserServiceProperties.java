@@ -0,0 +1,118 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Configuración de la comunicación con el User Service (prefijo "user-service" en application.properties)
+@Data
+@ConfigurationProperties(prefix = "user-service")
+public class UserServiceProperties {
+
+    // URL base del User Service (ej. http://localhost:8082)
+    private String url;
+
+    // Implementación del cliente: "rest" (RestTemplate bloqueante sobre hilos virtuales) o "webclient" (WebClient no bloqueante)
+    private String client = "rest";
+
+    // Número máximo de IDs por consulta al endpoint de lote (/api/users/batch)
+    private int batchSize = 100;
+
+    // Si el User Service responde 400, 404 o 405 al endpoint de lote se usan llamadas individuales
+    // durante este tiempo; después se vuelve a probar el lote (p. ej. tras desplegar una versión que lo incluya)
+    private Duration batchProbeInterval = Duration.ofMinutes(5);
+
+    private final Cache cache = new Cache();
+
+    private final FanOut fanOut = new FanOut();
+
+    private final Http http = new Http();
+
+    private final Resilience resilience = new Resilience();
+
+    @Data
+    public static class Cache {
+
+        // Número máximo de usuarios guardados en memoria
+        private long maximumSize = 10_000;
+
+        // Tiempo que se reutiliza un usuario encontrado
+        private Duration ttl = Duration.ofMinutes(10);
+
+        // Tiempo que se recuerda un usuario no encontrado (404), más corto para no ocultar altas recientes
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class FanOut {
+
+        // Llamadas simultáneas máximas al User Service desde esta instancia (lotes y consultas individuales).
+        // Es el límite del bulkhead: las llamadas que no consiguen hueco en resilience.bulkhead-max-wait usan el valor de respaldo.
+        private int maxConcurrency = 16;
+
+        // Tiempo máximo que una petición espera a sus usuarios (un listado o una sola reseña); los que no lleguen se
+        // muestran con su último valor conocido o como desconocidos
+        private Duration deadline = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Http {
+
+        // Conexiones abiertas máximas del pool, en total y por host del User Service
+        private int maxTotal = 200;
+        private int maxPerRoute = 50;
+
+        // Tiempo máximo para establecer la conexión TCP
+        private Duration connectTimeout = Duration.ofSeconds(1);
+
+        // Tiempo máximo esperando una conexión libre del pool antes de fallar
+        private Duration connectionRequestTimeout = Duration.ofMillis(500);
+
+        // Tiempo máximo esperando la respuesta (y entre paquetes) una vez enviada la petición
+        private Duration responseTimeout = Duration.ofSeconds(2);
+
+        // Tiempo que se reutiliza una conexión si el servidor no envía la cabecera Keep-Alive
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        // Las conexiones sin usar durante este tiempo se cierran en segundo plano
+        private Duration idleTimeout = Duration.ofSeconds(30);
+
+        // Una conexión inactiva durante más de este tiempo se comprueba antes de reutilizarla
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Resilience {
+
+        // Número de llamadas recientes que el circuit breaker usa para calcular las tasas de error y de lentitud
+        private int slidingWindowSize = 20;
+
+        // Llamadas mínimas en la ventana antes de que el circuito pueda abrirse
+        private int minimumNumberOfCalls = 10;
+
+        // Porcentaje de llamadas fallidas que abre el circuito
+        private float failureRateThreshold = 50;
+
+        // Una llamada que tarda más que esto cuenta como lenta
+        private Duration slowCallDuration = Duration.ofSeconds(1);
+
+        // Porcentaje de llamadas lentas que abre el circuito
+        private float slowCallRateThreshold = 80;
+
+        // Tiempo que el circuito permanece abierto (sin llamar al User Service) antes de probar de nuevo
+        private Duration openStateDuration = Duration.ofSeconds(10);
+
+        // Llamadas de prueba permitidas con el circuito medio abierto
+        private int halfOpenCalls = 3;
+
+        // Tiempo máximo esperando hueco en el bulkhead
+        private Duration bulkheadMaxWait = Duration.ofMillis(500);
+
+        // Si una llamada tarda más que esto se lanza otra igual y se usa la primera respuesta correcta (0 = sin hedging)
+        private Duration hedgeDelay = Duration.ZERO;
+
+        // Tiempo que se guarda el último valor conocido de un usuario para servirlo cuando el User Service falla
+        private Duration lastKnownTtl = Duration.ofHours(24);
+    }
+}
@@ -0,0 +1,34 @@
+package com.programthis.review_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor;
+    private final AdmissionControlProperties admissionControlProperties;
+
+    public WebMvcConfig(MeterRegistry meterRegistry, ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor,
+                        AdmissionControlProperties admissionControlProperties) {
+        this.meterRegistry = meterRegistry;
+        this.readYourWritesInterceptor = readYourWritesInterceptor;
+        this.admissionControlProperties = admissionControlProperties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // El primero: una petición rechazada no pasa por los demás
+        if (admissionControlProperties.isEnabled()) {
+            registry.addInterceptor(new AdmissionControlInterceptor(admissionControlProperties, meterRegistry))
+                    .addPathPatterns("/api/**");
+        }
+        registry.addInterceptor(new RemoteCallsPerRequestInterceptor(meterRegistry)).addPathPatterns("/api/**");
+        // Solo con réplicas de lectura activadas
+        readYourWritesInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns("/api/**"));
+    }
+}
@@ -0,0 +1,31 @@
+package com.programthis.review_service.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Escritura de reseñas con confirmación en grupo (prefijo "reviews.write-queue")
+@Data
+@ConfigurationProperties(prefix = "reviews.write-queue")
+public class WriteQueueProperties {
+
+    // false = cada alta se confirma en su propia transacción, como siempre
+    private boolean enabled = false;
+
+    // Reseñas aceptadas que pueden esperar en memoria; con la cola llena las altas se rechazan con 503
+    private int capacity = 10_000;
+
+    // Máximo de reseñas por transacción
+    private int batchSize = 200;
+
+    // Espera para completar un lote cuando la cola tiene menos reseñas que batchSize; 0 confirma lo que haya
+    private Duration maxWait = Duration.ZERO;
+
+    // Tiempo que el cierre de la aplicación espera a que se vacíe la cola
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    // Estados de seguimiento (GET /api/reviews/writes/{trackingId}) que se conservan y durante cuánto tiempo
+    private long maxTrackedWrites = 100_000;
+    private Duration trackingRetention = Duration.ofMinutes(10);
+}
@@ -0,0 +1,105 @@
+package com.programthis.review_service.controller;
+
+import com.programthis.review_service.entity.ReviewVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+
+/**
+ * Validadores HTTP (ETag y Last-Modified) de una respuesta GET a partir de la versión de su recurso.
+ * Se comprueban antes de leer las reseñas, así que un 304 no consulta la tabla review ni el User Service.
+ * Los datos del usuario (nombre) no forman parte de la versión: pueden quedar desfasados hasta la siguiente
+ * escritura sobre el recurso, igual que en la caché de usuarios.
+ * <p>
+ * Last-Modified tiene resolución de segundos: dos versiones escritas en el mismo segundo tendrían la misma fecha y
+ * un cliente que solo envíe If-Modified-Since recibiría un 304 con la primera. Por eso solo se envía cuando el
+ * segundo de la última escritura ya ha pasado (cualquier versión posterior tendrá una fecha mayor); mientras
+ * tanto la respuesta lleva solo ETag.
+ */
+final class ConditionalGet {
+
+    private final String etag;
+    private final long lastModified; // -1 si no se conoce
+    private final CacheControl cacheControl;
+
+    private ConditionalGet(String etag, long lastModified, CacheControl cacheControl) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * @param version La versión del producto, usuario o reseña.
+     * @param variant Lo que distingue esta respuesta de otras del mismo recurso (representación, orden, página).
+     * @param cacheControl La política de caché del endpoint.
+     */
+    static ConditionalGet of(ReviewVersion version, String variant, CacheControl cacheControl) {
+        return of(version, variant, cacheControl, Instant.now());
+    }
+
+    // Visible en el paquete para los tests, con la hora de la respuesta fija
+    static ConditionalGet of(ReviewVersion version, String variant, CacheControl cacheControl, Instant now) {
+        String etag = "W/\"" + version.getScope() + "-" + version.getOwnerId() + "-" + version.getVersion()
+                + "-" + digest(variant) + "\"";
+        long lastModified = -1;
+        if (version.getUpdatedAt() != null) {
+            Instant second = version.getUpdatedAt().toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+            if (!now.isBefore(second.plusSeconds(1))) {
+                lastModified = second.toEpochMilli();
+            }
+        }
+        return new ConditionalGet(etag, lastModified, cacheControl);
+    }
+
+    /**
+     * Comprueba If-None-Match / If-Modified-Since de la petición en curso.
+     * @return true si el cliente ya tiene esta versión; fuera de una petición HTTP siempre es false.
+     */
+    boolean isNotModified() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        ServletWebRequest request = new ServletWebRequest(attributes.getRequest(), attributes.getResponse());
+        return lastModified < 0 ? request.checkNotModified(etag) : request.checkNotModified(etag, lastModified);
+    }
+
+    <T> ResponseEntity<T> notModified() {
+        return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).build();
+    }
+
+    <T> ResponseEntity<T> ok(T body) {
+        return withValidators(ResponseEntity.ok()).body(body);
+    }
+
+    // Primeros 64 bits del SHA-256 de la variante: con String.hashCode dos variantes distintas (p. ej. dos cursores)
+    // podían compartir ETag
+    private static String digest(String variant) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(variant.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toda JVM incluye SHA-256
+        }
+    }
+
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder response) {
+        // La misma URL responde HAL, JSON ligero, Smile o CBOR según Accept: las cachés deben guardarlas por separado
+        response.eTag(etag).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT);
+        if (lastModified >= 0) {
+            response.lastModified(lastModified);
+        }
+        return response;
+    }
+}
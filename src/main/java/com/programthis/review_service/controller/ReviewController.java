@@ -1,20 +1,57 @@
 package com.programthis.review_service.controller;
 
+import com.programthis.review_service.config.HttpCacheProperties;
+import com.programthis.review_service.config.PaginationProperties;
 import com.programthis.review_service.entity.Review; // Mantener para createReview y updateReview
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.service.AuthorSnapshotService;
+import com.programthis.review_service.service.BulkReviewIngestService;
+import com.programthis.review_service.service.GroupCommitReviewWriter;
+import com.programthis.review_service.service.IdempotencyService;
+import com.programthis.review_service.service.IdempotencyService.IdempotentResponse;
+import com.programthis.review_service.service.ProductRatingSummaryService;
+import com.programthis.review_service.service.ReactiveReviewService;
+import com.programthis.review_service.service.ReviewExportService;
 import com.programthis.review_service.service.ReviewService;
+import com.programthis.review_service.service.ReviewVersionService;
+import com.programthis.review_service.dto.BulkIngestReport;
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.dto.ProductReviewsOverviewDto;
+import com.programthis.review_service.dto.ReviewPage;
 import com.programthis.review_service.dto.ReviewResponseDto; // ¡NUEVA ADICIÓN! Importar el DTO de respuesta
+import com.programthis.review_service.dto.ReviewSearchPage;
+import com.programthis.review_service.dto.ReviewWriteStatus;
+import com.programthis.review_service.dto.UserDto;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
-import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional; // Asegurarse de que esté importado
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
@@ -23,69 +60,379 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequestMapping("/api/reviews")
 public class ReviewController {
 
+    // Representación ligera de los listados para consumidores internos que no siguen los enlaces:
+    // JSON plano (ReviewPage / ReviewSearchPage), sin enlaces por reseña. Se pide con "Accept: application/vnd.reviews.lean+json".
+    public static final String LEAN_JSON_VALUE = "application/vnd.reviews.lean+json";
+
+    // La misma representación ligera codificada en binario (menos bytes y menos CPU al serializar listados grandes):
+    // "Accept: application/x-jackson-smile" o "Accept: application/cbor". Sin Accept se sigue respondiendo HAL.
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+
+    // Marca las respuestas de POST /api/reviews que repiten la de una petición anterior con la misma Idempotency-Key
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private ProductRatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private PaginationProperties paginationProperties;
+
+    @Autowired
+    private BulkReviewIngestService bulkIngestService;
+
+    @Autowired
+    private ReviewExportService exportService;
+
+    @Autowired
+    private ReviewVersionService versionService;
+
+    @Autowired
+    private HttpCacheProperties httpCacheProperties;
+
+    @Autowired
+    private GroupCommitReviewWriter reviewWriter;
+
+    @Autowired
+    private AuthorSnapshotService authorSnapshotService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ReactiveReviewService reactiveReviewService;
+
     @PostMapping // Este método crea un Review, no un ReviewResponseDto
-    public ResponseEntity<EntityModel<Review>> createReview(@RequestBody Review review) {
+    // Con la cabecera Idempotency-Key los reintentos del cliente devuelven la respuesta original en lugar de crear otra vez
+    public ResponseEntity<EntityModel<Review>> createReview(@RequestBody Review review,
+                                                            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return toCreatedResponse(create(review));
+        }
         try {
-            Review savedReview = reviewService.createReview(review);
-            // addLinks(savedReview); // Si deseas que la respuesta de creación tenga enlaces HATEOAS basados en Review
-            // Para HATEOAS de la entidad original Review, puedes usar esto:
-            EntityModel<Review> resource = EntityModel.of(savedReview,
-                    linkTo(methodOn(ReviewController.class).getReviewById(savedReview.getId())).withSelfRel());
-            return new ResponseEntity<>(resource, HttpStatus.CREATED);
+            return toCreatedResponse(idempotencyService.execute(review.getUserId(), idempotencyKey, review, () -> create(review)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Clave vacía o demasiado larga
+        }
+    }
+
+    @PostMapping("/async")
+    // Alta sin esperar a la base de datos: 202 en cuanto la reseña está en la cola de escritura,
+    // con un ID de seguimiento para consultar si se confirmó. Requiere reviews.write-queue.enabled=true.
+    public ResponseEntity<ReviewWriteStatus> createReviewAsync(@RequestBody Review review) {
+        if (!reviewWriter.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_IMPLEMENTED);
+        }
+        try {
+            String trackingId = reviewWriter.submit(review).trackingId();
+            return ResponseEntity.accepted()
+                    .location(linkTo(methodOn(ReviewController.class).getWriteStatus(trackingId)).toUri())
+                    .body(ReviewWriteStatus.pending(trackingId));
         } catch (IllegalArgumentException e) {
-            // Manejo de errores simplificado
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } catch (RejectedExecutionException e) {
+            return writeQueueFull();
+        }
+    }
+
+    @GetMapping("/writes/{trackingId}")
+    // Estado de un alta asíncrona: PENDING, COMMITTED (con el ID de la reseña) o FAILED (con el motivo)
+    public ResponseEntity<ReviewWriteStatus> getWriteStatus(@PathVariable String trackingId) {
+        return reviewWriter.getStatus(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    // Carga masiva: un array JSON o NDJSON (una reseña por línea). Responde con las filas insertadas y los errores por fila.
+    public ResponseEntity<BulkIngestReport> bulkCreateReviews(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                              InputStream body) {
+        try {
+            BulkIngestReport report = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(contentType))
+                    ? bulkIngestService.ingestNdjson(body)
+                    : bulkIngestService.ingestJsonArray(body);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException | IOException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // El cuerpo no es un array JSON o no se pudo leer
         }
     }
 
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    // Volcado completo en NDJSON, escrito mientras se lee de la base de datos:
+    // ?productId=101&from=2024-01-01T00:00:00&to=2024-02-01T00:00:00&enrich=true&gzip=true
+    public ResponseEntity<StreamingResponseBody> exportReviews(@RequestParam(required = false) Long productId,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                               @RequestParam(defaultValue = "false") boolean enrich,
+                                                               @RequestParam(defaultValue = "false") boolean gzip) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Rango de fechas vacío o invertido
+        }
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                exportService.exportNdjson(productId, from, to, enrich, compressed);
+                compressed.finish(); // Escribe el final del gzip sin cerrar la respuesta, que la cierra el contenedor
+            } else {
+                exportService.exportNdjson(productId, from, to, enrich, out);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @GetMapping("/product/{productId}")
-    // ¡MODIFICACIÓN CLAVE! Cambiar el tipo de retorno a CollectionModel<EntityModel<ReviewResponseDto>>
-    public ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> getReviewsByProductId(@PathVariable Long productId) {
-        // ¡MODIFICACIÓN CLAVE! Llamar al servicio que devuelve List<ReviewResponseDto>
-        List<ReviewResponseDto> reviews = reviewService.getReviewsByProductId(productId);
-        
-        if (reviews.isEmpty()) {
+    // Paginado por cursor: ?size=20&sort=newest|oldest|highest|lowest&cursor=<token de la página anterior>
+    public ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> getReviewsByProductId(@PathVariable Long productId,
+                                                                                              @RequestParam(required = false) String cursor,
+                                                                                              @RequestParam(required = false) Integer size,
+                                                                                              @RequestParam(required = false) String sort) {
+        ReviewPage page;
+        ReviewSortOrder sortOrder;
+        ConditionalGet conditional;
+        int pageSize = paginationProperties.resolveSize(size);
+        try {
+            sortOrder = ReviewSortOrder.fromParam(sort);
+            conditional = listConditional(versionService.getProductVersion(productId), "hal", sortOrder, pageSize, cursor,
+                    httpCacheProperties.getProductReviews());
+            if (conditional.isNotModified()) {
+                return conditional.notModified(); // El cliente ya tiene esta versión: sin leer reseñas ni llamar al User Service
+            }
+            page = reviewService.getReviewsByProductId(productId, sortOrder, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Orden o cursor no válidos
+        }
+
+        if (page.getContent().isEmpty() && cursor == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND); // Devuelve 404 si no hay reseñas
         }
-        
-        // ¡MODIFICACIÓN CLAVE! Mapear a EntityModel<ReviewResponseDto> y añadir enlaces
-        List<EntityModel<ReviewResponseDto>> reviewModels = reviews.stream()
-                .map(this::toReviewResponseModel) // Usamos el nuevo método auxiliar
-                .collect(Collectors.toList());
 
-        WebMvcLinkBuilder link = linkTo(methodOn(this.getClass()).getReviewsByProductId(productId));
-        return ResponseEntity.ok(CollectionModel.of(reviewModels, link.withSelfRel()));
+        CollectionModel<EntityModel<ReviewResponseDto>> collection = CollectionModel.of(toReviewResponseModels(page.getContent()),
+                linkTo(methodOn(ReviewController.class).getReviewsByProductId(productId, cursor, size, sort)).withSelfRel());
+        if (page.getNextCursor() != null) {
+            collection.add(linkTo(methodOn(ReviewController.class)
+                    .getReviewsByProductId(productId, page.getNextCursor(), pageSize, sortOrder.getParam())).withRel(IanaLinkRelations.NEXT));
+        }
+        return conditional.ok(collection);
+    }
+
+    @GetMapping("/products")
+    // Varios productos en una petición (páginas de categoría y de resultados): ?ids=1,2,3&latest=5
+    // Devuelve por producto el total, la media y sus "latest" reseñas más recientes, sin enlaces por reseña
+    public ResponseEntity<List<ProductReviewsOverviewDto>> getProductOverviews(@RequestParam List<Long> ids,
+                                                                               @RequestParam(required = false) Integer latest) {
+        if (ids.isEmpty() || ids.stream().anyMatch(Objects::isNull) || ids.size() > paginationProperties.getMaxBatchProducts()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        int perProduct = latest != null ? latest : paginationProperties.getDefaultLatestReviews();
+        if (perProduct < 0 || perProduct > paginationProperties.getMaxLatestReviews()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(reviewService.getProductOverviews(ids, perProduct));
+    }
+
+    @GetMapping(value = "/product/{productId}", produces = {LEAN_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    // Mismos parámetros que el listado HAL; la siguiente página se pide con el nextCursor de la respuesta.
+    // Es la página de producto de mayor tráfico: se responde de forma asíncrona (ReactiveReviewService), así que
+    // mientras se consulta la base de datos y el User Service la petición no retiene el hilo del servidor.
+    public Mono<ResponseEntity<ReviewPage>> getReviewsByProductIdLean(@PathVariable Long productId,
+                                                                      @RequestParam(required = false) String cursor,
+                                                                      @RequestParam(required = false) Integer size,
+                                                                      @RequestParam(required = false) String sort) {
+        ReviewSortOrder sortOrder;
+        ConditionalGet conditional;
+        int pageSize = paginationProperties.resolveSize(size);
+        try {
+            // Los validadores se comprueban aquí, en el hilo de la petición, porque leen sus cabeceras
+            sortOrder = ReviewSortOrder.fromParam(sort);
+            conditional = listConditional(versionService.getProductVersion(productId), leanVariant(), sortOrder, pageSize, cursor,
+                    httpCacheProperties.getProductReviews());
+            if (conditional.isNotModified()) {
+                return Mono.just(conditional.notModified());
+            }
+        } catch (IllegalArgumentException e) {
+            return Mono.just(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        return reactiveReviewService.getReviewsByProductId(productId, sortOrder, cursor, pageSize)
+                .map(page -> page.getContent().isEmpty() && cursor == null
+                        ? new ResponseEntity<ReviewPage>(HttpStatus.NOT_FOUND)
+                        : conditional.ok(page))
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(new ResponseEntity<ReviewPage>(HttpStatus.BAD_REQUEST))); // Cursor no válido
+    }
+
+    @GetMapping("/product/{productId}/summary")
+    // Total de reseñas, media e histograma de 1 a 5 estrellas sin cargar las reseñas ni llamar al User Service
+    public ResponseEntity<EntityModel<ProductRatingSummaryDto>> getProductRatingSummary(@PathVariable Long productId) {
+        return ratingSummaryService.getSummary(productId)
+                .map(this::toSummaryModel)
+                .map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping(value = "/product/{productId}/summary", produces = {LEAN_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    // El resumen sin enlaces, para consumidores internos
+    public ResponseEntity<ProductRatingSummaryDto> getProductRatingSummaryLean(@PathVariable Long productId) {
+        return ratingSummaryService.getSummary(productId)
+                .map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping("/product/{productId}/summary/rebuild")
+    // Recalcula el resumen de un producto desde la tabla de reseñas
+    public ResponseEntity<EntityModel<ProductRatingSummaryDto>> rebuildProductRatingSummary(@PathVariable Long productId) {
+        return ratingSummaryService.rebuild(productId)
+                .map(this::toSummaryModel)
+                .map(ResponseEntity::ok)
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @PostMapping("/summaries/rebuild")
+    // Recalcula los resúmenes de todos los productos
+    public ResponseEntity<Void> rebuildAllRatingSummaries() {
+        ratingSummaryService.rebuildAll();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     @GetMapping("/user/{userId}")
-    // ¡MODIFICACIÓN CLAVE! Cambiar el tipo de retorno a CollectionModel<EntityModel<ReviewResponseDto>>
-    public ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> getReviewsByUserId(@PathVariable Long userId) {
-        // ¡MODIFICACIÓN CLAVE! Llamar al servicio que devuelve List<ReviewResponseDto>
-        List<ReviewResponseDto> reviews = reviewService.getReviewsByUserId(userId);
-        
-        if (reviews.isEmpty()) {
+    // Paginado por cursor: ?size=20&sort=newest|oldest|highest|lowest&cursor=<token de la página anterior>
+    public ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> getReviewsByUserId(@PathVariable Long userId,
+                                                                                           @RequestParam(required = false) String cursor,
+                                                                                           @RequestParam(required = false) Integer size,
+                                                                                           @RequestParam(required = false) String sort) {
+        ReviewPage page;
+        ReviewSortOrder sortOrder;
+        ConditionalGet conditional;
+        int pageSize = paginationProperties.resolveSize(size);
+        try {
+            sortOrder = ReviewSortOrder.fromParam(sort);
+            conditional = listConditional(versionService.getUserVersion(userId), "hal", sortOrder, pageSize, cursor,
+                    httpCacheProperties.getUserReviews());
+            if (conditional.isNotModified()) {
+                return conditional.notModified(); // El cliente ya tiene esta versión: sin leer reseñas ni llamar al User Service
+            }
+            page = reviewService.getReviewsByUserId(userId, sortOrder, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (page.getContent().isEmpty() && cursor == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        
-        // ¡MODIFICACIÓN CLAVE! Mapear a EntityModel<ReviewResponseDto> y añadir enlaces
-        List<EntityModel<ReviewResponseDto>> reviewModels = reviews.stream()
-                .map(this::toReviewResponseModel) // Usamos el nuevo método auxiliar
-                .collect(Collectors.toList());
-        
-        WebMvcLinkBuilder link = linkTo(methodOn(this.getClass()).getReviewsByUserId(userId));
-        return ResponseEntity.ok(CollectionModel.of(reviewModels, link.withSelfRel()));
+
+        CollectionModel<EntityModel<ReviewResponseDto>> collection = CollectionModel.of(toReviewResponseModels(page.getContent()),
+                linkTo(methodOn(ReviewController.class).getReviewsByUserId(userId, cursor, size, sort)).withSelfRel());
+        if (page.getNextCursor() != null) {
+            collection.add(linkTo(methodOn(ReviewController.class)
+                    .getReviewsByUserId(userId, page.getNextCursor(), pageSize, sortOrder.getParam())).withRel(IanaLinkRelations.NEXT));
+        }
+        return conditional.ok(collection);
+    }
+
+    @GetMapping(value = "/user/{userId}", produces = {LEAN_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    public ResponseEntity<ReviewPage> getReviewsByUserIdLean(@PathVariable Long userId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer size,
+                                                             @RequestParam(required = false) String sort) {
+        ReviewPage page;
+        ConditionalGet conditional;
+        int pageSize = paginationProperties.resolveSize(size);
+        try {
+            ReviewSortOrder sortOrder = ReviewSortOrder.fromParam(sort);
+            conditional = listConditional(versionService.getUserVersion(userId), leanVariant(), sortOrder, pageSize, cursor,
+                    httpCacheProperties.getUserReviews());
+            if (conditional.isNotModified()) {
+                return conditional.notModified();
+            }
+            page = reviewService.getReviewsByUserId(userId, sortOrder, cursor, pageSize);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (page.getContent().isEmpty() && cursor == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return conditional.ok(page);
+    }
+
+    @GetMapping("/search")
+    // Búsqueda por texto en título y comentario: ?q=batería&productId=101&minRating=4&page=0&size=20
+    public ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> searchReviews(@RequestParam String q,
+                                                                                      @RequestParam(required = false) Long productId,
+                                                                                      @RequestParam(required = false) Integer minRating,
+                                                                                      @RequestParam(required = false) Integer page,
+                                                                                      @RequestParam(required = false) Integer size) {
+        ReviewSearchPage results;
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = paginationProperties.resolveSize(size);
+        try {
+            results = reviewService.searchReviews(q, productId, minRating, pageNumber, pageSize);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // Texto vacío, puntuación o página no válidas
+        }
+
+        CollectionModel<EntityModel<ReviewResponseDto>> collection = CollectionModel.of(toReviewResponseModels(results.getContent()),
+                linkTo(methodOn(ReviewController.class).searchReviews(q, productId, minRating, page, size)).withSelfRel());
+        if (results.hasNext()) {
+            collection.add(linkTo(methodOn(ReviewController.class)
+                    .searchReviews(q, productId, minRating, pageNumber + 1, pageSize)).withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(collection);
+    }
+
+    @GetMapping(value = "/search", produces = {LEAN_JSON_VALUE, SMILE_VALUE, CBOR_VALUE})
+    public ResponseEntity<ReviewSearchPage> searchReviewsLean(@RequestParam String q,
+                                                              @RequestParam(required = false) Long productId,
+                                                              @RequestParam(required = false) Integer minRating,
+                                                              @RequestParam(required = false) Integer page,
+                                                              @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(reviewService.searchReviews(q, productId, minRating,
+                    page == null ? 0 : page, paginationProperties.resolveSize(size)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @PostMapping("/search/reindex")
+    // Reconstruye el índice de búsqueda desde la base de datos (p. ej. tras una carga masiva)
+    public ResponseEntity<Void> rebuildSearchIndex() {
+        try {
+            reviewService.rebuildSearchIndex();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @PutMapping("/authors/{userId}")
+    // Aviso del User Service cuando cambia un perfil: actualiza la copia del autor en todas las reseñas del usuario
+    public ResponseEntity<Void> updateAuthorSnapshot(@PathVariable Long userId, @RequestBody UserDto user) {
+        if (user.getId() != null && !user.getId().equals(userId)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        user.setId(userId);
+        authorSnapshotService.applyProfile(user);
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
     @GetMapping("/{id}")
     // ¡MODIFICACIÓN CLAVE! Cambiar el tipo de retorno a EntityModel<ReviewResponseDto>
     public ResponseEntity<EntityModel<ReviewResponseDto>> getReviewById(@PathVariable Long id) {
+        ConditionalGet conditional = ConditionalGet.of(versionService.getReviewVersion(id), "hal",
+                httpCacheProperties.getReview().toCacheControl());
+        if (conditional.isNotModified()) {
+            return conditional.notModified();
+        }
         // ¡MODIFICACIÓN CLAVE! Llamar al servicio que devuelve Optional<ReviewResponseDto>
         return reviewService.getReviewById(id)
                 .map(this::toReviewResponseModel) // Usamos el nuevo método auxiliar
-                .map(ResponseEntity::ok)
+                .map(conditional::ok)
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -113,12 +460,110 @@ public class ReviewController {
         }
     }
 
+    private IdempotentResponse create(Review review) {
+        try {
+            // Con la escritura en grupo activada se responde cuando el lote de la reseña se ha confirmado
+            Review savedReview = reviewWriter.isEnabled()
+                    ? awaitCommit(reviewWriter.submit(review))
+                    : reviewService.createReview(review);
+            return new IdempotentResponse(HttpStatus.CREATED.value(), savedReview, false);
+        } catch (IllegalArgumentException e) {
+            // Manejo de errores simplificado
+            return IdempotentResponse.of(HttpStatus.BAD_REQUEST.value());
+        } catch (DataIntegrityViolationException e) {
+            // El usuario ya tiene una reseña para este producto (restricción uk_review_product_user)
+            return IdempotentResponse.of(HttpStatus.CONFLICT.value());
+        } catch (RejectedExecutionException e) {
+            return IdempotentResponse.of(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    private static ResponseEntity<EntityModel<Review>> toCreatedResponse(IdempotentResponse response) {
+        if (response.status() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            return writeQueueFull();
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.status());
+        if (response.replayed()) {
+            builder.header(IDEMPOTENT_REPLAYED_HEADER, "true");
+        }
+        if (response.review() == null) {
+            return builder.build();
+        }
+        // Para HATEOAS de la entidad original Review, puedes usar esto:
+        Review savedReview = response.review();
+        return builder.body(EntityModel.of(savedReview,
+                linkTo(methodOn(ReviewController.class).getReviewById(savedReview.getId())).withSelfRel()));
+    }
+
+    private static Review awaitCommit(GroupCommitReviewWriter.PendingWrite write) {
+        try {
+            return write.committed().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause; // DataIntegrityViolationException si la reseña ya existía
+            }
+            throw e;
+        }
+    }
+
+    // Cola de escritura llena (o la aplicación se está cerrando): el cliente debe reintentar más tarde
+    private static <T> ResponseEntity<T> writeQueueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    // Codificación de la representación ligera que pide el cliente: cada una lleva su propio ETag,
+    // porque una caché no puede responder con los bytes CBOR a quien validó una copia JSON
+    private static String leanVariant() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return "lean";
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(attributes.getRequest().getHeader(HttpHeaders.ACCEPT));
+            MimeTypeUtils.sortBySpecificity(accepted);
+            for (MediaType mediaType : accepted) {
+                if (mediaType.isCompatibleWith(MediaType.valueOf(LEAN_JSON_VALUE))) {
+                    return "lean";
+                }
+                if (mediaType.isCompatibleWith(MediaType.valueOf(SMILE_VALUE))) {
+                    return "lean-smile";
+                }
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return "lean-cbor";
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Spring ya habrá rechazado la petición; no debería llegar aquí
+        }
+        return "lean";
+    }
+
+    // Validadores de un listado: cambian con cada escritura sobre el producto o usuario y con la página pedida
+    private static ConditionalGet listConditional(ReviewVersion version, String representation, ReviewSortOrder sortOrder,
+                                                  int pageSize, String cursor, HttpCacheProperties.Policy policy) {
+        return ConditionalGet.of(version, representation + "|" + sortOrder.getParam() + "|" + pageSize + "|" + cursor,
+                policy.toCacheControl());
+    }
+
+    private EntityModel<ProductRatingSummaryDto> toSummaryModel(ProductRatingSummaryDto summary) {
+        return EntityModel.of(summary,
+                linkTo(methodOn(ReviewController.class).getProductRatingSummary(summary.getProductId())).withSelfRel(),
+                linkTo(methodOn(ReviewController.class).getReviewsByProductId(summary.getProductId(), null, null, null)).withRel("product-reviews"));
+    }
+
+    // La URI base se resuelve una vez para todo el listado, no una vez por enlace. Visible en el paquete para los benchmarks
+    List<EntityModel<ReviewResponseDto>> toReviewResponseModels(List<ReviewResponseDto> reviews) {
+        ReviewLinks links = ReviewLinks.forCurrentRequest();
+        List<EntityModel<ReviewResponseDto>> models = new ArrayList<>(reviews.size());
+        for (ReviewResponseDto review : reviews) {
+            models.add(links.toModel(review));
+        }
+        return models;
+    }
+
     // Método auxiliar para añadir enlaces HATEOAS a ReviewResponseDto
-    private EntityModel<ReviewResponseDto> toReviewResponseModel(ReviewResponseDto reviewResponseDto) { // ¡NUEVO MÉTODO!
-        return EntityModel.of(reviewResponseDto,
-                linkTo(methodOn(ReviewController.class).getReviewById(reviewResponseDto.getId())).withSelfRel(),
-                linkTo(methodOn(ReviewController.class).getReviewsByProductId(reviewResponseDto.getProductId())).withRel("product-reviews"),
-                linkTo(methodOn(ReviewController.class).getReviewsByUserId(reviewResponseDto.getUserId())).withRel("user-reviews"));
+    // Visible en el paquete para medirlo en los benchmarks (src/jmh/java)
+    EntityModel<ReviewResponseDto> toReviewResponseModel(ReviewResponseDto reviewResponseDto) { // ¡NUEVO MÉTODO!
+        return ReviewLinks.forCurrentRequest().toModel(reviewResponseDto);
     }
     // NOTA: El método 'private Review addLinks(Review review)' original ya no se usa para los GETs enriquecidos,
     // puedes mantenerlo si lo usas en otros lados, o eliminarlo si no.
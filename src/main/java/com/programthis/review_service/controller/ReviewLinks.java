@@ -0,0 +1,56 @@
+package com.programthis.review_service.controller;
+
+import com.programthis.review_service.dto.ReviewResponseDto;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+
+/**
+ * Enlaces por reseña de ReviewController (self, product-reviews y user-reviews).
+ * La URI base del controlador se resuelve una sola vez por petición y cada enlace se obtiene completando
+ * una plantilla fija, sin el proxy de methodOn(...) ni la consulta a la petición actual que hace cada linkTo(...).
+ * Los enlaces resultantes son los mismos que generaba linkTo(methodOn(...)).
+ */
+final class ReviewLinks {
+
+    static final LinkRelation PRODUCT_REVIEWS = LinkRelation.of("product-reviews");
+    static final LinkRelation USER_REVIEWS = LinkRelation.of("user-reviews");
+
+    // Parámetros opcionales de los listados, que linkTo(methodOn(...)) deja como variables de plantilla
+    private static final String LIST_PARAMS = "{?cursor,size,sort}";
+
+    private final String reviewsUri;
+
+    private ReviewLinks(String reviewsUri) {
+        this.reviewsUri = reviewsUri;
+    }
+
+    /**
+     * Resuelve la URI base de /api/reviews para la petición en curso (host, puerto y cabeceras X-Forwarded-*).
+     * @return Los enlaces para usar durante esta petición; no se deben guardar entre peticiones.
+     */
+    static ReviewLinks forCurrentRequest() {
+        return new ReviewLinks(linkTo(ReviewController.class).toUri().toString());
+    }
+
+    EntityModel<ReviewResponseDto> toModel(ReviewResponseDto review) {
+        return EntityModel.of(review,
+                self(review.getId()),
+                productReviews(review.getProductId()),
+                userReviews(review.getUserId()));
+    }
+
+    Link self(Long reviewId) {
+        return Link.of(reviewsUri + "/" + reviewId);
+    }
+
+    Link productReviews(Long productId) {
+        return Link.of(reviewsUri + "/product/" + productId + LIST_PARAMS, PRODUCT_REVIEWS);
+    }
+
+    Link userReviews(Long userId) {
+        return Link.of(reviewsUri + "/user/" + userId + LIST_PARAMS, USER_REVIEWS);
+    }
+}
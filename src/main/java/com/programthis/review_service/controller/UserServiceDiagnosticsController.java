@@ -0,0 +1,43 @@
+package com.programthis.review_service.controller;
+
+import com.programthis.review_service.client.UserServiceClient;
+import com.programthis.review_service.dto.CircuitBreakerStatsDto;
+import com.programthis.review_service.dto.HttpPoolStatsDto;
+import com.programthis.review_service.dto.UserCacheStatsDto;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// Endpoints internos para observar la comunicación con el User Service
+@RestController
+@RequestMapping("/api/internal/user-service")
+public class UserServiceDiagnosticsController {
+
+    @Autowired
+    private UserServiceClient userServiceClient;
+
+    @Autowired
+    private PoolingHttpClientConnectionManager userServiceConnectionManager;
+
+    @GetMapping("/cache")
+    public ResponseEntity<UserCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(new UserCacheStatsDto(userServiceClient.getCachedUserCount(), userServiceClient.getCacheStats()));
+    }
+
+    @GetMapping("/http-pool")
+    // Conexiones en uso, libres y peticiones en espera del pool HTTP
+    public ResponseEntity<HttpPoolStatsDto> getHttpPoolStats() {
+        return ResponseEntity.ok(new HttpPoolStatsDto(userServiceConnectionManager.getTotalStats(),
+                userServiceConnectionManager.getRoutes().size()));
+    }
+
+    @GetMapping("/circuit-breaker")
+    // Estado del circuito y huecos libres del bulkhead
+    public ResponseEntity<CircuitBreakerStatsDto> getCircuitBreakerStats() {
+        return ResponseEntity.ok(new CircuitBreakerStatsDto(userServiceClient.getCircuitBreaker(), userServiceClient.getBulkhead()));
+    }
+}
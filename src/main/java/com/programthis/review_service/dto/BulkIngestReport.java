@@ -0,0 +1,29 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una carga masiva: filas recibidas, insertadas, rechazadas y el motivo de cada rechazo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestReport {
+    private long received;
+    private long inserted;
+    private long failed;
+    private List<RowError> errors = new ArrayList<>(); // Como mucho reviews.ingest.max-reported-errors
+    private String abortedReason; // Solo si el cuerpo dejó de ser legible; las filas anteriores quedan insertadas
+
+    // Una fila rechazada: su posición en la carga (línea en NDJSON, elemento en el array, empezando en 1) y el motivo
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+}
@@ -0,0 +1,27 @@
+package com.programthis.review_service.dto;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Este DTO expone el estado del circuit breaker y del bulkhead de las llamadas al User Service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CircuitBreakerStatsDto {
+    private String state; // CLOSED, OPEN o HALF_OPEN
+    private float failureRate; // Porcentaje de fallos en la ventana (-1 si aún no hay llamadas suficientes)
+    private float slowCallRate; // Porcentaje de llamadas lentas en la ventana (-1 si aún no hay llamadas suficientes)
+    private long notPermittedCalls; // Llamadas rechazadas al momento con el circuito abierto
+    private int availableConcurrentCalls; // Huecos libres en el bulkhead
+
+    public CircuitBreakerStatsDto(CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this(circuitBreaker.getState().name(),
+                circuitBreaker.getMetrics().getFailureRate(),
+                circuitBreaker.getMetrics().getSlowCallRate(),
+                circuitBreaker.getMetrics().getNumberOfNotPermittedCalls(),
+                bulkhead.getMetrics().getAvailableConcurrentCalls());
+    }
+}
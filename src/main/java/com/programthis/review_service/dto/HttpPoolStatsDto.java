@@ -0,0 +1,24 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.hc.core5.pool.PoolStats;
+
+// Este DTO expone el uso del pool de conexiones HTTP hacia el User Service
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HttpPoolStatsDto {
+    private int leased; // Conexiones en uso por una petición
+    private int available; // Conexiones abiertas y libres para reutilizar
+    private int pending; // Peticiones esperando una conexión libre
+    private int max; // Límite total del pool
+    private int routes; // Hosts distintos con conexiones en el pool
+    private double utilization; // leased / max
+
+    public HttpPoolStatsDto(PoolStats stats, int routes) {
+        this(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(), routes,
+                stats.getMax() == 0 ? 0 : (double) stats.getLeased() / stats.getMax());
+    }
+}
@@ -0,0 +1,32 @@
+package com.programthis.review_service.dto;
+
+import com.programthis.review_service.entity.ProductRatingSummary;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Este DTO representa el resumen de valoraciones de un producto: total, media e histograma de 1 a 5 estrellas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummaryDto {
+    private Long productId;
+    private long reviewCount;
+    private double averageRating; // Redondeada a dos decimales, 0 si no hay reseñas
+    private Map<Integer, Long> ratingHistogram; // Puntuación (1-5) -> número de reseñas
+
+    public ProductRatingSummaryDto(ProductRatingSummary summary) {
+        this.productId = summary.getProductId();
+        this.reviewCount = summary.getReviewCount();
+        this.averageRating = summary.getReviewCount() > 0
+                ? Math.round(summary.getRatingSum() * 100.0 / summary.getReviewCount()) / 100.0
+                : 0.0;
+        this.ratingHistogram = new LinkedHashMap<>();
+        for (int rating = 1; rating <= 5; rating++) {
+            this.ratingHistogram.put(rating, summary.countFor(rating));
+        }
+    }
+}
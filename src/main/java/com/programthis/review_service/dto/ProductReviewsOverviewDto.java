@@ -0,0 +1,18 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Resumen de un producto para las páginas de categoría: total, media y sus reseñas más recientes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductReviewsOverviewDto {
+    private Long productId;
+    private long reviewCount;
+    private double averageRating; // Redondeada a dos decimales, 0 si no hay reseñas
+    private List<ReviewResponseDto> latestReviews; // De la más reciente a la más antigua
+}
@@ -0,0 +1,16 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Una página de reseñas enriquecidas junto con el cursor para pedir la siguiente
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewPage {
+    private List<ReviewResponseDto> content;
+    private String nextCursor; // null si no hay más páginas
+}
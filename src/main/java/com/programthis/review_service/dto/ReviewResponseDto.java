@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ReviewView;
 
 import java.time.LocalDateTime;
 
@@ -33,7 +34,22 @@ public class ReviewResponseDto {
         this.title = review.getTitle();
         this.comment = review.getComment();
         this.reviewDate = review.getReviewDate();
-        
+        setUser(userDto);
+    }
+
+    // Igual que el anterior, a partir de la proyección de solo lectura que usan las consultas GET
+    public ReviewResponseDto(ReviewView review, UserDto userDto) {
+        this.id = review.id();
+        this.productId = review.productId();
+        this.userId = review.userId();
+        this.rating = review.rating();
+        this.title = review.title();
+        this.comment = review.comment();
+        this.reviewDate = review.reviewDate();
+        setUser(userDto);
+    }
+
+    private void setUser(UserDto userDto) {
         // Asignar datos del usuario si UserDto no es null
         if (userDto != null) {
             this.username = userDto.getUsername();
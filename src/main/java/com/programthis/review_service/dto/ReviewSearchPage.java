@@ -0,0 +1,22 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Una página de resultados de búsqueda, ordenada por relevancia, con el total de coincidencias
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewSearchPage {
+    private List<ReviewResponseDto> content;
+    private int page; // Número de página, empezando en 0
+    private int size;
+    private long totalHits;
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < totalHits;
+    }
+}
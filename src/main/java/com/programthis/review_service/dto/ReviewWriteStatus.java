@@ -0,0 +1,31 @@
+package com.programthis.review_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Estado de un alta encolada (POST /api/reviews/async): pendiente, confirmada con su ID o rechazada con el motivo
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewWriteStatus {
+
+    public enum State { PENDING, COMMITTED, FAILED }
+
+    private String trackingId;
+    private State state;
+    private Long reviewId; // Solo si está confirmada
+    private String error; // Solo si se rechazó
+
+    public static ReviewWriteStatus pending(String trackingId) {
+        return new ReviewWriteStatus(trackingId, State.PENDING, null, null);
+    }
+
+    public static ReviewWriteStatus committed(String trackingId, Long reviewId) {
+        return new ReviewWriteStatus(trackingId, State.COMMITTED, reviewId, null);
+    }
+
+    public static ReviewWriteStatus failed(String trackingId, String error) {
+        return new ReviewWriteStatus(trackingId, State.FAILED, null, error);
+    }
+}
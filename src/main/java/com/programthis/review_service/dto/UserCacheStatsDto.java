@@ -0,0 +1,22 @@
+package com.programthis.review_service.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Este DTO expone las estadísticas de la caché de usuarios del UserServiceClient
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCacheStatsDto {
+    private long size; // Entradas aproximadas en caché (usuarios encontrados y no encontrados)
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount; // Entradas desalojadas por tamaño o por expiración
+
+    public UserCacheStatsDto(long size, CacheStats stats) {
+        this(size, stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+}
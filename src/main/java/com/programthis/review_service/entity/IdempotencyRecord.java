@@ -0,0 +1,61 @@
+package com.programthis.review_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Respuesta original de un alta con Idempotency-Key de un usuario, guardada para repetirla (V8; solo con
+// reviews.idempotency.persistent=true). Con status PENDING la fila solo reserva la clave mientras se crea la reseña.
+@Entity
+@Table(name = "idempotency_key",
+        indexes = @Index(name = "idx_idempotency_key_expires", columnList = "expires_at"))
+@IdClass(IdempotencyRecord.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final int PENDING = 0;
+
+    @Id
+    private Long userId;
+
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    private int status;
+
+    @Column(length = 4000)
+    private String responseBody;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    public boolean isPending() {
+        return status == PENDING;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String idempotencyKey;
+    }
+}
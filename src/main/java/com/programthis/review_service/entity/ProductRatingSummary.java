@@ -0,0 +1,70 @@
+package com.programthis.review_service.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Resumen de valoraciones de un producto, mantenido en la misma transacción que las escrituras de Review
+@Entity
+@Table(name = "product_rating_summary")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductRatingSummary {
+
+    @Id
+    private Long productId;
+
+    private long reviewCount;
+
+    private long ratingSum; // Suma de todas las puntuaciones, para calcular la media sin recorrer las reseñas
+
+    private long oneStarCount;
+
+    private long twoStarCount;
+
+    private long threeStarCount;
+
+    private long fourStarCount;
+
+    private long fiveStarCount;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * Cantidad de reseñas con la puntuación indicada.
+     * @param rating Una puntuación entre 1 y 5.
+     * @return El número de reseñas con esa puntuación.
+     */
+    public long countFor(int rating) {
+        return switch (rating) {
+            case 1 -> oneStarCount;
+            case 2 -> twoStarCount;
+            case 3 -> threeStarCount;
+            case 4 -> fourStarCount;
+            case 5 -> fiveStarCount;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        };
+    }
+
+    // Suma una reseña con la puntuación indicada (usado al reconstruir el resumen)
+    public void add(int rating, long count) {
+        switch (rating) {
+            case 1 -> oneStarCount += count;
+            case 2 -> twoStarCount += count;
+            case 3 -> threeStarCount += count;
+            case 4 -> fourStarCount += count;
+            case 5 -> fiveStarCount += count;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        }
+        reviewCount += count;
+        ratingSum += rating * count;
+    }
+}
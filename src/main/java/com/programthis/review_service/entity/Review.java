@@ -1,20 +1,42 @@
 package com.programthis.review_service.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import com.programthis.review_service.config.ReviewSearchAnalysisConfigurer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.search.engine.backend.types.Sortable;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.FullTextField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
+import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 import org.springframework.hateoas.RepresentationModel;
 
 import java.time.LocalDateTime;
 
 @Entity
+// El esquema real lo crean las migraciones de Flyway (db/migration); aquí se declara para documentarlo
+@Table(name = "review",
+        indexes = {
+                @Index(name = "idx_review_product_date", columnList = "product_id, review_date DESC, id DESC"),
+                @Index(name = "idx_review_product_rating_date", columnList = "product_id, rating, review_date, id"),
+                @Index(name = "idx_review_product_rating_date_desc", columnList = "product_id, rating, review_date DESC, id DESC"),
+                @Index(name = "idx_review_user_date", columnList = "user_id, review_date DESC, id DESC"),
+                @Index(name = "idx_review_date", columnList = "review_date, id")
+        },
+        uniqueConstraints = @UniqueConstraint(name = "uk_review_product_user", columnNames = {"product_id", "user_id"}))
+// Indexada en Lucene para la búsqueda por texto; Hibernate Search actualiza el índice al confirmar cada escritura
+@Indexed
 @Data
 @EqualsAndHashCode(callSuper = true)
 @NoArgsConstructor
@@ -22,21 +44,47 @@ import java.time.LocalDateTime;
 @Builder
 public class Review extends RepresentationModel<Review> {
 
+    // IDs reservados en bloques desde la tabla id_generator (V3): a diferencia de IDENTITY, permite los INSERT por lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "review_id")
+    @TableGenerator(name = "review_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "review", allocationSize = 50)
     private Long id;
 
+    @GenericField
     private Long productId;
 
     private Long userId;
 
+    @GenericField
+    @Column(nullable = false) // Clave de la paginación por cursor (V11)
     private Integer rating;
 
+    @FullTextField(analyzer = ReviewSearchAnalysisConfigurer.REVIEW_TEXT)
     @Column(name = "title", nullable = false, length = 255)
     private String title;
 
+    @FullTextField(analyzer = ReviewSearchAnalysisConfigurer.REVIEW_TEXT)
     @Column(name = "comment", nullable = false, length = 500)
     private String comment;
 
+    @GenericField(sortable = Sortable.YES)
+    @Column(nullable = false) // Clave de la paginación por cursor (V11)
     private LocalDateTime reviewDate;
+
+    // Copia del autor tomada del User Service (V7). La escribe este servicio, nunca el cliente.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String authorUsername;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String authorFullName;
+
+    // Cuándo se tomó la copia; null si la reseña todavía no tiene copia del autor
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime authorSnapshotAt;
+
+    // Reseña sin copia del autor: la añade createReview o el refresco en segundo plano
+    public Review(Long id, Long productId, Long userId, Integer rating, String title, String comment, LocalDateTime reviewDate) {
+        this(id, productId, userId, rating, title, comment, reviewDate, null, null, null);
+    }
 }
\ No newline at end of file
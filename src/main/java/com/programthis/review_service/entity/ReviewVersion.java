@@ -0,0 +1,56 @@
+package com.programthis.review_service.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Versión de las reseñas de un producto, de un usuario o de una reseña concreta, usada como validador HTTP (ETag / Last-Modified)
+@Entity
+@Table(name = "review_version")
+@IdClass(ReviewVersion.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewVersion {
+
+    public static final String PRODUCT = "product";
+    public static final String USER = "user";
+    public static final String REVIEW = "review";
+
+    @Id
+    @Column(length = 16)
+    private String scope;
+
+    @Id
+    private Long ownerId;
+
+    private long version;
+
+    private LocalDateTime updatedAt; // En UTC; null si no se ha escrito nada desde la V10
+
+    /**
+     * Versión de algo que no se ha modificado desde que se crearon las versiones (datos anteriores a la V5).
+     * @param scope El ámbito (PRODUCT, USER o REVIEW).
+     * @param ownerId El ID del producto, usuario o reseña.
+     * @return La versión 0, sin fecha de modificación.
+     */
+    public static ReviewVersion initial(String scope, Long ownerId) {
+        return new ReviewVersion(scope, ownerId, 0, null);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String scope;
+        private Long ownerId;
+    }
+}
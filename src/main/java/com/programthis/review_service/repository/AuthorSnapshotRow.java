@@ -0,0 +1,34 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.dto.UserDto;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Proyección de la copia del autor de una reseña, usada para refrescarla sin cargar entidades
+public interface AuthorSnapshotRow {
+
+    Long getId();
+
+    Long getProductId();
+
+    Long getUserId();
+
+    String getAuthorUsername();
+
+    String getAuthorFullName();
+
+    LocalDateTime getAuthorSnapshotAt();
+
+    // true si no hay copia o se tomó antes de la fecha dada
+    default boolean isOlderThan(LocalDateTime time) {
+        return getAuthorSnapshotAt() == null || getAuthorSnapshotAt().isBefore(time);
+    }
+
+    // true si la copia ya tiene los datos del usuario, es decir, si reescribirla no cambia ninguna respuesta
+    default boolean matches(UserDto user) {
+        return getAuthorSnapshotAt() != null
+                && Objects.equals(getAuthorUsername(), user.getUsername())
+                && Objects.equals(getAuthorFullName(), user.getFullName());
+    }
+}
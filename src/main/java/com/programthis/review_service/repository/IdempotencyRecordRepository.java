@@ -0,0 +1,51 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    // Búsqueda por clave primaria que ignora las respuestas caducadas aún no purgadas
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKeyAndExpiresAtAfter(Long userId, String idempotencyKey, LocalDateTime now);
+
+    /**
+     * Crea la fila de una clave salvo que ya exista (de esta u otra instancia): la primera es la que vale.
+     * Con status PENDING reserva la clave antes de crear la reseña.
+     * @return 1 si se creó la fila, 0 si la clave ya estaba.
+     */
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO idempotency_key (user_id, idempotency_key, fingerprint, status, response_body, created_at, expires_at) "
+            + "VALUES (:userId, :key, :fingerprint, :status, :responseBody, :createdAt, :expiresAt)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("key") String key, @Param("fingerprint") String fingerprint,
+                       @Param("status") int status, @Param("responseBody") String responseBody,
+                       @Param("createdAt") LocalDateTime createdAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Guarda la respuesta definitiva en la fila reservada con status PENDING
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = :status, r.responseBody = :responseBody, r.expiresAt = :expiresAt "
+            + "WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.status = :pending")
+    int complete(@Param("userId") Long userId, @Param("key") String key, @Param("status") int status,
+                 @Param("responseBody") String responseBody, @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("pending") int pending);
+
+    // Suelta una reserva cuya petición terminó sin respuesta definitiva, para que el siguiente reintento la tome
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.status = :pending")
+    int deletePending(@Param("userId") Long userId, @Param("key") String key, @Param("pending") int pending);
+
+    // Borra la fila caducada de una clave (respuesta vieja o reserva de una instancia caída) para poder reservarla
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.userId = :userId AND r.idempotencyKey = :key AND r.expiresAt < :now")
+    int deleteExpired(@Param("userId") Long userId, @Param("key") String key, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,51 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Long> {
+
+    /**
+     * @return Los IDs de todos los productos con resumen.
+     */
+    @Query("SELECT s.productId FROM ProductRatingSummary s")
+    List<Long> findAllProductIds();
+
+    /**
+     * Aplica un incremento (o decremento) al resumen de un producto, creándolo si aún no existe.
+     * Es una sola sentencia atómica, así que las escrituras concurrentes sobre el mismo producto
+     * no pierden actualizaciones ni necesitan bloquear la fila desde Java.
+     * @param productId El ID del producto.
+     * @param countDelta Variación del número de reseñas.
+     * @param sumDelta Variación de la suma de puntuaciones.
+     * @return El número de filas afectadas.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary (product_id, review_count, rating_sum, one_star_count, two_star_count, "
+            + "three_star_count, four_star_count, five_star_count, updated_at) "
+            + "VALUES (:productId, :countDelta, :sumDelta, :oneStar, :twoStar, :threeStar, :fourStar, :fiveStar, :updatedAt) "
+            + "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count), "
+            + "rating_sum = rating_sum + VALUES(rating_sum), "
+            + "one_star_count = one_star_count + VALUES(one_star_count), "
+            + "two_star_count = two_star_count + VALUES(two_star_count), "
+            + "three_star_count = three_star_count + VALUES(three_star_count), "
+            + "four_star_count = four_star_count + VALUES(four_star_count), "
+            + "five_star_count = five_star_count + VALUES(five_star_count), "
+            + "updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    int applyDelta(@Param("productId") Long productId,
+                   @Param("countDelta") long countDelta,
+                   @Param("sumDelta") long sumDelta,
+                   @Param("oneStar") long oneStar,
+                   @Param("twoStar") long twoStar,
+                   @Param("threeStar") long threeStar,
+                   @Param("fourStar") long fourStar,
+                   @Param("fiveStar") long fiveStar,
+                   @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -0,0 +1,9 @@
+package com.programthis.review_service.repository;
+
+// Proyección de un par (producto, usuario) con reseña, usada para detectar duplicados en la carga masiva
+public interface ProductUserPair {
+
+    Long getProductId();
+
+    Long getUserId();
+}
@@ -0,0 +1,11 @@
+package com.programthis.review_service.repository;
+
+// Proyección de la agregación "reseñas por producto y puntuación" usada para reconstruir los resúmenes
+public interface RatingCount {
+
+    Long getProductId();
+
+    Integer getRating();
+
+    Long getReviewCount();
+}
@@ -0,0 +1,58 @@
+package com.programthis.review_service.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de la última reseña devuelta en una página. Guarda los valores de todas las claves de
+ * {@link ReviewSortOrder} para que la página siguiente empiece justo después de ella con un WHERE
+ * sobre índice, sin OFFSET. Se envía al cliente como un token opaco en Base64 URL-safe.
+ * Las tres claves son NOT NULL en la tabla (V11): un NULL no cumpliría el predicado y no se podría decodificar.
+ */
+public record ReviewCursor(Integer rating, LocalDateTime reviewDate, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static ReviewCursor of(ReviewView review) {
+        return new ReviewCursor(review.rating(), review.reviewDate(), review.id());
+    }
+
+    /**
+     * Reconstruye un cursor a partir del token recibido en la API.
+     * @param token El token generado por {@link #encode()}, o null para la primera página.
+     * @return El cursor, o null si el token es null o vacío.
+     * @throws IllegalArgumentException Si el token no es válido.
+     */
+    public static ReviewCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ReviewCursor(Integer.valueOf(parts[0]), LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) { // NumberFormatException es una IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = rating + SEPARATOR + reviewDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Valor de la clave de ordenación indicada, usado para construir el predicado keyset
+    Comparable<?> valueOf(String attribute) {
+        return switch (attribute) {
+            case "rating" -> rating;
+            case "reviewDate" -> reviewDate;
+            case "id" -> id;
+            default -> throw new IllegalArgumentException("Unsupported sort key: " + attribute);
+        };
+    }
+}
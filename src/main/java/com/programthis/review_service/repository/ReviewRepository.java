@@ -1,12 +1,28 @@
 package com.programthis.review_service.repository;
 
 import com.programthis.review_service.entity.Review;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional; // Importar Optional si lo usas
 
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, ReviewRepositoryCustom {
+
+    // Selecciona solo las columnas de ReviewView, sin cargar entidades gestionadas
+    String SELECT_VIEW = "SELECT new com.programthis.review_service.repository.ReviewView("
+            + "r.id, r.productId, r.userId, r.rating, r.title, r.comment, r.reviewDate, "
+            + "r.authorUsername, r.authorFullName, r.authorSnapshotAt) FROM Review r ";
 
+    // Columnas de AuthorSnapshotRow
+    String SELECT_AUTHOR_SNAPSHOT = "SELECT r.id AS id, r.productId AS productId, r.userId AS userId, "
+            + "r.authorUsername AS authorUsername, r.authorFullName AS authorFullName, r.authorSnapshotAt AS authorSnapshotAt "
+            + "FROM Review r ";
 
     /**
      * Busca todas las reseñas asociadas a un producto específico.
@@ -38,13 +54,81 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
      */
     List<Review> findByRatingGreaterThanEqual(Integer rating);
 
+    List<Review> findTop5ByProductIdOrderByReviewDateDesc(Long productId);
+
     /**
-     * Busca reseñas con un comentario que contiene una palabra clave (ignorando mayúsculas/minúsculas).
-     * @param keyword La palabra clave a buscar en el comentario.
-     * @return Una lista de reseñas que contienen la palabra clave.
+     * Busca una reseña por ID como proyección de solo lectura.
+     * @param id El ID de la reseña.
+     * @return La reseña, o vacío si no existe.
      */
-    
-    List<Review> findByCommentContainingIgnoreCase(String keyword);
+    @Query(SELECT_VIEW + "WHERE r.id = :id")
+    Optional<ReviewView> findViewById(@Param("id") Long id);
 
-    List<Review> findTop5ByProductIdOrderByReviewDateDesc(Long productId);
-}
\ No newline at end of file
+    /**
+     * Obtiene los IDs distintos de los productos con reseñas (idx_review_product_date).
+     * @return Los IDs de los productos.
+     */
+    @Query("SELECT DISTINCT r.productId FROM Review r WHERE r.productId IS NOT NULL")
+    List<Long> findDistinctProductIds();
+
+    /**
+     * Cuenta las reseñas de un producto agrupadas por puntuación.
+     * @param productId El ID del producto.
+     * @return Una fila por cada puntuación presente con su número de reseñas.
+     */
+    @Query("SELECT r.productId AS productId, r.rating AS rating, COUNT(r) AS reviewCount "
+            + "FROM Review r WHERE r.productId = :productId AND r.rating BETWEEN 1 AND 5 GROUP BY r.productId, r.rating")
+    List<RatingCount> countByRatingForProduct(@Param("productId") Long productId);
+
+    /**
+     * Busca qué combinaciones de los productos y usuarios dados ya tienen reseña.
+     * Puede devolver pares que no estén en la carga (producto de una fila, usuario de otra): el llamador filtra los exactos.
+     * @param productIds Los IDs de producto de la carga.
+     * @param userIds Los IDs de usuario de la carga.
+     * @return Los pares (producto, usuario) existentes.
+     */
+    @Query("SELECT r.productId AS productId, r.userId AS userId FROM Review r "
+            + "WHERE r.productId IN :productIds AND r.userId IN :userIds")
+    List<ProductUserPair> findExistingPairs(@Param("productIds") Collection<Long> productIds,
+                                            @Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Busca, en orden de ID, los autores distintos con alguna reseña sin copia o con una copia anterior a una fecha.
+     * El refresco en segundo plano recorre los autores por bloques a partir del último visto (idx_review_user_date)
+     * y reescribe todas las reseñas de cada uno con {@link #updateAuthorSnapshot}.
+     * @param afterUserId Solo autores con un ID mayor (0 para empezar desde el principio).
+     * @param staleBefore Las copias anteriores a esta fecha están caducadas.
+     * @param limit El número de autores del bloque.
+     * @return Los IDs de los autores del bloque.
+     */
+    @Query("SELECT DISTINCT r.userId FROM Review r WHERE r.userId > :afterUserId "
+            + "AND (r.authorSnapshotAt IS NULL OR r.authorSnapshotAt < :staleBefore) ORDER BY r.userId")
+    List<Long> findUserIdsWithStaleAuthorSnapshots(@Param("afterUserId") long afterUserId,
+                                                   @Param("staleBefore") LocalDateTime staleBefore, Limit limit);
+
+    /**
+     * Busca la copia del autor de todas las reseñas de un usuario (idx_review_user_date).
+     * @param userId El ID del usuario.
+     * @return Una fila por reseña.
+     */
+    @Query(SELECT_AUTHOR_SNAPSHOT + "WHERE r.userId = :userId")
+    List<AuthorSnapshotRow> findAuthorSnapshotsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Reescribe la copia del autor de las reseñas de un usuario que no tienen copia o la tienen anterior a staleBefore.
+     * La condición evita que un refresco con datos leídos antes pise una copia más reciente (p. ej. un aviso del User Service).
+     * No pasa por Hibernate Search: los campos del autor no están indexados.
+     * @param userId El ID del usuario.
+     * @param username El nombre de usuario.
+     * @param fullName El nombre completo.
+     * @param snapshotAt La fecha de la copia nueva.
+     * @param staleBefore Solo se reescriben las copias anteriores a esta fecha.
+     * @return El número de reseñas actualizadas.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Review r SET r.authorUsername = :username, r.authorFullName = :fullName, r.authorSnapshotAt = :snapshotAt "
+            + "WHERE r.userId = :userId AND (r.authorSnapshotAt IS NULL OR r.authorSnapshotAt < :staleBefore)")
+    int updateAuthorSnapshot(@Param("userId") Long userId, @Param("username") String username,
+                             @Param("fullName") String fullName, @Param("snapshotAt") LocalDateTime snapshotAt,
+                             @Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,73 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.Review;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Consultas de ReviewRepository que no se pueden expresar como métodos derivados
+public interface ReviewRepositoryCustom {
+
+    /**
+     * Busca una página de reseñas de un producto con paginación por cursor (keyset).
+     * El coste es el mismo para cualquier página porque no usa OFFSET.
+     * @param productId El ID del producto.
+     * @param sort El orden de la página.
+     * @param after El cursor de la última reseña de la página anterior, o null para la primera página.
+     * @param limit El número máximo de reseñas a devolver.
+     * @return Las reseñas de la página en el orden pedido, como proyecciones de solo lectura.
+     */
+    List<ReviewView> findPageByProductId(Long productId, ReviewSortOrder sort, ReviewCursor after, int limit);
+
+    /**
+     * Busca una página de reseñas de un usuario con paginación por cursor (keyset).
+     * @param userId El ID del usuario.
+     * @param sort El orden de la página.
+     * @param after El cursor de la última reseña de la página anterior, o null para la primera página.
+     * @param limit El número máximo de reseñas a devolver.
+     * @return Las reseñas de la página en el orden pedido, como proyecciones de solo lectura.
+     */
+    List<ReviewView> findPageByUserId(Long userId, ReviewSortOrder sort, ReviewCursor after, int limit);
+
+    /**
+     * Busca las reseñas más recientes de varios productos con una sola consulta (ROW_NUMBER() por producto),
+     * p. ej. para las páginas de categoría que muestran varios productos a la vez.
+     * @param productIds Los IDs de los productos.
+     * @param perProduct El número máximo de reseñas por producto.
+     * @return Las reseñas agrupadas por producto y, dentro de cada uno, de la más reciente a la más antigua.
+     */
+    List<ReviewView> findLatestByProductIds(Collection<Long> productIds, int perProduct);
+
+    /**
+     * Busca reseñas por texto en el título y el comentario usando el índice de Lucene.
+     * Los resultados se ordenan por relevancia (las coincidencias en el título pesan más) y después por fecha.
+     * @param text El texto a buscar.
+     * @param productId Si no es null, solo reseñas de este producto.
+     * @param minRating Si no es null, solo reseñas con una puntuación igual o superior.
+     * @param offset El número de resultados a saltar.
+     * @param limit El número máximo de reseñas a devolver.
+     * @return Las reseñas de la página y el total de coincidencias.
+     */
+    ReviewSearchHits search(String text, Long productId, Integer minRating, int offset, int limit);
+
+    /**
+     * Reconstruye el índice de búsqueda desde la tabla de reseñas, p. ej. tras una carga masiva
+     * o si el índice en disco se ha perdido. Bloquea hasta terminar.
+     * @throws InterruptedException Si el hilo se interrumpe mientras se reindexa.
+     */
+    void rebuildSearchIndex() throws InterruptedException;
+
+    /**
+     * Busca el siguiente bloque de reseñas a exportar con paginación por cursor (keyset), en el orden
+     * {@link ReviewSortOrder#OLDEST}: cada bloque es una consulta corta sobre índice que no depende de la anterior,
+     * así que no hace falta mantener una transacción ni un cursor de servidor abiertos durante toda la exportación.
+     * @param productId Si no es null, solo reseñas de este producto.
+     * @param from Si no es null, solo reseñas con fecha igual o posterior.
+     * @param to Si no es null, solo reseñas con fecha anterior.
+     * @param after El cursor de la última reseña del bloque anterior, o null para el primero.
+     * @param limit El número máximo de reseñas a devolver.
+     * @return Las reseñas del bloque ordenadas por fecha e ID, como proyecciones de solo lectura.
+     */
+    List<ReviewView> findExportChunk(Long productId, LocalDateTime from, LocalDateTime to, ReviewCursor after, int limit);
+}
@@ -0,0 +1,178 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.Review;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.search.engine.search.query.SearchResult;
+import org.hibernate.search.mapper.orm.Search;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Implementación de ReviewRepositoryCustom que Spring Data combina con ReviewRepository
+class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+    // Numera las reseñas de cada producto en el orden de idx_review_product_date y se queda con las primeras
+    private static final String LATEST_BY_PRODUCT_SQL = """
+            SELECT id, product_id, user_id, rating, title, comment, review_date,
+                   author_username, author_full_name, author_snapshot_at FROM (
+                SELECT r.id, r.product_id, r.user_id, r.rating, r.title, r.comment, r.review_date,
+                       r.author_username, r.author_full_name, r.author_snapshot_at,
+                       ROW_NUMBER() OVER (PARTITION BY r.product_id ORDER BY r.review_date DESC, r.id DESC) AS rn
+                FROM review r
+                WHERE r.product_id IN (:productIds)
+            ) ranked
+            WHERE rn <= :perProduct
+            ORDER BY product_id, review_date DESC, id DESC
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public List<ReviewView> findPageByProductId(Long productId, ReviewSortOrder sort, ReviewCursor after, int limit) {
+        return findPage("productId", productId, sort, after, limit);
+    }
+
+    @Override
+    public List<ReviewView> findPageByUserId(Long userId, ReviewSortOrder sort, ReviewCursor after, int limit) {
+        return findPage("userId", userId, sort, after, limit);
+    }
+
+    @Override
+    public List<ReviewView> findLatestByProductIds(Collection<Long> productIds, int perProduct) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.unwrap(Session.class)
+                .createNativeQuery(LATEST_BY_PRODUCT_SQL, Object[].class)
+                .addScalar("id", Long.class)
+                .addScalar("product_id", Long.class)
+                .addScalar("user_id", Long.class)
+                .addScalar("rating", Integer.class)
+                .addScalar("title", String.class)
+                .addScalar("comment", String.class)
+                .addScalar("review_date", LocalDateTime.class)
+                .addScalar("author_username", String.class)
+                .addScalar("author_full_name", String.class)
+                .addScalar("author_snapshot_at", LocalDateTime.class)
+                .setParameterList("productIds", productIds)
+                .setParameter("perProduct", perProduct)
+                .getResultList()
+                .stream()
+                .map(row -> new ReviewView((Long) row[0], (Long) row[1], (Long) row[2], (Integer) row[3],
+                        (String) row[4], (String) row[5], (LocalDateTime) row[6],
+                        (String) row[7], (String) row[8], (LocalDateTime) row[9]))
+                .toList();
+    }
+
+    @Override
+    public List<ReviewView> findExportChunk(Long productId, LocalDateTime from, LocalDateTime to, ReviewCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ReviewView> query = cb.createQuery(ReviewView.class);
+        Root<Review> review = query.from(Review.class);
+        query.select(selectView(cb, review));
+
+        List<Predicate> filters = new ArrayList<>();
+        if (productId != null) {
+            filters.add(cb.equal(review.get("productId"), productId));
+        }
+        if (from != null) {
+            filters.add(cb.greaterThanOrEqualTo(review.get("reviewDate"), from));
+        }
+        if (to != null) {
+            filters.add(cb.lessThan(review.get("reviewDate"), to));
+        }
+        if (after != null) {
+            filters.add(keysetPredicate(cb, review, ReviewSortOrder.OLDEST.getKeys(), after));
+        }
+        query.where(filters.toArray(Predicate[]::new));
+        query.orderBy(cb.asc(review.get("reviewDate")), cb.asc(review.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public ReviewSearchHits search(String text, Long productId, Integer minRating, int offset, int limit) {
+        SearchResult<Review> result = Search.session(entityManager)
+                .search(Review.class)
+                .where(f -> f.bool().with(b -> {
+                    b.must(f.match().field("title").boost(2.0f).field("comment").matching(text));
+                    if (productId != null) {
+                        b.filter(f.match().field("productId").matching(productId));
+                    }
+                    if (minRating != null) {
+                        b.filter(f.range().field("rating").atLeast(minRating));
+                    }
+                }))
+                .sort(f -> f.score().then().field("reviewDate").desc())
+                .fetch(offset, limit);
+        return new ReviewSearchHits(result.hits(), result.total().hitCount());
+    }
+
+    @Override
+    public void rebuildSearchIndex() throws InterruptedException {
+        Search.mapping(entityManagerFactory)
+                .scope(Review.class)
+                .massIndexer()
+                .startAndWait();
+    }
+
+    private List<ReviewView> findPage(String ownerAttribute, Long ownerId, ReviewSortOrder sort, ReviewCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ReviewView> query = cb.createQuery(ReviewView.class);
+        Root<Review> review = query.from(Review.class);
+        query.select(selectView(cb, review));
+
+        Predicate owner = cb.equal(review.get(ownerAttribute), ownerId);
+        query.where(after == null ? owner : cb.and(owner, keysetPredicate(cb, review, sort.getKeys(), after)));
+
+        List<Order> orders = sort.getKeys().stream()
+                .map(key -> key.descending() ? cb.desc(review.get(key.attribute())) : cb.asc(review.get(key.attribute())))
+                .toList();
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // Equivalente en Criteria de ReviewRepository.SELECT_VIEW: solo las columnas, sin entidades gestionadas
+    private static CompoundSelection<ReviewView> selectView(CriteriaBuilder cb, Root<Review> review) {
+        return cb.construct(ReviewView.class, review.get("id"), review.get("productId"), review.get("userId"),
+                review.get("rating"), review.get("title"), review.get("comment"), review.get("reviewDate"),
+                review.get("authorUsername"), review.get("authorFullName"), review.get("authorSnapshotAt"));
+    }
+
+    // Construye "k1 > v1 OR (k1 = v1 AND (k2 > v2 OR (k2 = v2 AND ...)))", con < en las claves descendentes
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate keysetPredicate(CriteriaBuilder cb, Root<Review> review,
+                                             List<ReviewSortOrder.SortKey> keys, ReviewCursor after) {
+        Predicate predicate = null;
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            ReviewSortOrder.SortKey key = keys.get(i);
+            Expression path = review.get(key.attribute());
+            Comparable value = after.valueOf(key.attribute());
+            Predicate beyond = key.descending() ? cb.lessThan(path, value) : cb.greaterThan(path, value);
+            predicate = predicate == null ? beyond : cb.or(beyond, cb.and(cb.equal(path, value), predicate));
+        }
+        return predicate;
+    }
+}
@@ -0,0 +1,12 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.Review;
+
+import java.util.List;
+
+/**
+ * Resultado de una búsqueda por texto: las reseñas de la página pedida, ordenadas por relevancia,
+ * y el número total de coincidencias según el índice.
+ */
+public record ReviewSearchHits(List<Review> reviews, long totalHits) {
+}
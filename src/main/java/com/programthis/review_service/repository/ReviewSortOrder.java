@@ -0,0 +1,57 @@
+package com.programthis.review_service.repository;
+
+import java.util.List;
+
+/**
+ * Órdenes disponibles para listar reseñas con paginación por cursor (keyset).
+ * Cada orden termina en el ID para que la clave de ordenación sea única y el cursor no salte ni repita filas.
+ */
+public enum ReviewSortOrder {
+
+    NEWEST("newest", key("reviewDate", true), key("id", true)),
+    OLDEST("oldest", key("reviewDate", false), key("id", false)),
+    HIGHEST_RATING("highest", key("rating", true), key("reviewDate", true), key("id", true)),
+    LOWEST_RATING("lowest", key("rating", false), key("reviewDate", true), key("id", true));
+
+    private final String param;
+    private final List<SortKey> keys;
+
+    ReviewSortOrder(String param, SortKey... keys) {
+        this.param = param;
+        this.keys = List.of(keys);
+    }
+
+    /**
+     * Convierte el valor del parámetro "sort" de la API en un orden.
+     * @param value El valor recibido (newest, oldest, highest, lowest). Si es null se usa NEWEST.
+     * @return El orden correspondiente.
+     * @throws IllegalArgumentException Si el valor no es un orden conocido.
+     */
+    public static ReviewSortOrder fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        for (ReviewSortOrder order : values()) {
+            if (order.param.equalsIgnoreCase(value.trim())) {
+                return order;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort order: " + value);
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    public List<SortKey> getKeys() {
+        return keys;
+    }
+
+    private static SortKey key(String attribute, boolean descending) {
+        return new SortKey(attribute, descending);
+    }
+
+    // Un atributo de Review que forma parte de la clave de ordenación
+    public record SortKey(String attribute, boolean descending) {
+    }
+}
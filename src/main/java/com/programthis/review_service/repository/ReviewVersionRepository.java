@@ -0,0 +1,27 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.ReviewVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface ReviewVersionRepository extends JpaRepository<ReviewVersion, ReviewVersion.Key> {
+
+    /**
+     * Incrementa la versión de un producto, usuario o reseña, creándola con la versión 1 si no existe.
+     * Es una sola sentencia atómica, como ProductRatingSummaryRepository.applyDelta.
+     * @param scope El ámbito (ReviewVersion.PRODUCT, USER o REVIEW).
+     * @param ownerId El ID del producto, usuario o reseña.
+     * @param updatedAt La fecha de la modificación (Last-Modified).
+     * @return El número de filas afectadas.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO review_version (scope, owner_id, version, updated_at) "
+            + "VALUES (:scope, :ownerId, 1, :updatedAt) "
+            + "ON DUPLICATE KEY UPDATE version = version + 1, updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    int bump(@Param("scope") String scope, @Param("ownerId") Long ownerId, @Param("updatedAt") LocalDateTime updatedAt);
+}
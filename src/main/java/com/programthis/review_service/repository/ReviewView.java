@@ -0,0 +1,39 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de solo lectura de una reseña para los listados y las consultas GET.
+ * Se construye directamente desde las columnas en la consulta (SELECT new ...), así que no pasa por el
+ * contexto de persistencia: no hay snapshot para el dirty-checking ni la lista de enlaces de {@link Review}.
+ */
+public record ReviewView(Long id, Long productId, Long userId, Integer rating, String title, String comment,
+                         LocalDateTime reviewDate, String authorUsername, String authorFullName,
+                         LocalDateTime authorSnapshotAt) {
+
+    // Una reseña sin copia del autor
+    public ReviewView(Long id, Long productId, Long userId, Integer rating, String title, String comment,
+                      LocalDateTime reviewDate) {
+        this(id, productId, userId, rating, title, comment, reviewDate, null, null, null);
+    }
+
+    // Para los resultados de la búsqueda, que Hibernate Search devuelve como entidades
+    public static ReviewView of(Review review) {
+        return new ReviewView(review.getId(), review.getProductId(), review.getUserId(), review.getRating(),
+                review.getTitle(), review.getComment(), review.getReviewDate(),
+                review.getAuthorUsername(), review.getAuthorFullName(), review.getAuthorSnapshotAt());
+    }
+
+    // true si la reseña lleva copia del autor y se puede servir sin llamar al User Service
+    public boolean hasAuthorSnapshot() {
+        return authorSnapshotAt != null;
+    }
+
+    // El autor según la copia guardada, o null si no hay copia
+    public UserDto author() {
+        return hasAuthorSnapshot() ? new UserDto(userId, authorUsername, authorFullName) : null;
+    }
+}
@@ -0,0 +1,140 @@
+package com.programthis.review_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.AuthorSnapshotProperties;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.repository.AuthorSnapshotRow;
+import com.programthis.review_service.repository.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mantiene la copia del autor guardada en cada reseña (V7), con la que los listados se sirven sin llamar al User Service.
+ * La copia se toma al crear la reseña y se actualiza de dos formas: el User Service avisa de un cambio de perfil
+ * ({@link #applyProfile(UserDto)}) y un refresco en segundo plano vuelve a pedir por lotes los autores de las copias
+ * caducadas o que faltan. Cuando una copia cambia se incrementan las versiones de sus reseñas, así que los ETag cambian.
+ * Un aviso de cambio de perfil también olvida al usuario en la caché del cliente del User Service, para que las
+ * reseñas que aún se enriquecen al leerlas no sigan mostrando el perfil anterior.
+ */
+@Service
+public class AuthorSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorSnapshotService.class);
+
+    private static final long MAX_TRACKED_MISSING_USERS = 100_000;
+
+    private final ReviewRepository reviewRepository;
+    private final UserLookup userLookup;
+    private final ReviewVersionService versionService;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthorSnapshotProperties properties;
+
+    // Último autor revisado por el refresco; vuelve a 0 al llegar al final
+    private long lastRefreshedUserId;
+
+    // Autores que el User Service no devolvió en el refresco; se saltan hasta que caducan (missing-user-retry-after)
+    private final Cache<Long, Boolean> missingUsers;
+
+    @Autowired
+    public AuthorSnapshotService(ReviewRepository reviewRepository, UserLookup userLookup,
+                                 ReviewVersionService versionService, PlatformTransactionManager transactionManager,
+                                 AuthorSnapshotProperties properties) {
+        this.reviewRepository = reviewRepository;
+        this.userLookup = userLookup;
+        this.versionService = versionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.missingUsers = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_MISSING_USERS)
+                .expireAfterWrite(properties.getMissingUserRetryAfter())
+                .build();
+    }
+
+    /**
+     * Aplica el perfil que envía el User Service a todas las reseñas del usuario.
+     * @param user El usuario con sus datos actuales.
+     * @return El número de reseñas actualizadas.
+     * @throws IllegalArgumentException Si el usuario no tiene ID.
+     */
+    public int applyProfile(UserDto user) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("User id cannot be null.");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int updated = transactionTemplate.execute(status -> apply(user, now, now));
+        // Después del commit: una consulta que llegue ahora ya pide el perfil nuevo
+        userLookup.invalidate(user.getId());
+        missingUsers.invalidate(user.getId());
+        return updated;
+    }
+
+    // Ejecución periódica; reviews.author-snapshot.refresh-enabled=false la desactiva
+    @Scheduled(fixedDelayString = "${reviews.author-snapshot.refresh-interval:1m}")
+    public void scheduledRefresh() {
+        if (properties.isRefreshEnabled()) {
+            refreshStaleSnapshots();
+        }
+    }
+
+    /**
+     * Vuelve a pedir al User Service hasta reviews.author-snapshot.max-batches-per-run bloques de autores con alguna
+     * reseña sin copia o con una copia caducada, siguiendo por donde terminó la ejecución anterior.
+     * Cada autor se pide una vez y todas sus reseñas se reescriben con una sola sentencia, así que el límite por
+     * ejecución es de autores, no de reseñas: un autor con muchas reseñas no gasta el presupuesto de los demás.
+     * Los usuarios que no llegan (no existen o el User Service no responde) se dejan como estaban: sus reseñas se
+     * siguen enriqueciendo al leerlas y no se vuelven a pedir hasta pasado missing-user-retry-after.
+     * @return El número de reseñas actualizadas.
+     */
+    public synchronized int refreshStaleSnapshots() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(properties.getStaleAfter());
+        int updated = 0;
+        for (int batch = 0; batch < properties.getMaxBatchesPerRun(); batch++) {
+            List<Long> userIds = reviewRepository.findUserIdsWithStaleAuthorSnapshots(
+                    lastRefreshedUserId, staleBefore, Limit.of(Math.max(1, properties.getBatchSize())));
+            if (userIds.isEmpty()) {
+                lastRefreshedUserId = 0; // Vuelta completa: la siguiente ejecución empieza desde el principio
+                break;
+            }
+            lastRefreshedUserId = userIds.get(userIds.size() - 1);
+            List<Long> toFetch = userIds.stream().filter(userId -> missingUsers.getIfPresent(userId) == null).toList();
+            if (toFetch.isEmpty()) {
+                continue;
+            }
+
+            // La llamada remota va fuera de la transacción para no retener una conexión mientras se espera
+            Map<Long, UserDto> users = userLookup.getUsersByIds(toFetch);
+            toFetch.stream().filter(userId -> !users.containsKey(userId)).forEach(userId -> missingUsers.put(userId, Boolean.TRUE));
+            LocalDateTime snapshotAt = LocalDateTime.now();
+            updated += transactionTemplate.execute(status -> users.values().stream()
+                    .mapToInt(user -> apply(user, snapshotAt, staleBefore))
+                    .sum());
+        }
+        if (updated > 0) {
+            log.info("Refrescada la copia del autor de {} reseñas", updated);
+        }
+        return updated;
+    }
+
+    // Reescribe las copias anteriores a staleBefore e incrementa las versiones de las que cambian de contenido
+    private int apply(UserDto user, LocalDateTime snapshotAt, LocalDateTime staleBefore) {
+        List<AuthorSnapshotRow> changed = reviewRepository.findAuthorSnapshotsByUserId(user.getId()).stream()
+                .filter(row -> row.isOlderThan(staleBefore) && !row.matches(user))
+                .toList();
+        int updated = reviewRepository.updateAuthorSnapshot(user.getId(), user.getUsername(), user.getFullName(),
+                snapshotAt, staleBefore);
+        versionService.recordAuthorChanged(user.getId(), changed);
+        return updated;
+    }
+}
@@ -0,0 +1,247 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.programthis.review_service.config.IngestProperties;
+import com.programthis.review_service.dto.BulkIngestReport;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ProductUserPair;
+import com.programthis.review_service.repository.ReviewRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Carga masiva de reseñas (importaciones de marketplaces) en lotes JDBC, sin cargar todo el cuerpo en memoria
+@Service
+public class BulkReviewIngestService {
+
+    private final EntityManager entityManager;
+    private final ReviewRepository reviewRepository;
+    private final ProductRatingSummaryService ratingSummaryService;
+    private final ReviewVersionService versionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IngestProperties properties;
+
+    @Autowired
+    public BulkReviewIngestService(EntityManager entityManager, ReviewRepository reviewRepository,
+                                   ProductRatingSummaryService ratingSummaryService, ReviewVersionService versionService,
+                                   PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                   IngestProperties properties) {
+        this.entityManager = entityManager;
+        this.reviewRepository = reviewRepository;
+        this.ratingSummaryService = ratingSummaryService;
+        this.versionService = versionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Inserta las reseñas de un cuerpo NDJSON (una reseña JSON por línea).
+     * Cada lote de {@code reviews.ingest.batch-size} filas se confirma por separado: las filas no válidas
+     * (incluidas las líneas con JSON mal formado) se informan sin detener la carga.
+     * @param body El cuerpo de la petición.
+     * @return El resumen de la carga con los errores por línea.
+     * @throws IOException Si no se puede leer el cuerpo.
+     */
+    public BulkIngestReport ingestNdjson(InputStream body) throws IOException {
+        Ingestion ingestion = new Ingestion();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        long row = 0;
+        while ((line = reader.readLine()) != null) {
+            row++;
+            if (!line.isBlank()) {
+                String json = line;
+                ingestion.accept(row, () -> objectMapper.readValue(json, Review.class));
+            }
+        }
+        return ingestion.finish();
+    }
+
+    /**
+     * Inserta las reseñas de un array JSON, leyéndolo elemento a elemento.
+     * Los elementos no válidos se informan sin detener la carga; si el JSON deja de ser legible la carga
+     * se detiene ahí, con los lotes anteriores ya confirmados.
+     * @param body El cuerpo de la petición.
+     * @return El resumen de la carga con los errores por elemento.
+     * @throws IOException Si no se puede leer el cuerpo.
+     * @throws IllegalArgumentException Si el cuerpo no empieza por un array JSON.
+     */
+    public BulkIngestReport ingestJsonArray(InputStream body) throws IOException {
+        Ingestion ingestion = new Ingestion();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of reviews.");
+            }
+            long row = 0;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw new IllegalArgumentException("Unexpected end of JSON array.");
+                    }
+                    row++;
+                    JsonNode node = parser.readValueAsTree();
+                    ingestion.accept(row, () -> objectMapper.treeToValue(node, Review.class));
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                ingestion.abort("Unreadable JSON after row " + row + ": " + e.getMessage());
+            }
+        }
+        return ingestion.finish();
+    }
+
+    // Reglas de createReview más las restricciones de columna, para que una fila no haga fallar el INSERT de todo su lote
+    private static void validateRow(Review review) {
+        ReviewService.validateNewReview(review);
+        if (review.getProductId() == null || review.getUserId() == null) {
+            throw new IllegalArgumentException("Product ID and user ID are required.");
+        }
+        if (review.getTitle() == null || review.getTitle().isBlank()) {
+            throw new IllegalArgumentException("Title cannot be empty.");
+        }
+        if (review.getTitle().length() > 255) {
+            throw new IllegalArgumentException("Title cannot exceed 255 characters.");
+        }
+        if (review.getComment().length() > 500) {
+            throw new IllegalArgumentException("Comment cannot exceed 500 characters.");
+        }
+    }
+
+    // Inserta un lote en la transacción actual: un único batch JDBC para las reseñas y un upsert por producto en los resúmenes
+    // y en las versiones (ETag) de los listados
+    private void insert(List<Review> reviews) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(properties.getBatchSize());
+        reviews.forEach(entityManager::persist);
+        entityManager.flush();
+        ratingSummaryService.recordReviewsAdded(reviews);
+        versionService.recordReviewsAdded(reviews);
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        Review parse() throws JsonProcessingException;
+    }
+
+    private record PendingRow(long row, Review review) {
+    }
+
+    // Estado de una carga: el informe y las filas válidas que esperan a completar su lote
+    private final class Ingestion {
+
+        private final BulkIngestReport report = new BulkIngestReport();
+        private final List<PendingRow> pending = new ArrayList<>();
+
+        void accept(long row, RowParser parser) {
+            report.setReceived(report.getReceived() + 1);
+            Review review;
+            try {
+                review = parser.parse();
+                if (review == null) {
+                    throw new IllegalArgumentException("Row is empty.");
+                }
+                validateRow(review);
+            } catch (JsonProcessingException e) {
+                reject(row, "Malformed review: " + e.getOriginalMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                reject(row, e.getMessage());
+                return;
+            }
+            review.setId(null);
+            if (review.getReviewDate() == null) {
+                review.setReviewDate(LocalDateTime.now()); // Las importaciones pueden conservar su fecha original
+            }
+            pending.add(new PendingRow(row, review));
+            if (pending.size() >= properties.getBatchSize()) {
+                flush();
+            }
+        }
+
+        void abort(String reason) {
+            report.setAbortedReason(reason);
+        }
+
+        BulkIngestReport finish() {
+            flush();
+            return report;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<PendingRow> rows = withoutDuplicates(pending);
+            pending.clear();
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(rows.stream().map(PendingRow::review).toList()));
+                report.setInserted(report.getInserted() + rows.size());
+            } catch (DataAccessException | PersistenceException e) {
+                // Otro escritor pudo insertar un duplicado entretanto: se reintenta fila a fila para aislar la que falla
+                rows.forEach(this::insertAlone);
+            }
+        }
+
+        private void insertAlone(PendingRow row) {
+            row.review().setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(List.of(row.review())));
+                report.setInserted(report.getInserted() + 1);
+            } catch (DataAccessException | PersistenceException e) {
+                reject(row.row(), "Could not be stored: " + e.getMessage());
+            }
+        }
+
+        // Rechaza las filas cuyo par (producto, usuario) ya tiene reseña o se repite dentro del lote
+        private List<PendingRow> withoutDuplicates(List<PendingRow> rows) {
+            Set<Long> productIds = rows.stream().map(row -> row.review().getProductId()).collect(Collectors.toSet());
+            Set<Long> userIds = rows.stream().map(row -> row.review().getUserId()).collect(Collectors.toSet());
+            Set<String> taken = new HashSet<>();
+            for (ProductUserPair pair : reviewRepository.findExistingPairs(productIds, userIds)) {
+                taken.add(pair.getProductId() + ":" + pair.getUserId());
+            }
+
+            List<PendingRow> unique = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                if (taken.add(row.review().getProductId() + ":" + row.review().getUserId())) {
+                    unique.add(row);
+                } else {
+                    reject(row.row(), "User " + row.review().getUserId() + " already reviewed product " + row.review().getProductId() + ".");
+                }
+            }
+            return unique;
+        }
+
+        private void reject(long row, String message) {
+            report.setFailed(report.getFailed() + 1);
+            if (report.getErrors().size() < properties.getMaxReportedErrors()) {
+                report.getErrors().add(new BulkIngestReport.RowError(row, message));
+            }
+        }
+    }
+}
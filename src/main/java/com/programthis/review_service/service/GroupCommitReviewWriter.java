@@ -0,0 +1,266 @@
+package com.programthis.review_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.WriteQueueProperties;
+import com.programthis.review_service.dto.ReviewWriteStatus;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ReviewRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Altas de reseñas con confirmación en grupo (reviews.write-queue.enabled=true).
+ * Las reseñas validadas entran en una cola acotada y un único hilo escritor las confirma en lotes: una
+ * transacción (y un commit) por lote en lugar de uno por reseña, con un upsert por producto en los resúmenes
+ * y en las versiones. Si un lote falla (p. ej. una reseña duplicada) se reintenta reseña a reseña, así que
+ * cada alta se confirma o se rechaza por sí misma.
+ */
+@Service
+public class GroupCommitReviewWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitReviewWriter.class);
+
+    // Cada cuánto revisa el escritor si debe terminar cuando la cola está vacía
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final EntityManager entityManager;
+    private final ReviewRepository reviewRepository;
+    private final ProductRatingSummaryService ratingSummaryService;
+    private final ReviewVersionService versionService;
+    private final UserLookup userLookup;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteQueueProperties properties;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Cache<String, ReviewWriteStatus> statuses;
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean accepting;
+    private Thread writer;
+
+    @Autowired
+    public GroupCommitReviewWriter(EntityManager entityManager, ReviewRepository reviewRepository,
+                                   ProductRatingSummaryService ratingSummaryService, ReviewVersionService versionService,
+                                   UserLookup userLookup, PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry, WriteQueueProperties properties) {
+        this.entityManager = entityManager;
+        this.reviewRepository = reviewRepository;
+        this.ratingSummaryService = ratingSummaryService;
+        this.versionService = versionService;
+        this.userLookup = userLookup;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTrackedWrites())
+                .expireAfterWrite(properties.getTrackingRetention())
+                .build();
+        Gauge.builder("reviews.write.queue.size", queue, BlockingQueue::size)
+                .description("Reseñas aceptadas pendientes de confirmar")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("reviews.write.batch.size")
+                .description("Reseñas confirmadas por transacción")
+                .register(meterRegistry);
+    }
+
+    // Arranca el hilo escritor solo si el modo está activado
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled() && writer == null) {
+            accepting = true;
+            writer = Thread.ofPlatform().name("review-writer").start(this::run);
+        }
+    }
+
+    /**
+     * Deja de aceptar altas y espera a que el escritor confirme las que ya están en la cola.
+     * Spring lo llama antes de cerrar el pool de conexiones, del que depende este bean.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        accepting = false;
+        writer.join(properties.getShutdownTimeout().toMillis());
+        if (writer.isAlive()) {
+            log.warn("La cola de escritura no se vació en {}; quedan {} reseñas sin confirmar",
+                    properties.getShutdownTimeout(), queue.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Valida una reseña nueva y la encola para el siguiente lote.
+     * @param review La reseña a crear.
+     * @return El ID de seguimiento y un futuro que se completa con la reseña guardada cuando su transacción se
+     *         ha confirmado, o con el error (p. ej. DataIntegrityViolationException si ya existe) si se rechaza.
+     * @throws IllegalArgumentException Si la reseña no es válida.
+     * @throws RejectedExecutionException Si la cola está llena o la aplicación se está cerrando.
+     */
+    public PendingWrite submit(Review review) {
+        ReviewService.validateNewReview(review);
+        if (!accepting) {
+            throw new RejectedExecutionException("Review writer is not accepting writes.");
+        }
+        ReviewService.attachAuthorSnapshot(review, userLookup); // En el hilo de la petición, no en el del escritor
+        review.setId(null);
+        review.setReviewDate(LocalDateTime.now()); // Fecha de aceptación, no de confirmación
+        PendingWrite write = new PendingWrite(UUID.randomUUID().toString(), review, new CompletableFuture<>());
+        statuses.put(write.trackingId(), ReviewWriteStatus.pending(write.trackingId()));
+        if (!queue.offer(write)) {
+            statuses.invalidate(write.trackingId());
+            throw new RejectedExecutionException("Review write queue is full.");
+        }
+        // El cierre pudo empezar entre la comprobación y el offer: si el escritor no la ha tomado, se retira
+        if (!accepting && queue.remove(write)) {
+            statuses.invalidate(write.trackingId());
+            throw new RejectedExecutionException("Review writer is not accepting writes.");
+        }
+        return write;
+    }
+
+    /**
+     * @param trackingId El ID devuelto por {@link #submit(Review)}.
+     * @return El estado del alta, o vacío si el ID no existe o su estado ya caducó.
+     */
+    public Optional<ReviewWriteStatus> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(properties.getBatchSize());
+        // Al cerrar se sigue hasta vaciar la cola: ninguna reseña aceptada se pierde
+        while (accepting || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        PendingWrite left;
+        while ((left = queue.poll()) != null) { // Solo si el hilo se interrumpió
+            fail(left, new RejectedExecutionException("Review writer stopped before committing the review."));
+        }
+    }
+
+    // Completa el lote con lo que ya está en la cola y, si se ha configurado, espera un poco a que llegue más
+    private void fill(List<PendingWrite> batch) throws InterruptedException {
+        int batchSize = properties.getBatchSize();
+        queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + properties.getMaxWait().toNanos();
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        List<Review> reviews = batch.stream().map(PendingWrite::review).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(reviews));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+            } else {
+                batch.forEach(this::commitAlone);
+            }
+            return;
+        }
+        batchSizes.record(batch.size());
+        batch.forEach(this::complete);
+    }
+
+    private void commitAlone(PendingWrite write) {
+        write.review().setId(null); // La transacción del lote se deshizo: el ID asignado ya no existe
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(List.of(write.review())));
+        } catch (RuntimeException e) {
+            fail(write, e);
+            return;
+        }
+        batchSizes.record(1);
+        complete(write);
+    }
+
+    // Las mismas escrituras que ReviewService.createReview, agrupadas: un batch JDBC para las reseñas (los IDs salen
+    // del generador por tabla) y un upsert por producto y usuario. El flush por el repositorio traduce un duplicado
+    // a DataIntegrityViolationException antes de tocar los resúmenes.
+    private void insert(List<Review> reviews) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(properties.getBatchSize());
+        reviewRepository.saveAll(reviews);
+        reviewRepository.flush();
+        ratingSummaryService.recordReviewsAdded(reviews);
+        versionService.recordReviewsAdded(reviews);
+    }
+
+    private void complete(PendingWrite write) {
+        statuses.put(write.trackingId(), ReviewWriteStatus.committed(write.trackingId(), write.review().getId()));
+        write.committed().complete(write.review());
+    }
+
+    private void fail(PendingWrite write, RuntimeException e) {
+        Review review = write.review();
+        String error = e instanceof DataIntegrityViolationException
+                ? "User " + review.getUserId() + " already reviewed product " + review.getProductId() + "."
+                : e.getMessage();
+        if (!(e instanceof DataIntegrityViolationException)) {
+            log.warn("No se pudo guardar la reseña encolada {}: {}", write.trackingId(), e.getMessage());
+        }
+        statuses.put(write.trackingId(), ReviewWriteStatus.failed(write.trackingId(), error));
+        write.committed().completeExceptionally(e);
+    }
+
+    /**
+     * Un alta aceptada.
+     * @param trackingId El ID para consultar su estado.
+     * @param review La reseña; tras la confirmación lleva su ID.
+     * @param committed Se completa cuando la transacción de su lote se ha confirmado.
+     */
+    public record PendingWrite(String trackingId, Review review, CompletableFuture<Review> committed) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.programthis.review_service.config.IdempotencyProperties;
+import com.programthis.review_service.entity.IdempotencyRecord;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Altas idempotentes con la cabecera Idempotency-Key: un cliente que reintenta POST /api/reviews con la misma clave
+ * recibe la respuesta original sin que se vuelva a insertar ni a leer la tabla review. Las claves son de cada usuario
+ * (el autor de la reseña): la misma clave de dos usuarios no se mezcla.
+ * Las respuestas se guardan en una caché Caffeine acotada (reviews.idempotency.max-keys) que caduca tras
+ * reviews.idempotency.retention y, opcionalmente, en la tabla idempotency_key (V8). Cada clave guarda un futuro:
+ * la primera petición lo crea y ejecuta el alta, y los duplicados que llegan mientras tanto esperan a su resultado,
+ * así que varias peticiones concurrentes con la misma clave producen un solo INSERT. Con la tabla, la petición que
+ * toma la clave en memoria la reserva además en idempotency_key antes de crear la reseña: un duplicado que llega a
+ * otra instancia encuentra la reserva y espera a la respuesta igual que uno local.
+ * Solo se recuerdan respuestas definitivas (2xx y 4xx); tras un 5xx o un error el siguiente reintento vuelve a ejecutar.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long CLAIM_POLL_MILLIS = 50;
+
+    private final IdempotencyRecordRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    private final Cache<ScopedKey, CompletableFuture<StoredResponse>> responses;
+
+    private final Counter executed;
+    private final Counter replayed;
+    private final Counter mismatched;
+    private final Counter inProgress;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry, IdempotencyProperties properties) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper.copy().addMixIn(Review.class, StoredReviewMixIn.class);
+        this.properties = properties;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterWrite(properties.getRetention())
+                .build();
+        this.executed = requests(meterRegistry, "executed");
+        this.replayed = requests(meterRegistry, "replayed");
+        this.mismatched = requests(meterRegistry, "mismatch");
+        this.inProgress = requests(meterRegistry, "in_progress");
+    }
+
+    /**
+     * Ejecuta el alta una sola vez por usuario y clave.
+     * @param callerId El usuario que hace la petición; sin usuario el alta se ejecuta sin más (y la rechaza la validación).
+     * @param key El valor de la cabecera Idempotency-Key.
+     * @param request La reseña recibida; su contenido se compara con el de la petición original.
+     * @param create El alta, que devuelve el código HTTP y la reseña creada (si la hay).
+     * @return La respuesta del alta, la original si la clave ya se usó con la misma reseña (replayed = true),
+     *         422 si se usó con otra reseña o 409 si la petición original sigue en curso tras reviews.idempotency.in-flight-wait.
+     * @throws IllegalArgumentException Si la clave está vacía o es demasiado larga.
+     */
+    public IdempotentResponse execute(Long callerId, String key, Review request, Supplier<IdempotentResponse> create) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+        }
+        if (callerId == null) {
+            return create.get();
+        }
+        ScopedKey scopedKey = new ScopedKey(callerId, key);
+        String fingerprint = fingerprint(request);
+        while (true) {
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(scopedKey, mine);
+            if (existing == null) {
+                return executeOwned(scopedKey, fingerprint, mine, create);
+            }
+            try {
+                return replay(existing.get(properties.getInFlightWait().toMillis(), TimeUnit.MILLISECONDS), fingerprint);
+            } catch (TimeoutException e) {
+                inProgress.increment();
+                return IdempotentResponse.of(409);
+            } catch (ExecutionException e) {
+                // La petición original terminó sin respuesta definitiva y ya soltó la clave: este reintento la toma
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request.", e);
+            }
+        }
+    }
+
+    // Borra de la tabla las respuestas caducadas; sin almacenamiento persistente no hace nada
+    @Scheduled(fixedDelayString = "${reviews.idempotency.purge-interval:10m}")
+    public void purgeExpired() {
+        if (properties.isPersistent()) {
+            int deleted = transactionTemplate.execute(status -> repository.deleteExpired(LocalDateTime.now()));
+            if (deleted > 0) {
+                log.debug("Borradas {} claves de idempotencia caducadas", deleted);
+            }
+        }
+    }
+
+    private IdempotentResponse executeOwned(ScopedKey key, String fingerprint, CompletableFuture<StoredResponse> mine,
+                                            Supplier<IdempotentResponse> create) {
+        boolean claimed = false;
+        try {
+            if (properties.isPersistent()) {
+                Optional<StoredResponse> persisted = Optional.empty();
+                try {
+                    persisted = claim(key, fingerprint);
+                    claimed = persisted.isEmpty();
+                } catch (DataAccessException | TransactionException e) {
+                    // Sin tabla se sigue solo con la copia en memoria, como al guardar
+                    log.warn("No se pudo reservar la clave de idempotencia {}: {}", key.key(), e.getMessage());
+                }
+                if (persisted.isPresent()) {
+                    return answerFromTable(key, mine, persisted.get(), fingerprint);
+                }
+            }
+
+            IdempotentResponse response = create.get();
+            executed.increment();
+            if (!isFinal(response.status())) {
+                if (claimed) {
+                    releaseClaim(key);
+                }
+                release(key, mine, new IllegalStateException("Status " + response.status() + " is not stored."));
+                return response;
+            }
+            StoredResponse stored = new StoredResponse(fingerprint, response.status(), response.review());
+            if (properties.isPersistent()) {
+                persist(key, stored);
+            }
+            mine.complete(stored);
+            return response;
+        } catch (RuntimeException e) {
+            if (claimed) {
+                releaseClaim(key);
+            }
+            release(key, mine, e);
+            throw e;
+        }
+    }
+
+    // Respuesta a partir de la fila de otra petición con la misma clave (de otra instancia o anterior a un reinicio)
+    private IdempotentResponse answerFromTable(ScopedKey key, CompletableFuture<StoredResponse> mine, StoredResponse found,
+                                               String fingerprint) {
+        if (!found.isPending()) {
+            mine.complete(found); // La copia en memoria se rellena desde la tabla
+            return replay(found, fingerprint);
+        }
+        // La petición original sigue en curso en otra instancia: no hay nada que recordar en memoria
+        release(key, mine, new IllegalStateException("Original request still in progress."));
+        if (!found.fingerprint().equals(fingerprint)) {
+            return replay(found, fingerprint); // 422
+        }
+        inProgress.increment();
+        return IdempotentResponse.of(409);
+    }
+
+    // Se quita la clave antes de completar el futuro, para que los duplicados que despiertan puedan tomarla
+    private void release(ScopedKey key, CompletableFuture<StoredResponse> mine, Exception cause) {
+        responses.asMap().remove(key, mine);
+        mine.completeExceptionally(cause);
+    }
+
+    private IdempotentResponse replay(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            mismatched.increment();
+            return IdempotentResponse.of(422); // Misma clave con otra reseña: error del cliente, no se repite nada
+        }
+        replayed.increment();
+        return new IdempotentResponse(stored.status(), stored.review(), true);
+    }
+
+    /**
+     * Reserva la clave en la tabla antes de crear la reseña. Si ya la tiene otra petición (de otra instancia), espera
+     * a su respuesta hasta in-flight-wait.
+     * @return Vacío si la reserva es de esta petición; si no, la respuesta guardada o, si sigue en curso, la reserva
+     *         (status PENDING).
+     */
+    private Optional<StoredResponse> claim(ScopedKey key, String fingerprint) {
+        long deadline = System.nanoTime() + properties.getInFlightWait().toNanos();
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            int inserted = transactionTemplate.execute(status -> {
+                repository.deleteExpired(key.userId(), key.key(), now); // Respuesta caducada o reserva de una instancia caída
+                return repository.insertIfAbsent(key.userId(), key.key(), fingerprint, IdempotencyRecord.PENDING, null,
+                        now, now.plus(properties.getClaimTimeout()));
+            });
+            if (inserted > 0) {
+                return Optional.empty();
+            }
+            Optional<StoredResponse> existing = findPersisted(key);
+            if (existing.isPresent() && (!existing.get().isPending() || !existing.get().fingerprint().equals(fingerprint)
+                    || System.nanoTime() >= deadline)) {
+                return existing;
+            }
+            // Sigue en curso, o la petición original soltó la reserva y se vuelve a intentar tomarla
+            try {
+                Thread.sleep(CLAIM_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the original request.", e);
+            }
+        }
+    }
+
+    // Sin respuesta definitiva la reserva se borra; si falla, caduca sola tras claim-timeout
+    private void releaseClaim(ScopedKey key) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    repository.deletePending(key.userId(), key.key(), IdempotencyRecord.PENDING));
+        } catch (RuntimeException e) {
+            log.warn("No se pudo soltar la clave de idempotencia {}: {}", key.key(), e.getMessage());
+        }
+    }
+
+    private Optional<StoredResponse> findPersisted(ScopedKey key) {
+        return repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(key.userId(), key.key(), LocalDateTime.now()).map(record -> {
+            try {
+                Review review = record.getResponseBody() != null
+                        ? objectMapper.readValue(record.getResponseBody(), Review.class)
+                        : null;
+                return new StoredResponse(record.getFingerprint(), record.getStatus(), review);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Stored response for idempotency key is not readable.", e);
+            }
+        });
+    }
+
+    // Un fallo al guardar en la tabla no anula el alta ya confirmada: la respuesta queda al menos en memoria.
+    // Sin reserva previa (la tabla falló al reservar) se inserta la fila directamente.
+    private void persist(ScopedKey key, StoredResponse stored) {
+        try {
+            String body = stored.review() != null ? objectMapper.writeValueAsString(stored.review()) : null;
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(properties.getRetention());
+            transactionTemplate.executeWithoutResult(status -> {
+                if (repository.complete(key.userId(), key.key(), stored.status(), body, expiresAt, IdempotencyRecord.PENDING) == 0) {
+                    repository.insertIfAbsent(key.userId(), key.key(), stored.fingerprint(), stored.status(), body, now, expiresAt);
+                }
+            });
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("No se pudo guardar la clave de idempotencia {}: {}", key.key(), e.getMessage());
+        }
+    }
+
+    // 2xx y 4xx salvo los que invitan a reintentar (408, 429)
+    private static boolean isFinal(int status) {
+        return (status >= 200 && status < 300) || (status >= 400 && status < 500 && status != 408 && status != 429);
+    }
+
+    // SHA-256 de los campos que envía el cliente
+    static String fingerprint(Review review) {
+        String content = String.join("\u0000", Objects.toString(review.getProductId()), Objects.toString(review.getUserId()),
+                Objects.toString(review.getRating()), Objects.toString(review.getTitle()), Objects.toString(review.getComment()));
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toda JVM incluye SHA-256
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("reviews.idempotency.requests")
+                .description("Altas con Idempotency-Key por resultado")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Respuesta de un alta.
+     * @param status El código HTTP.
+     * @param review La reseña creada, o null si la respuesta no tiene cuerpo.
+     * @param replayed true si es la respuesta guardada de una petición anterior con la misma clave.
+     */
+    public record IdempotentResponse(int status, Review review, boolean replayed) {
+
+        public static IdempotentResponse of(int status) {
+            return new IdempotentResponse(status, null, false);
+        }
+    }
+
+    private record ScopedKey(Long userId, String key) {
+    }
+
+    private record StoredResponse(String fingerprint, int status, Review review) {
+
+        boolean isPending() {
+            return status == IdempotencyRecord.PENDING;
+        }
+    }
+
+    // La copia del autor es de solo lectura en la API, pero la respuesta guardada debe conservarla; los enlaces se omiten.
+    // Se anotan los setters porque Lombok copia el @JsonProperty(READ_ONLY) del campo a los que genera
+    @JsonIgnoreProperties({"links", "_links"})
+    private abstract static class StoredReviewMixIn {
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract void setAuthorUsername(String authorUsername);
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract void setAuthorFullName(String authorFullName);
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        abstract void setAuthorSnapshotAt(LocalDateTime authorSnapshotAt);
+    }
+}
@@ -0,0 +1,183 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.entity.ProductRatingSummary;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ProductRatingSummaryRepository;
+import com.programthis.review_service.repository.RatingCount;
+import com.programthis.review_service.repository.ReviewRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Mantiene el resumen de valoraciones por producto (total, media e histograma) de forma incremental
+@Service
+public class ProductRatingSummaryService {
+
+    private final ProductRatingSummaryRepository summaryRepository;
+    private final ReviewRepository reviewRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ProductRatingSummaryService(ProductRatingSummaryRepository summaryRepository, ReviewRepository reviewRepository,
+                                       PlatformTransactionManager transactionManager) {
+        this.summaryRepository = summaryRepository;
+        this.reviewRepository = reviewRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Registra una reseña nueva. Se ejecuta dentro de la transacción de quien la crea.
+    @Transactional
+    public void recordReviewAdded(Long productId, Integer rating) {
+        if (isValidRating(rating)) {
+            applyDelta(productId, 1, rating, histogramDelta(rating, 1));
+        }
+    }
+
+    // Registra un lote de reseñas nuevas con una sola actualización por producto (carga masiva)
+    @Transactional
+    public void recordReviewsAdded(Collection<Review> reviews) {
+        Map<Long, ProductRatingSummary> deltas = new HashMap<>();
+        for (Review review : reviews) {
+            if (isValidRating(review.getRating())) {
+                deltas.computeIfAbsent(review.getProductId(), this::emptySummary).add(review.getRating(), 1);
+            }
+        }
+        deltas.values().forEach(delta -> summaryRepository.applyDelta(delta.getProductId(), delta.getReviewCount(),
+                delta.getRatingSum(), delta.getOneStarCount(), delta.getTwoStarCount(), delta.getThreeStarCount(),
+                delta.getFourStarCount(), delta.getFiveStarCount(), LocalDateTime.now()));
+    }
+
+    // Registra una reseña eliminada. Se ejecuta dentro de la transacción de quien la elimina.
+    @Transactional
+    public void recordReviewRemoved(Long productId, Integer rating) {
+        if (isValidRating(rating)) {
+            applyDelta(productId, -1, -rating, histogramDelta(rating, -1));
+        }
+    }
+
+    // Registra el cambio de puntuación de una reseña existente
+    @Transactional
+    public void recordRatingChanged(Long productId, Integer previousRating, Integer newRating) {
+        if (Objects.equals(previousRating, newRating)) {
+            return;
+        }
+        if (!isValidRating(previousRating)) {
+            recordReviewAdded(productId, newRating); // La reseña no contaba en el resumen (datos antiguos)
+            return;
+        }
+        if (!isValidRating(newRating)) {
+            recordReviewRemoved(productId, previousRating);
+            return;
+        }
+        long[] histogram = histogramDelta(previousRating, -1);
+        histogram[newRating - 1] += 1;
+        applyDelta(productId, 0, newRating - previousRating, histogram);
+    }
+
+    /**
+     * Obtiene el resumen de valoraciones de un producto con una sola lectura por clave primaria.
+     * @param productId El ID del producto.
+     * @return El resumen, o vacío si el producto nunca ha tenido reseñas.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ProductRatingSummaryDto> getSummary(Long productId) {
+        return summaryRepository.findById(productId)
+                .map(ProductRatingSummaryDto::new);
+    }
+
+    /**
+     * Obtiene los resúmenes de varios productos con una sola consulta.
+     * @param productIds Los IDs de los productos.
+     * @return Los resúmenes por ID de producto; los productos sin reseñas no aparecen.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, ProductRatingSummaryDto> getSummaries(Collection<Long> productIds) {
+        Map<Long, ProductRatingSummaryDto> summaries = new HashMap<>();
+        summaryRepository.findAllById(productIds)
+                .forEach(summary -> summaries.put(summary.getProductId(), new ProductRatingSummaryDto(summary)));
+        return summaries;
+    }
+
+    /**
+     * Recalcula el resumen de un producto a partir de la tabla de reseñas.
+     * Antes de contar bloquea la fila del resumen (creándola si falta) con un upsert vacío: una escritura que
+     * confirme antes del bloqueo ya está en el recuento, y una que llegue después espera y suma su incremento
+     * al valor recalculado, así que no se pierde ni se cuenta dos veces ninguna.
+     * @param productId El ID del producto.
+     * @return El resumen recalculado, o vacío si el producto no tiene reseñas.
+     */
+    @Transactional
+    public Optional<ProductRatingSummaryDto> rebuild(Long productId) {
+        applyDelta(productId, 0, 0, new long[5]);
+        List<RatingCount> counts = reviewRepository.countByRatingForProduct(productId);
+        if (counts.isEmpty()) {
+            summaryRepository.deleteById(productId);
+            return Optional.empty();
+        }
+        ProductRatingSummary summary = emptySummary(productId);
+        counts.forEach(count -> summary.add(count.getRating(), count.getReviewCount()));
+        return Optional.of(new ProductRatingSummaryDto(summaryRepository.save(summary)));
+    }
+
+    /**
+     * Recalcula todos los resúmenes desde la tabla de reseñas, p. ej. tras una carga masiva o para corregir desvíos.
+     * Cada producto se reconstruye con {@link #rebuild(Long)} en su propia transacción corta, así que las altas,
+     * cambios y borrados que se confirman mientras corre quedan reflejados y solo esperan a su producto.
+     * @return El número de productos con resumen tras la reconstrucción.
+     */
+    public int rebuildAll() {
+        // Los productos con reseñas y los que tienen un resumen que quizá sobra
+        Set<Long> productIds = new TreeSet<>(reviewRepository.findDistinctProductIds());
+        productIds.addAll(summaryRepository.findAllProductIds());
+        int rebuilt = 0;
+        for (Long productId : productIds) {
+            if (transactionTemplate.execute(status -> rebuild(productId)).isPresent()) {
+                rebuilt++;
+            }
+        }
+        return rebuilt;
+    }
+
+    // Reconstrucción periódica opcional; desactivada por defecto (reviews.summary.rebuild-cron=-)
+    @Scheduled(cron = "${reviews.summary.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        rebuildAll();
+    }
+
+    private void applyDelta(Long productId, long countDelta, long sumDelta, long[] histogram) {
+        summaryRepository.applyDelta(productId, countDelta, sumDelta,
+                histogram[0], histogram[1], histogram[2], histogram[3], histogram[4], LocalDateTime.now());
+    }
+
+    private ProductRatingSummary emptySummary(Long productId) {
+        return ProductRatingSummary.builder()
+                .productId(productId)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static long[] histogramDelta(int rating, long delta) {
+        long[] histogram = new long[5];
+        histogram[rating - 1] = delta;
+        return histogram;
+    }
+
+    private static boolean isValidRating(Integer rating) {
+        return rating != null && rating >= 1 && rating <= 5;
+    }
+}
@@ -0,0 +1,87 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.client.RemoteCallCounter;
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.ReadYourWritesInterceptor;
+import com.programthis.review_service.dto.ReviewPage;
+import com.programthis.review_service.repository.ReviewCursor;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.repository.ReviewView;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Variante reactiva de las lecturas de ReviewService para llamadores que no deben bloquear su hilo.
+ * JPA sigue siendo bloqueante: la consulta va en una transacción de solo lectura en un hilo virtual, que se libera
+ * en cuanto termina. El enriquecimiento con el User Service se compone después con {@link UserLookup#lookupUsers},
+ * fuera de la transacción, así que la conexión a la base de datos no espera a la red.
+ * Con user-service.client=webclient la espera del User Service no ocupa ningún hilo.
+ * La consulta hereda del hilo que se suscribe (el de la petición) el enrutado a réplicas y el contador de llamadas remotas.
+ * Lo usa el listado ligero de producto (GET /api/reviews/product/{id} con Accept ligero), que devuelve un Mono.
+ */
+@Service
+public class ReactiveReviewService {
+
+    private final ReviewRepository reviewRepository;
+    private final UserLookup userLookup;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService queryExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Scheduler queryScheduler = Schedulers.fromExecutor(
+            ReadYourWritesInterceptor.propagating(RemoteCallCounter.propagating(queryExecutor)));
+
+    @Autowired
+    public ReactiveReviewService(ReviewRepository reviewRepository, UserLookup userLookup,
+                                 PlatformTransactionManager transactionManager) {
+        this.reviewRepository = reviewRepository;
+        this.userLookup = userLookup;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true); // Como @Transactional(readOnly = true): va a las réplicas si las hay
+    }
+
+    /**
+     * Igual que {@link ReviewService#getReviewsByProductId(Long, ReviewSortOrder, String, int)}.
+     * @return La página; termina con IllegalArgumentException si el cursor no es válido.
+     */
+    public Mono<ReviewPage> getReviewsByProductId(Long productId, ReviewSortOrder sort, String cursor, int size) {
+        return query(() -> reviewRepository.findPageByProductId(productId, sort, ReviewCursor.decode(cursor), size + 1))
+                .flatMap(reviews -> toPage(reviews, size));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        queryScheduler.dispose();
+        queryExecutor.shutdownNow();
+    }
+
+    private Mono<ReviewPage> toPage(List<ReviewView> reviews, int size) {
+        List<ReviewView> pageReviews = ReviewService.pageRows(reviews, size);
+        String nextCursor = ReviewService.nextCursor(reviews, size);
+        Set<Long> userIds = ReviewService.userIdsOf(pageReviews);
+        if (userIds.isEmpty()) { // Todas llevan copia del autor (o la página está vacía)
+            return Mono.just(new ReviewPage(ReviewService.withUsers(pageReviews, Map.of()), nextCursor));
+        }
+        // Una sola consulta por lote al User Service, igual que la versión bloqueante
+        return userLookup.lookupUsers(userIds)
+                .map(users -> new ReviewPage(ReviewService.withUsers(pageReviews, users), nextCursor));
+    }
+
+    // Ejecuta la consulta en una transacción de solo lectura en un hilo virtual
+    private <T> Mono<T> query(Supplier<T> query) {
+        return Mono.fromCallable(() -> readOnlyTransaction.execute(status -> query.get()))
+                .subscribeOn(queryScheduler);
+    }
+}
@@ -0,0 +1,100 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.ExportProperties;
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.repository.ReviewCursor;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Exporta reseñas en NDJSON leyendo de la base de datos por bloques: la memoria usada no depende del tamaño del resultado
+// y ninguna transacción dura más que la lectura de un bloque
+@Service
+public class ReviewExportService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final ReviewRepository reviewRepository;
+    private final UserLookup userServiceClient;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public ReviewExportService(ReviewRepository reviewRepository, UserLookup userServiceClient,
+                               ObjectMapper objectMapper, ExportProperties properties,
+                               PlatformTransactionManager transactionManager) {
+        this.reviewRepository = reviewRepository;
+        this.userServiceClient = userServiceClient;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true); // Como @Transactional(readOnly = true): va a las réplicas si las hay
+    }
+
+    /**
+     * Escribe las reseñas que cumplen los filtros como NDJSON (una reseña por línea), ordenadas por fecha.
+     * Se procesan en bloques de {@code reviews.export.chunk-size} con paginación por cursor: cada bloque se lee
+     * en su propia transacción corta de solo lectura, y el enriquecimiento (llamada remota) y la escritura al
+     * cliente se hacen fuera de ella, así que un cliente lento o un User Service lento no retienen una conexión.
+     * Como cada bloque es una lectura distinta, las reseñas creadas durante la exportación pueden aparecer si su
+     * posición es posterior a la del bloque en curso; ninguna se repite ni se salta.
+     * @param productId Si no es null, solo reseñas de este producto.
+     * @param from Si no es null, solo reseñas con fecha igual o posterior.
+     * @param to Si no es null, solo reseñas con fecha anterior.
+     * @param enrich Si es true, añade el nombre de usuario con una consulta de lote al User Service por bloque.
+     * @param out El destino; no se cierra.
+     * @return El número de reseñas escritas.
+     * @throws IOException Si falla la escritura (p. ej. el cliente cerró la conexión).
+     */
+    public long exportNdjson(Long productId, LocalDateTime from, LocalDateTime to, boolean enrich, OutputStream out) throws IOException {
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        long written = 0;
+        ReviewCursor after = null;
+        List<ReviewView> chunk;
+        do {
+            ReviewCursor position = after;
+            chunk = readOnlyTransaction.execute(status ->
+                    reviewRepository.findExportChunk(productId, from, to, position, chunkSize));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            written += writeChunk(chunk, enrich, out);
+            after = ReviewCursor.of(chunk.get(chunk.size() - 1));
+        } while (chunk.size() == chunkSize); // Un bloque incompleto es el último: no hace falta otra consulta
+        out.flush();
+        return written;
+    }
+
+    private int writeChunk(List<ReviewView> chunk, boolean enrich, OutputStream out) throws IOException {
+        List<ReviewResponseDto> dtos = enrich ? enrich(chunk) : chunk.stream()
+                .map(review -> new ReviewResponseDto(review.id(), review.productId(), review.userId(), review.rating(),
+                        review.title(), review.comment(), review.reviewDate(), null, null))
+                .toList();
+        for (ReviewResponseDto dto : dtos) {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write(NEWLINE);
+        }
+        return chunk.size();
+    }
+
+    // Las reseñas con copia del autor no necesitan al User Service; las demás se piden en una consulta de lote
+    private List<ReviewResponseDto> enrich(List<ReviewView> chunk) {
+        Set<Long> userIds = ReviewService.userIdsOf(chunk);
+        Map<Long, UserDto> users = userIds.isEmpty() ? Map.of() : userServiceClient.getUsersByIds(userIds);
+        return ReviewService.withUsers(chunk, users);
+    }
+}
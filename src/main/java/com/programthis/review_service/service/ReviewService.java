@@ -1,93 +1,288 @@
 package com.programthis.review_service.service;
 
 import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ReviewCursor;
 import com.programthis.review_service.repository.ReviewRepository;
-import com.programthis.review_service.client.UserServiceClient; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.repository.ReviewSearchHits;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.repository.ReviewView;
+import com.programthis.review_service.client.UserLookup; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.dto.ProductReviewsOverviewDto;
+import com.programthis.review_service.dto.ReviewPage;
 import com.programthis.review_service.dto.ReviewResponseDto; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.dto.ReviewSearchPage;
 import com.programthis.review_service.dto.UserDto; // ¡NUEVA ADICIÓN!
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors; // ¡NUEVA ADICIÓN!
 
 @Service // Marca esta clase como un componente de servicio de Spring
 public class ReviewService {
 
     private final ReviewRepository reviewRepository; // Hacerlo final
-    private final UserServiceClient userServiceClient; // ¡NUEVA ADICIÓN! Hacerlo final
+    private final UserLookup userServiceClient; // ¡NUEVA ADICIÓN! Hacerlo final
+    private final ProductRatingSummaryService ratingSummaryService;
+    private final ReviewVersionService versionService;
+    private final TransactionTemplate transactionTemplate;
 
     // ¡MODIFICACIÓN CLAVE! Constructor para inyectar UserServiceClient
     @Autowired
-    public ReviewService(ReviewRepository reviewRepository, UserServiceClient userServiceClient) {
+    public ReviewService(ReviewRepository reviewRepository, UserLookup userServiceClient,
+                         ProductRatingSummaryService ratingSummaryService, ReviewVersionService versionService,
+                         PlatformTransactionManager transactionManager) {
         this.reviewRepository = reviewRepository;
         this.userServiceClient = userServiceClient; // ¡NUEVA ADICIÓN!
+        this.ratingSummaryService = ratingSummaryService;
+        this.versionService = versionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    // Método para crear una nueva reseña
+    // Método para crear una nueva reseña. La copia del autor se pide antes de abrir la transacción, para no retener
+    // una conexión mientras se espera al User Service; el resumen del producto y las versiones (ETag) se actualizan
+    // en la misma transacción que el INSERT.
     public Review createReview(Review review) {
-        if (review.getRating() == null || review.getRating() < 1 || review.getRating() > 5) {
-            throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        validateNewReview(review);
+
+        attachAuthorSnapshot(review, userServiceClient);
+        return transactionTemplate.execute(status -> {
+            review.setReviewDate(LocalDateTime.now());
+            Review savedReview = reviewRepository.save(review);
+            ratingSummaryService.recordReviewAdded(savedReview.getProductId(), savedReview.getRating());
+            versionService.recordReviewChanged(savedReview.getId(), savedReview.getProductId(), savedReview.getUserId());
+            return savedReview;
+        });
+    }
+
+    // Las lecturas usan proyecciones (ReviewView) en transacciones de solo lectura: Spring marca la sesión de
+    // Hibernate como read-only con FlushMode.MANUAL, así que no hay dirty-checking ni flush al terminar.
+    // Las escrituras siguen trabajando con la entidad Review.
+
+    /**
+     * Obtiene una página de reseñas de un producto con paginación por cursor, enriquecidas con datos de usuario.
+     * @param productId El ID del producto.
+     * @param sort El orden de la página.
+     * @param cursor El cursor devuelto en la página anterior, o null para la primera página.
+     * @param size El número de reseñas por página.
+     * @return La página con sus reseñas y el cursor de la siguiente (null si no hay más).
+     * @throws IllegalArgumentException Si el cursor no es válido.
+     */
+    @Transactional(readOnly = true)
+    public ReviewPage getReviewsByProductId(Long productId, ReviewSortOrder sort, String cursor, int size) {
+        // Pedimos una fila de más para saber si existe una página siguiente sin hacer un COUNT
+        List<ReviewView> reviews = reviewRepository.findPageByProductId(productId, sort, ReviewCursor.decode(cursor), size + 1);
+        return toPage(reviews, size);
+    }
+
+    /**
+     * Obtiene una página de reseñas de un usuario con paginación por cursor, enriquecidas con datos de usuario.
+     * @param userId El ID del usuario.
+     * @param sort El orden de la página.
+     * @param cursor El cursor devuelto en la página anterior, o null para la primera página.
+     * @param size El número de reseñas por página.
+     * @return La página con sus reseñas y el cursor de la siguiente (null si no hay más).
+     * @throws IllegalArgumentException Si el cursor no es válido.
+     */
+    @Transactional(readOnly = true)
+    public ReviewPage getReviewsByUserId(Long userId, ReviewSortOrder sort, String cursor, int size) {
+        List<ReviewView> reviews = reviewRepository.findPageByUserId(userId, sort, ReviewCursor.decode(cursor), size + 1);
+        return toPage(reviews, size);
+    }
+
+    /**
+     * Obtiene el total, la media y las reseñas más recientes de varios productos, p. ej. para una página de categoría.
+     * Hace una consulta para las reseñas (ROW_NUMBER() por producto), otra para los resúmenes y una sola consulta
+     * por lote al User Service para los autores de todos los productos.
+     * @param productIds Los IDs de los productos; los repetidos se ignoran.
+     * @param latest El número de reseñas recientes por producto.
+     * @return Un resumen por producto, en el orden pedido (también los que no tienen reseñas).
+     */
+    @Transactional(readOnly = true)
+    public List<ProductReviewsOverviewDto> getProductOverviews(Collection<Long> productIds, int latest) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        Map<Long, ProductRatingSummaryDto> summaries = ratingSummaryService.getSummaries(ids);
+        Map<Long, List<ReviewResponseDto>> reviewsByProduct = enrichReviewsWithUserData(
+                reviewRepository.findLatestByProductIds(ids, latest)).stream()
+                .collect(Collectors.groupingBy(ReviewResponseDto::getProductId));
+
+        List<ProductReviewsOverviewDto> overviews = new ArrayList<>(ids.size());
+        for (Long productId : ids) {
+            ProductRatingSummaryDto summary = summaries.get(productId);
+            overviews.add(new ProductReviewsOverviewDto(productId,
+                    summary != null ? summary.getReviewCount() : 0,
+                    summary != null ? summary.getAverageRating() : 0.0,
+                    reviewsByProduct.getOrDefault(productId, List.of())));
         }
-        if (review.getComment() == null || review.getComment().trim().isEmpty()) {
-            throw new IllegalArgumentException("Comment cannot be empty.");
+        return overviews;
+    }
+
+    /**
+     * Busca reseñas por texto en el título y el comentario, ordenadas por relevancia y enriquecidas con datos de usuario.
+     * @param query El texto a buscar.
+     * @param productId Si no es null, solo reseñas de este producto.
+     * @param minRating Si no es null, solo reseñas con una puntuación igual o superior.
+     * @param page El número de página, empezando en 0.
+     * @param size El número de reseñas por página.
+     * @return La página de resultados con el total de coincidencias.
+     * @throws IllegalArgumentException Si el texto está vacío, la puntuación no está entre 1 y 5 o la página es negativa.
+     */
+    @Transactional(readOnly = true)
+    public ReviewSearchPage searchReviews(String query, Long productId, Integer minRating, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query cannot be empty.");
+        }
+        if (minRating != null) {
+            validateRating(minRating);
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("Page cannot be negative.");
         }
+        ReviewSearchHits hits = reviewRepository.search(query.trim(), productId, minRating, page * size, size);
+        // Hibernate Search devuelve entidades, cargadas como read-only por la transacción de solo lectura
+        List<ReviewView> reviews = hits.reviews().stream().map(ReviewView::of).toList();
+        return new ReviewSearchPage(enrichReviewsWithUserData(reviews), page, size, hits.totalHits());
+    }
 
-        review.setReviewDate(LocalDateTime.now());
-        return reviewRepository.save(review);
+    /**
+     * Reconstruye el índice de búsqueda a partir de la tabla de reseñas.
+     * Las altas, cambios y borrados normales ya lo actualizan de forma incremental.
+     * @throws InterruptedException Si el hilo se interrumpe mientras se reindexa.
+     */
+    public void rebuildSearchIndex() throws InterruptedException {
+        reviewRepository.rebuildSearchIndex();
     }
 
-    // Método para obtener todas las reseñas de un producto específico, enriquecidas con datos de usuario
-    public List<ReviewResponseDto> getReviewsByProductId(Long productId) { // ¡MODIFICACIÓN CLAVE del tipo de retorno!
-        List<Review> reviews = reviewRepository.findByProductId(productId);
-        return reviews.stream()
-                .map(this::enrichReviewWithUserData) // ¡NUEVA ADICIÓN! Enriquecer cada reseña
-                .collect(Collectors.toList());
+    private ReviewPage toPage(List<ReviewView> reviews, int size) {
+        List<ReviewView> pageReviews = pageRows(reviews, size);
+        return new ReviewPage(enrichReviewsWithUserData(pageReviews), nextCursor(reviews, size));
     }
 
-    // Método para obtener todas las reseñas hechas por un usuario específico, enriquecidas con datos de usuario
-    public List<ReviewResponseDto> getReviewsByUserId(Long userId) { // ¡MODIFICACIÓN CLAVE del tipo de retorno!
-        List<Review> reviews = reviewRepository.findByUserId(userId);
-        return reviews.stream()
-                .map(this::enrichReviewWithUserData) // ¡NUEVA ADICIÓN! Enriquecer cada reseña
-                .collect(Collectors.toList());
+    // Las filas de la página, sin la fila de más que se pide para saber si hay otra
+    static List<ReviewView> pageRows(List<ReviewView> reviews, int size) {
+        return reviews.size() > size ? reviews.subList(0, size) : reviews;
+    }
+
+    // El cursor de la página siguiente, o null si no se leyó la fila de más
+    static String nextCursor(List<ReviewView> reviews, int size) {
+        return reviews.size() > size ? ReviewCursor.of(reviews.get(size - 1)).encode() : null;
     }
 
-    // Método para obtener una reseña por su ID, enriquecida con datos de usuario
+    // Método para obtener una reseña por su ID, con la copia del autor o enriquecida con datos de usuario
+    @Transactional(readOnly = true)
     public Optional<ReviewResponseDto> getReviewById(Long id) { // ¡MODIFICACIÓN CLAVE del tipo de retorno!
-        return reviewRepository.findById(id)
-                .map(this::enrichReviewWithUserData); // ¡NUEVA ADICIÓN! Enriquecer la reseña si está presente
+        return reviewRepository.findViewById(id)
+                .map(review -> review.hasAuthorSnapshot()
+                        ? new ReviewResponseDto(review, review.author())
+                        : enrichReviewWithUserData(review)); // Reseñas sin copia del autor
     }
 
-    // Método auxiliar para enriquecer una Review con datos de UserDto
-    private ReviewResponseDto enrichReviewWithUserData(Review review) { // ¡NUEVA ADICIÓN!
-        Optional<UserDto> userDtoOptional = userServiceClient.getUserById(review.getUserId());
+    // Método auxiliar para enriquecer una Review con datos de UserDto. Solo para las reseñas sin copia del autor.
+    private ReviewResponseDto enrichReviewWithUserData(ReviewView review) { // ¡NUEVA ADICIÓN!
+        Optional<UserDto> userDtoOptional = userServiceClient.getUserById(review.userId());
         UserDto userDto = userDtoOptional.orElse(null); // Si el usuario no se encuentra, pasamos null
 
         return new ReviewResponseDto(review, userDto);
     }
 
-    // Método para eliminar una reseña
-    public boolean deleteReview(Long id) {
-        if (reviewRepository.existsById(id)) {
-            reviewRepository.deleteById(id);
-            return true;
+    // Método auxiliar para enriquecer una lista de Reviews: las que llevan copia del autor se sirven con ella; para
+    // las demás deduplica los userId, los pide todos juntos al User Service y une los resultados en memoria
+    private List<ReviewResponseDto> enrichReviewsWithUserData(List<ReviewView> reviews) {
+        if (reviews.isEmpty()) {
+            return new ArrayList<>();
         }
-        return false;
+        Set<Long> userIds = userIdsOf(reviews);
+        return withUsers(reviews, userIds.isEmpty() ? Map.of() : userServiceClient.getUsersByIds(userIds));
+    }
+
+    // Los autores distintos de las reseñas sin copia del autor, para una sola consulta por lote
+    // (también la usan ReactiveReviewService y ReviewExportService)
+    static Set<Long> userIdsOf(List<ReviewView> reviews) {
+        return reviews.stream()
+                .filter(review -> !review.hasAuthorSnapshot())
+                .map(ReviewView::userId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    // Une cada reseña con su autor: la copia guardada o, si no la tiene, el usuario pedido; los que no llegaron
+    // se muestran como desconocidos
+    static List<ReviewResponseDto> withUsers(List<ReviewView> reviews, Map<Long, UserDto> users) {
+        return reviews.stream()
+                .map(review -> new ReviewResponseDto(review,
+                        review.hasAuthorSnapshot() ? review.author() : users.get(review.userId())))
+                .collect(Collectors.toList());
+    }
+
+    // Método para eliminar una reseña. Se carga primero para descontar su puntuación del resumen del producto.
+    @Transactional
+    public boolean deleteReview(Long id) {
+        return reviewRepository.findById(id)
+                .map(review -> {
+                    reviewRepository.delete(review);
+                    ratingSummaryService.recordReviewRemoved(review.getProductId(), review.getRating());
+                    versionService.recordReviewChanged(review.getId(), review.getProductId(), review.getUserId());
+                    return true;
+                })
+                .orElse(false);
     }
 
     // Opcional: para actualizar una reseña (si se permite)
+    @Transactional
     public Review updateReview(Long id, Review updatedReview) {
         return reviewRepository.findById(id)
                 .map(review -> {
+                    validateRating(updatedReview.getRating());
+                    Integer previousRating = review.getRating();
                     review.setRating(updatedReview.getRating());
                     review.setComment(updatedReview.getComment());
                     review.setTitle(updatedReview.getTitle());
-                    return reviewRepository.save(review);
+                    Review savedReview = reviewRepository.save(review);
+                    ratingSummaryService.recordRatingChanged(savedReview.getProductId(), previousRating, savedReview.getRating());
+                    versionService.recordReviewChanged(savedReview.getId(), savedReview.getProductId(), savedReview.getUserId());
+                    return savedReview;
                 })
                 .orElseThrow(() -> new RuntimeException("Review not found with id " + id));
     }
+
+    // Reglas de una reseña nueva, compartidas con la carga masiva (BulkReviewIngestService)
+    static void validateNewReview(Review review) {
+        validateRating(review.getRating());
+        if (review.getComment() == null || review.getComment().trim().isEmpty()) {
+            throw new IllegalArgumentException("Comment cannot be empty.");
+        }
+    }
+
+    /**
+     * Guarda en una reseña nueva la copia de su autor (V7), con lo que se sirve sin llamar al User Service.
+     * Se llama antes de abrir la transacción del alta (createReview y GroupCommitReviewWriter.submit). La consulta suele
+     * resolverse en la caché del cliente y, si no, espera como mucho user-service.fan-out.deadline (los dos clientes,
+     * UserServiceClient y WebClientUserServiceClient, acotan así getUserById).
+     * Si el usuario no llega la reseña se guarda sin copia: se enriquece al leerla hasta que AuthorSnapshotService la rellena.
+     */
+    static void attachAuthorSnapshot(Review review, UserLookup users) {
+        Optional<UserDto> author = review.getUserId() != null ? users.getUserById(review.getUserId()) : Optional.empty();
+        review.setAuthorUsername(author.map(UserDto::getUsername).orElse(null));
+        review.setAuthorFullName(author.map(UserDto::getFullName).orElse(null));
+        review.setAuthorSnapshotAt(author.isPresent() ? LocalDateTime.now() : null);
+    }
+
+    private static void validateRating(Integer rating) {
+        if (rating == null || rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5.");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.AuthorSnapshotRow;
+import com.programthis.review_service.repository.ReviewVersionRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Objects;
+
+// Mantiene las versiones que usan los GET condicionales. Cada escritura de reseñas incrementa, en su misma
+// transacción, la versión de la reseña, del listado de su producto y del listado de su usuario. Las fechas se
+// guardan en UTC.
+@Service
+public class ReviewVersionService {
+
+    private final ReviewVersionRepository versionRepository;
+
+    @Autowired
+    public ReviewVersionService(ReviewVersionRepository versionRepository) {
+        this.versionRepository = versionRepository;
+    }
+
+    // Registra el alta, cambio o borrado de una reseña. Se ejecuta dentro de la transacción de quien escribe.
+    @Transactional
+    public void recordReviewChanged(Long reviewId, Long productId, Long userId) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        bump(ReviewVersion.REVIEW, reviewId, now);
+        bump(ReviewVersion.PRODUCT, productId, now);
+        bump(ReviewVersion.USER, userId, now);
+    }
+
+    // Registra un lote de reseñas nuevas (carga masiva) con una actualización por producto y por usuario.
+    // Las reseñas nuevas no tenían versión propia: nadie puede tener un ETag suyo.
+    @Transactional
+    public void recordReviewsAdded(Collection<Review> reviews) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        reviews.stream().map(Review::getProductId).filter(Objects::nonNull).distinct()
+                .forEach(productId -> bump(ReviewVersion.PRODUCT, productId, now));
+        reviews.stream().map(Review::getUserId).filter(Objects::nonNull).distinct()
+                .forEach(userId -> bump(ReviewVersion.USER, userId, now));
+    }
+
+    // Registra que cambió la copia del autor de estas reseñas de un usuario: cambian la reseña, el listado de su
+    // producto y el del usuario, igual que con una edición.
+    @Transactional
+    public void recordAuthorChanged(Long userId, Collection<AuthorSnapshotRow> reviews) {
+        if (reviews.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        reviews.forEach(review -> bump(ReviewVersion.REVIEW, review.getId(), now));
+        reviews.stream().map(AuthorSnapshotRow::getProductId).filter(Objects::nonNull).distinct()
+                .forEach(productId -> bump(ReviewVersion.PRODUCT, productId, now));
+        bump(ReviewVersion.USER, userId, now);
+    }
+
+    @Transactional(readOnly = true)
+    public ReviewVersion getProductVersion(Long productId) {
+        return find(ReviewVersion.PRODUCT, productId);
+    }
+
+    @Transactional(readOnly = true)
+    public ReviewVersion getUserVersion(Long userId) {
+        return find(ReviewVersion.USER, userId);
+    }
+
+    @Transactional(readOnly = true)
+    public ReviewVersion getReviewVersion(Long reviewId) {
+        return find(ReviewVersion.REVIEW, reviewId);
+    }
+
+    private void bump(String scope, Long ownerId, LocalDateTime now) {
+        if (ownerId != null) {
+            versionRepository.bump(scope, ownerId, now);
+        }
+    }
+
+    private ReviewVersion find(String scope, Long ownerId) {
+        return versionRepository.findById(new ReviewVersion.Key(scope, ownerId))
+                .orElseGet(() -> ReviewVersion.initial(scope, ownerId));
+    }
+}
@@ -0,0 +1,5 @@
+-- review_version.updated_at pasa a guardarse en UTC (antes, hora local del servidor) para que Last-Modified no
+-- dependa de la zona de cada instancia. Las fechas existentes no se pueden convertir sin saber en qué zona se
+-- escribieron: se vacían y esas versiones responden solo con ETag hasta su siguiente escritura.
+ALTER TABLE review_version MODIFY COLUMN updated_at DATETIME(6) NULL;
+UPDATE review_version SET updated_at = NULL;
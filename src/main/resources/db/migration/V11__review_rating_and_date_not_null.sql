@@ -0,0 +1,8 @@
+-- rating y review_date son claves de la paginación por cursor (ReviewCursor y el predicado keyset): con NULL la
+-- comparación r.rating < ? no es ni verdadera ni falsa y las filas se saltan o se repiten entre páginas, y el
+-- cursor no se puede decodificar. Las filas antiguas de ddl-auto=update que los tengan a NULL reciben el menor
+-- valor posible, que es donde MySQL ya ordenaba los NULL, así que no cambia el orden que veían los clientes.
+UPDATE review SET review_date = '1970-01-01 00:00:00' WHERE review_date IS NULL;
+UPDATE review SET rating = 0 WHERE rating IS NULL;
+ALTER TABLE review MODIFY COLUMN review_date DATETIME(6) NOT NULL;
+ALTER TABLE review MODIFY COLUMN rating INT NOT NULL;
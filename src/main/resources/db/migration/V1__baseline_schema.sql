@@ -0,0 +1,13 @@
+-- Esquema tal como lo generaba Hibernate con ddl-auto=update antes de introducir Flyway.
+-- En bases existentes esta versión se marca como baseline y no se ejecuta.
+
+CREATE TABLE IF NOT EXISTS review (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    product_id  BIGINT,
+    user_id     BIGINT,
+    rating      INT,
+    title       VARCHAR(255) NOT NULL,
+    comment     VARCHAR(500) NOT NULL,
+    review_date DATETIME(6),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,16 @@
+-- Índices alineados con las consultas de ReviewRepository.
+
+-- findByProductId, findTop5ByProductIdOrderByReviewDateDesc y la paginación newest/oldest por producto
+CREATE INDEX idx_review_product_date ON review (product_id, review_date DESC, id DESC);
+
+-- Paginación highest/lowest por producto y agregación por puntuación de los resúmenes
+CREATE INDEX idx_review_product_rating_date ON review (product_id, rating, review_date, id);
+CREATE INDEX idx_review_product_rating_date_desc ON review (product_id, rating, review_date DESC, id DESC);
+
+-- findByUserId y la paginación por usuario
+CREATE INDEX idx_review_user_date ON review (user_id, review_date DESC, id DESC);
+
+-- Una reseña por usuario y producto; también sirve a findByProductIdAndUserId.
+-- Si una base existente tiene duplicados esta sentencia falla: hay que depurarlos antes, p. ej. revisando
+--   SELECT product_id, user_id, COUNT(*) FROM review GROUP BY product_id, user_id HAVING COUNT(*) > 1;
+ALTER TABLE review ADD CONSTRAINT uk_review_product_user UNIQUE (product_id, user_id);
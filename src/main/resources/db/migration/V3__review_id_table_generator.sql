@@ -0,0 +1,12 @@
+-- Generador de IDs por tabla para Review (GenerationType.TABLE con optimizador pooled).
+-- Con IDENTITY Hibernate no puede agrupar los INSERT en lotes JDBC; así reserva bloques de 50 IDs por consulta.
+CREATE TABLE id_generator (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT,
+    PRIMARY KEY (sequence_name)
+);
+
+-- El optimizador pooled trata el valor leído como el final del bloque (entrega next_val - 49 .. next_val),
+-- así que se deja un margen de un bloque por encima del mayor ID existente para no reutilizar IDs.
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'review', COALESCE(MAX(id), 0) + 51 FROM review;
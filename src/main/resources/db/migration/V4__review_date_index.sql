@@ -0,0 +1,2 @@
+-- Exportación por rango de fechas sin filtrar por producto (GET /api/reviews/export?from=...&to=...)
+CREATE INDEX idx_review_date ON review (review_date, id);
@@ -0,0 +1,10 @@
+-- Versión de cada listado (por producto y por usuario) y de cada reseña, para responder a las peticiones
+-- condicionales (ETag / Last-Modified) con una búsqueda por clave primaria, sin leer la tabla review.
+-- Se incrementa en la misma transacción que cada alta, cambio o borrado de reseñas.
+CREATE TABLE review_version (
+    scope      VARCHAR(16) NOT NULL, -- product, user o review
+    owner_id   BIGINT      NOT NULL,
+    version    BIGINT      NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (scope, owner_id)
+);
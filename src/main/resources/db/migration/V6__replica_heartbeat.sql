@@ -0,0 +1,9 @@
+-- Latido para medir el retraso de las réplicas de lectura: la aplicación escribe la hora en el primario y la lee
+-- en cada réplica. La diferencia es lo que la réplica va por detrás, sin depender de SHOW REPLICA STATUS.
+CREATE TABLE replica_heartbeat (
+    id      INT         NOT NULL,
+    beat_at DATETIME(6) NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, NULL);
@@ -0,0 +1,8 @@
+-- Copia del autor de cada reseña (nombre de usuario y nombre completo) tomada del User Service al crearla,
+-- para servir los listados sin llamarlo. author_snapshot_at es cuándo se tomó: las filas con NULL (anteriores
+-- a esta migración o creadas sin respuesta del User Service) se enriquecen con una llamada remota hasta que
+-- el refresco en segundo plano las rellena. Los cambios de perfil se aplican con UPDATE ... WHERE user_id
+-- (idx_review_user_date).
+ALTER TABLE review ADD COLUMN author_username VARCHAR(255) NULL;
+ALTER TABLE review ADD COLUMN author_full_name VARCHAR(255) NULL;
+ALTER TABLE review ADD COLUMN author_snapshot_at DATETIME(6) NULL;
@@ -0,0 +1,18 @@
+-- Respuestas de POST /api/reviews por usuario y clave de idempotencia (cabecera Idempotency-Key), solo con
+-- reviews.idempotency.persistent=true: sirven para repetir la respuesta original tras un reinicio o desde otra
+-- instancia sin volver a insertar. La clave es de cada usuario: dos usuarios pueden usar la misma sin verse.
+-- La primera petición reserva la fila (status 0) antes de crear la reseña, así que un duplicado que llega a otra
+-- instancia espera a su respuesta en lugar de crear otra vez. La copia en memoria se consulta antes; las filas
+-- caducadas se borran en segundo plano.
+CREATE TABLE idempotency_key (
+    user_id         BIGINT        NOT NULL,
+    idempotency_key VARCHAR(255)  NOT NULL,
+    fingerprint     VARCHAR(64)   NOT NULL, -- SHA-256 del cuerpo: la misma clave con otra reseña se rechaza
+    status          INT           NOT NULL, -- 0 mientras la petición original sigue en curso
+    response_body   VARCHAR(4000) NULL,     -- La reseña creada en JSON; NULL si la respuesta no tenía cuerpo
+    created_at      DATETIME(6)   NOT NULL,
+    expires_at      DATETIME(6)   NOT NULL,
+    PRIMARY KEY (user_id, idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_key_expires ON idempotency_key (expires_at);
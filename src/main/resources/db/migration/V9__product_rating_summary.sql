@@ -0,0 +1,34 @@
+-- Resumen de valoraciones por producto (total, suma e histograma), mantenido con un upsert en la misma transacción
+-- que cada alta, cambio o borrado de reseñas (ProductRatingSummaryService).
+-- Las bases creadas antes con ddl-auto=update se marcan como versión 1 y no tienen esta tabla: se crea aquí y se
+-- rellena a partir de las reseñas existentes, para que el primer incremento parta de los totales reales y no de cero.
+CREATE TABLE IF NOT EXISTS product_rating_summary (
+    product_id       BIGINT NOT NULL,
+    review_count     BIGINT NOT NULL,
+    rating_sum       BIGINT NOT NULL,
+    one_star_count   BIGINT NOT NULL,
+    two_star_count   BIGINT NOT NULL,
+    three_star_count BIGINT NOT NULL,
+    four_star_count  BIGINT NOT NULL,
+    five_star_count  BIGINT NOT NULL,
+    updated_at       DATETIME(6),
+    PRIMARY KEY (product_id)
+);
+
+-- Mismo criterio que ProductRatingSummaryService.rebuildAll: solo cuentan las puntuaciones entre 1 y 5
+DELETE FROM product_rating_summary;
+
+INSERT INTO product_rating_summary (product_id, review_count, rating_sum, one_star_count, two_star_count,
+                                    three_star_count, four_star_count, five_star_count, updated_at)
+SELECT product_id,
+       COUNT(*),
+       SUM(rating),
+       SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END),
+       CURRENT_TIMESTAMP(6)
+FROM review
+WHERE product_id IS NOT NULL AND rating BETWEEN 1 AND 5
+GROUP BY product_id;
@@ -0,0 +1,432 @@
+package com.programthis.review_service.client;
+
+import com.programthis.review_service.config.UserServiceProperties;
+import com.programthis.review_service.dto.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class UserServiceClientTest {
+
+    private static final String BASE_URL = "http://localhost:8082";
+
+    private RestTemplate restTemplate;
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+    }
+
+    @Test
+    void testGetUsersByIds_UsesBatchEndpointOnceForDuplicatedIds() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"id\":1,\"username\":\"user1\",\"fullName\":\"User One\"},"
+                        + "{\"id\":2,\"username\":\"user2\",\"fullName\":\"User Two\"}]", MediaType.APPLICATION_JSON));
+
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L, 1L, 2L));
+
+        assertEquals(2, users.size());
+        assertEquals("user1", users.get(1L).getUsername());
+        assertEquals("user2", users.get(2L).getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_SplitsIntoChunksOfBatchSize() {
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build(); // Los bloques van en paralelo
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(2));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=1")))
+                .andRespond(withSuccess("[{\"id\":1,\"username\":\"user1\"},{\"id\":2,\"username\":\"user2\"}]", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=3")))
+                .andRespond(withSuccess("[{\"id\":3,\"username\":\"user3\"}]", MediaType.APPLICATION_JSON));
+
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L, 3L));
+
+        assertEquals(3, users.size());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_FallsBackToSingleLookupsWithoutBatchEndpoint() {
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build(); // Las consultas individuales van en paralelo
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/2"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        // La segunda consulta ya no intenta el endpoint de lote
+        server.expect(requestTo(BASE_URL + "/api/users/3"))
+                .andRespond(withSuccess("{\"id\":3,\"username\":\"user3\"}", MediaType.APPLICATION_JSON));
+
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L));
+        assertEquals(1, users.size());
+        assertEquals("user1", users.get(1L).getUsername());
+        assertFalse(users.containsKey(2L)); // El 404 individual se trata como usuario no encontrado
+
+        Map<Long, UserDto> moreUsers = client.getUsersByIds(List.of(3L));
+        assertEquals("user3", moreUsers.get(3L).getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_RateLimitedBatchCallKeepsTheBatchEndpoint() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS));
+        // Un 429 no significa que no haya endpoint de lote: la siguiente consulta vuelve a usarlo
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withSuccess("[{\"id\":1,\"username\":\"user1\"}]", MediaType.APPLICATION_JSON));
+
+        assertTrue(client.getUsersByIds(List.of(1L)).isEmpty()); // Sin valor conocido, el usuario queda como desconocido
+        assertEquals("user1", client.getUsersByIds(List.of(1L)).get(1L).getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_ProbesTheBatchEndpointAgainAfterTheInterval() {
+        UserServiceProperties properties = properties(100);
+        properties.setBatchProbeInterval(Duration.ZERO);
+        UserServiceClient client = new UserServiceClient(restTemplate, properties);
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withStatus(HttpStatus.METHOD_NOT_ALLOWED));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withSuccess("[{\"id\":2,\"username\":\"user2\"}]", MediaType.APPLICATION_JSON));
+
+        assertEquals("user1", client.getUsersByIds(List.of(1L)).get(1L).getUsername());
+        assertEquals("user2", client.getUsersByIds(List.of(2L)).get(2L).getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_EmptyInputMakesNoCalls() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+
+        assertTrue(client.getUsersByIds(List.of()).isEmpty());
+        server.verify();
+    }
+
+    @Test
+    void testGetUserById_CachesFoundAndNotFoundUsers() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(ExpectedCount.once(), requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(BASE_URL + "/api/users/2"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+            assertTrue(client.getUserById(2L).isEmpty()); // El 404 también se recuerda
+        }
+
+        server.verify();
+        assertEquals(2, client.getCacheStats().missCount());
+        assertEquals(4, client.getCacheStats().hitCount());
+    }
+
+    @Test
+    void testGetUsersByIds_OnlyFetchesUsersMissingFromCache() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/batch?ids=2"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        client.getUserById(1L);
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L));
+        // El usuario 2 no vino en el lote: queda en caché como no encontrado
+        Map<Long, UserDto> again = client.getUsersByIds(List.of(1L, 2L));
+
+        assertEquals(1, users.size());
+        assertEquals(1, again.size());
+        server.verify();
+    }
+
+    @Test
+    void testGetUserById_FailuresAreNotCached() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+
+        assertTrue(client.getUserById(1L).isEmpty()); // Sin valor conocido se muestra como usuario desconocido
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testGetUserById_ConcurrentMissesShareOneCall() throws Exception {
+        RestTemplate slowRestTemplate = mock(RestTemplate.class);
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto.class), eq(1L))).thenAnswer(invocation -> {
+            callStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new UserDto(1L, "user1", "User One");
+        });
+        UserServiceClient client = new UserServiceClient(slowRestTemplate, properties(100));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Optional<UserDto>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> client.getUserById(1L)));
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> client.getUserById(1L)));
+            }
+            release.countDown();
+
+            for (Future<Optional<UserDto>> result : results) {
+                assertEquals("user1", result.get(5, TimeUnit.SECONDS).orElseThrow().getUsername());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(slowRestTemplate, times(1)).getForObject(anyString(), eq(UserDto.class), eq(1L));
+    }
+
+    @Test
+    void testGetUsersByIds_SingleLookupsRunConcurrentlyUpToTheLimit() {
+        RestTemplate slowRestTemplate = mock(RestTemplate.class);
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto[].class), anyString()))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto.class), anyLong())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            Long userId = invocation.getArgument(2);
+            return new UserDto(userId, "user" + userId, null);
+        });
+        UserServiceProperties properties = properties(100);
+        properties.getFanOut().setMaxConcurrency(3);
+        UserServiceClient client = new UserServiceClient(slowRestTemplate, properties);
+
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L));
+
+        assertEquals(9, users.size());
+        assertTrue(maxInFlight.get() > 1, "Las consultas deberían solaparse");
+        assertTrue(maxInFlight.get() <= 3, "No debe superarse max-concurrency");
+    }
+
+    @Test
+    void testGetUsersByIds_UsersMissingTheDeadlineAreLeftOut() throws Exception {
+        RestTemplate slowRestTemplate = mock(RestTemplate.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto[].class), anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new UserDto[]{new UserDto(1L, "user1", "User One")};
+        });
+        UserServiceProperties properties = properties(100);
+        properties.getFanOut().setDeadline(Duration.ofMillis(100));
+        UserServiceClient client = new UserServiceClient(slowRestTemplate, properties);
+
+        long start = System.nanoTime();
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(users.isEmpty());
+        assertTrue(elapsedMillis < 2000, "Debe devolver al vencer el plazo, no al terminar la llamada");
+
+        // La llamada sigue en segundo plano y deja el usuario en caché para el siguiente listado
+        release.countDown();
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        verify(slowRestTemplate, times(1)).getForObject(anyString(), eq(UserDto[].class), anyString());
+    }
+
+    @Test
+    void testGetUserById_MissesTheDeadlineLikeListsDo() throws Exception {
+        RestTemplate slowRestTemplate = mock(RestTemplate.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto.class), eq(1L))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new UserDto(1L, "user1", "User One");
+        });
+        UserServiceProperties properties = properties(100);
+        properties.getFanOut().setDeadline(Duration.ofMillis(100));
+        UserServiceClient client = new UserServiceClient(slowRestTemplate, properties);
+
+        long start = System.nanoTime();
+        assertTrue(client.getUserById(1L).isEmpty()); // Quien lanza la llamada
+        assertTrue(client.getUserById(1L).isEmpty()); // Quien espera la consulta en curso
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < 2000, "Debe devolver al vencer el plazo, no al terminar la llamada");
+
+        release.countDown();
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        verify(slowRestTemplate, times(1)).getForObject(anyString(), eq(UserDto.class), eq(1L));
+    }
+
+    @Test
+    void testGetUserById_ServesLastKnownUserWhenServiceFails() {
+        UserServiceProperties properties = properties(100);
+        properties.getCache().setTtl(Duration.ZERO); // Cada consulta vuelve a la red
+        UserServiceClient client = new UserServiceClient(restTemplate, properties);
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        server.verify();
+    }
+
+    @Test
+    void testInvalidate_ForgetsCachedAndLastKnownUser() {
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"old\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertEquals("old", client.getUserById(1L).orElseThrow().getUsername());
+        client.invalidate(1L);
+
+        // Vuelve a la red y, si falla, no sirve el perfil anterior al cambio
+        assertTrue(client.getUserById(1L).isEmpty());
+        server.verify();
+    }
+
+    @Test
+    void testGetUserById_OpenCircuitFailsFastWithoutCallingTheService() {
+        RestTemplate failingRestTemplate = mock(RestTemplate.class);
+        when(failingRestTemplate.getForObject(anyString(), eq(UserDto.class), anyLong()))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+        UserServiceProperties properties = properties(100);
+        properties.getResilience().setSlidingWindowSize(2);
+        properties.getResilience().setMinimumNumberOfCalls(2);
+        UserServiceClient client = new UserServiceClient(failingRestTemplate, properties);
+
+        assertTrue(client.getUserById(1L).isEmpty());
+        assertTrue(client.getUserById(2L).isEmpty());
+        assertEquals("OPEN", client.getCircuitBreaker().getState().name());
+
+        assertTrue(client.getUserById(3L).isEmpty());
+        verify(failingRestTemplate, times(2)).getForObject(anyString(), eq(UserDto.class), anyLong());
+        assertEquals(1, client.getCircuitBreaker().getMetrics().getNumberOfNotPermittedCalls());
+    }
+
+    @Test
+    void testGetUserById_HedgedCallWinsWhenFirstIsSlow() {
+        RestTemplate slowRestTemplate = mock(RestTemplate.class);
+        AtomicInteger attempts = new AtomicInteger();
+        when(slowRestTemplate.getForObject(anyString(), eq(UserDto.class), eq(1L))).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(2000); // Réplica lenta
+            }
+            return new UserDto(1L, "user1", "User One");
+        });
+        UserServiceProperties properties = properties(100);
+        properties.getResilience().setHedgeDelay(Duration.ofMillis(50));
+        UserServiceClient client = new UserServiceClient(slowRestTemplate, properties);
+
+        long start = System.nanoTime();
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 1000, "Debe responder la segunda llamada sin esperar a la lenta");
+        verify(slowRestTemplate, times(2)).getForObject(anyString(), eq(UserDto.class), eq(1L));
+    }
+
+    @Test
+    void testGetUserById_RecordsLatencyByOutcomeAndCountsRemoteCalls() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100), registry);
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/2"))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo(BASE_URL + "/api/users/3"))
+                .andRespond(withServerError());
+
+        AtomicInteger calls = RemoteCallCounter.start();
+        try {
+            client.getUserById(1L);
+            client.getUserById(2L);
+            client.getUserById(3L);
+            client.getUserById(1L); // Desde la caché, sin llamada remota
+        } finally {
+            RemoteCallCounter.stop();
+        }
+
+        assertEquals(3, calls.get());
+        assertEquals(1, registry.get("user.service.requests").tags("endpoint", "single", "outcome", "found").timer().count());
+        assertEquals(1, registry.get("user.service.requests").tags("endpoint", "single", "outcome", "not_found").timer().count());
+        assertEquals(1, registry.get("user.service.requests").tags("endpoint", "single", "outcome", "error").timer().count());
+        server.verify();
+    }
+
+    @Test
+    void testGetUsersByIds_CountsRemoteCallsMadeOnFanOutThreads() {
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        UserServiceClient client = new UserServiceClient(restTemplate, properties(100));
+        server.expect(requestTo(startsWith(BASE_URL + "/api/users/batch?ids=")))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(requestTo(BASE_URL + "/api/users/1"))
+                .andRespond(withSuccess("{\"id\":1,\"username\":\"user1\"}", MediaType.APPLICATION_JSON));
+        server.expect(requestTo(BASE_URL + "/api/users/2"))
+                .andRespond(withSuccess("{\"id\":2,\"username\":\"user2\"}", MediaType.APPLICATION_JSON));
+
+        AtomicInteger calls = RemoteCallCounter.start();
+        try {
+            assertEquals(2, client.getUsersByIds(List.of(1L, 2L)).size());
+        } finally {
+            RemoteCallCounter.stop();
+        }
+
+        assertEquals(3, calls.get()); // El intento de lote más una llamada individual por usuario: el patrón N+1
+        server.verify();
+    }
+
+    private static UserServiceProperties properties(int batchSize) {
+        UserServiceProperties properties = new UserServiceProperties();
+        properties.setUrl(BASE_URL);
+        properties.setBatchSize(batchSize);
+        return properties;
+    }
+}
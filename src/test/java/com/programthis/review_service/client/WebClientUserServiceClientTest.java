@@ -0,0 +1,264 @@
+package com.programthis.review_service.client;
+
+import com.programthis.review_service.config.UserServiceProperties;
+import com.programthis.review_service.dto.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// El User Service se simula con una ExchangeFunction: cada petición queda registrada y se responde en memoria
+class WebClientUserServiceClientTest {
+
+    private static final String BASE_URL = "http://localhost:8082";
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @Test
+    void testLookupUser_ConcurrentMissesShareOneCall() {
+        Sinks.One<ClientResponse> response = Sinks.one();
+        WebClientUserServiceClient client = client(request -> response.asMono(), properties(100));
+
+        List<Mono<Optional<UserDto>>> lookups = List.of(client.lookupUser(1L), client.lookupUser(1L), client.lookupUser(1L));
+        lookups.forEach(Mono::subscribe); // Las tres esperan a la misma llamada en curso
+        response.tryEmitValue(json(HttpStatus.OK, "{\"id\":1,\"username\":\"user1\"}"));
+
+        for (Mono<Optional<UserDto>> lookup : lookups) {
+            assertEquals("user1", lookup.block(Duration.ofSeconds(5)).orElseThrow().getUsername());
+        }
+        assertEquals(List.of("/api/users/1"), requests);
+    }
+
+    @Test
+    void testGetUserById_CachesFoundAndNotFoundUsers() {
+        WebClientUserServiceClient client = client(request -> Mono.just(request.url().getPath().endsWith("/1")
+                ? json(HttpStatus.OK, "{\"id\":1,\"username\":\"user1\"}")
+                : ClientResponse.create(HttpStatus.NOT_FOUND).build()), properties(100));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+            assertTrue(client.getUserById(2L).isEmpty()); // El 404 también se recuerda
+        }
+        assertEquals(List.of("/api/users/1", "/api/users/2"), requests);
+    }
+
+    @Test
+    void testLookupUsers_UsesBatchEndpointOnlyForUsersMissingFromCache() {
+        WebClientUserServiceClient client = client(request -> Mono.just(request.url().getPath().endsWith("/batch")
+                ? json(HttpStatus.OK, "[{\"id\":2,\"username\":\"user2\"},{\"id\":3,\"username\":\"user3\"}]")
+                : json(HttpStatus.OK, "{\"id\":1,\"username\":\"user1\"}")), properties(100));
+
+        client.getUserById(1L);
+        Map<Long, UserDto> users = client.lookupUsers(List.of(1L, 2L, 3L, 2L, 4L)).block(Duration.ofSeconds(5));
+
+        assertEquals(3, users.size());
+        assertFalse(users.containsKey(4L)); // No vino en el lote: no encontrado
+        assertEquals("/api/users/batch?ids=2,3,4", requests.get(1));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void testLookupUsers_FallsBackToSingleLookupsWithoutBatchEndpoint() {
+        WebClientUserServiceClient client = client(request -> {
+            String path = request.url().getPath();
+            if (path.endsWith("/batch") || path.endsWith("/2")) {
+                return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+            }
+            return Mono.just(json(HttpStatus.OK, "{\"id\":" + path.substring(path.lastIndexOf('/') + 1) + "}"));
+        }, properties(100));
+
+        Map<Long, UserDto> users = client.getUsersByIds(List.of(1L, 2L));
+        assertEquals(Map.of(1L, new UserDto(1L, null, null)), users);
+
+        client.getUsersByIds(List.of(3L)); // Ya no intenta el endpoint de lote
+        assertEquals(1, requests.stream().filter(request -> request.contains("/batch")).count());
+        assertTrue(requests.contains("/api/users/3"));
+    }
+
+    @Test
+    void testLookupUsers_SingleLookupsStayWithinTheConcurrencyLimit() {
+        UserServiceProperties properties = properties(4);
+        properties.getFanOut().setMaxConcurrency(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        WebClientUserServiceClient client = client(request -> {
+            String path = request.url().getPath();
+            if (path.endsWith("/batch")) {
+                return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+            }
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            return Mono.fromCallable(() -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        return json(HttpStatus.OK, "{\"id\":" + id + "}");
+                    })
+                    .delayElement(Duration.ofMillis(20))
+                    // Antes de emitir: con doFinally la siguiente consulta ya habría empezado y se contarían 4
+                    .doOnNext(response -> inFlight.decrementAndGet());
+        }, properties);
+
+        // Más autores distintos que el límite del bulkhead y sin endpoint de lote: ninguno debe quedarse sin resolver
+        List<Long> userIds = LongStream.rangeClosed(1, 10).boxed().toList();
+        Map<Long, UserDto> users = client.lookupUsers(userIds).block(Duration.ofSeconds(5));
+
+        assertEquals(10, users.size());
+        assertTrue(maxInFlight.get() <= 3, "No debe superarse max-concurrency: " + maxInFlight.get());
+    }
+
+    @Test
+    void testLookupUsers_CountsRemoteCallsForTheRequestThatStartedThem() {
+        // Las respuestas llegan en otro hilo: las llamadas individuales se lanzan desde él, no desde el de la petición
+        WebClientUserServiceClient client = client(request -> {
+            String path = request.url().getPath();
+            String id = path.substring(path.lastIndexOf('/') + 1);
+            return Mono.just(path.endsWith("/batch")
+                            ? ClientResponse.create(HttpStatus.NOT_FOUND).build()
+                            : json(HttpStatus.OK, "{\"id\":" + id + "}"))
+                    .delayElement(Duration.ofMillis(5));
+        }, properties(100));
+
+        AtomicInteger calls = RemoteCallCounter.start();
+        Mono<Map<Long, UserDto>> lookup;
+        try {
+            lookup = client.lookupUsers(List.of(1L, 2L, 3L));
+        } finally {
+            RemoteCallCounter.stop();
+        }
+
+        assertEquals(3, lookup.block(Duration.ofSeconds(5)).size());
+        assertEquals(4, calls.get()); // El intento de lote más una llamada individual por usuario
+    }
+
+    @Test
+    void testLookupUsers_RateLimitedBatchCallKeepsTheBatchEndpoint() {
+        AtomicInteger batchCalls = new AtomicInteger();
+        WebClientUserServiceClient client = client(request -> Mono.just(batchCalls.incrementAndGet() == 1
+                ? ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).build()
+                : json(HttpStatus.OK, "[{\"id\":1,\"username\":\"user1\"}]")), properties(100));
+
+        assertTrue(client.getUsersByIds(List.of(1L)).isEmpty()); // Sin valor conocido, el usuario queda como desconocido
+        assertEquals("user1", client.getUsersByIds(List.of(1L)).get(1L).getUsername());
+        assertEquals(List.of("/api/users/batch?ids=1", "/api/users/batch?ids=1"), requests);
+    }
+
+    @Test
+    void testLookupUser_ServesLastKnownUserWhenServiceFails() {
+        UserServiceProperties properties = properties(100);
+        properties.getCache().setTtl(Duration.ZERO); // Cada consulta vuelve a la red
+        WebClientUserServiceClient client = client(request -> Mono.just(requests.size() == 1
+                ? json(HttpStatus.OK, "{\"id\":1,\"username\":\"user1\"}")
+                : ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()), properties);
+
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        assertTrue(client.getUserById(2L).isEmpty()); // Sin valor conocido se muestra como usuario desconocido
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void testInvalidate_ForgetsCachedAndLastKnownUser() {
+        WebClientUserServiceClient client = client(request -> Mono.just(requests.size() == 1
+                ? json(HttpStatus.OK, "{\"id\":1,\"username\":\"old\"}")
+                : ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()), properties(100));
+
+        assertEquals("old", client.getUserById(1L).orElseThrow().getUsername());
+        client.invalidate(1L);
+
+        // Vuelve a la red y, si falla, no sirve el perfil anterior al cambio
+        assertTrue(client.getUserById(1L).isEmpty());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void testLookupUsers_UsersMissingTheDeadlineAreLeftOutButStillCached() {
+        UserServiceProperties properties = properties(100);
+        properties.getFanOut().setDeadline(Duration.ofMillis(100));
+        Sinks.One<ClientResponse> response = Sinks.one();
+        WebClientUserServiceClient client = client(request -> response.asMono(), properties);
+
+        assertTrue(client.lookupUsers(List.of(1L)).block(Duration.ofSeconds(5)).isEmpty());
+
+        // La llamada sigue sin suscriptores y deja el usuario en caché para el siguiente listado
+        response.tryEmitValue(json(HttpStatus.OK, "[{\"id\":1,\"username\":\"user1\"}]"));
+        assertEquals("user1", client.getUserById(1L).orElseThrow().getUsername());
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void testLookupUser_OpenCircuitFailsFastWithoutCallingTheService() {
+        UserServiceProperties properties = properties(100);
+        properties.getResilience().setSlidingWindowSize(2);
+        properties.getResilience().setMinimumNumberOfCalls(2);
+        WebClientUserServiceClient client = client(request -> Mono.error(new IllegalStateException("Connection refused")), properties);
+
+        assertTrue(client.getUserById(1L).isEmpty());
+        assertTrue(client.getUserById(2L).isEmpty());
+        assertTrue(client.getUserById(3L).isEmpty());
+
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void testLookupUser_RecordsLatencyByOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        WebClient webClient = webClient(request -> Mono.just(request.url().getPath().endsWith("/1")
+                ? json(HttpStatus.OK, "{\"id\":1}")
+                : ClientResponse.create(HttpStatus.NOT_FOUND).build()));
+        WebClientUserServiceClient client = new WebClientUserServiceClient(webClient, properties(100), registry);
+
+        client.getUserById(1L);
+        client.getUserById(2L);
+
+        assertEquals(1, registry.get("user.service.requests").tags("endpoint", "single", "outcome", "found").timer().count());
+        assertEquals(1, registry.get("user.service.requests").tags("endpoint", "single", "outcome", "not_found").timer().count());
+    }
+
+    private WebClientUserServiceClient client(ExchangeFunction exchange, UserServiceProperties properties) {
+        return new WebClientUserServiceClient(webClient(exchange), properties, new SimpleMeterRegistry());
+    }
+
+    private WebClient webClient(ExchangeFunction exchange) {
+        return WebClient.builder()
+                .baseUrl(BASE_URL + "/api")
+                .exchangeFunction(request -> {
+                    requests.add(pathAndQuery(request));
+                    return exchange.exchange(request);
+                })
+                .build();
+    }
+
+    private static String pathAndQuery(ClientRequest request) {
+        String query = request.url().getQuery();
+        return request.url().getPath() + (query != null ? "?" + query : "");
+    }
+
+    private static ClientResponse json(HttpStatus status, String body) {
+        return ClientResponse.create(status)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+
+    private static UserServiceProperties properties(int batchSize) {
+        UserServiceProperties properties = new UserServiceProperties();
+        properties.setUrl(BASE_URL);
+        properties.setBatchSize(batchSize);
+        return properties;
+    }
+}
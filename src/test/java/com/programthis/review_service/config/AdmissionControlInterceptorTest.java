@@ -0,0 +1,234 @@
+package com.programthis.review_service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlInterceptorTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private SimpleMeterRegistry registry;
+    private AdmissionControlProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        properties = new AdmissionControlProperties();
+        properties.setReads(new AdmissionControlProperties.Limit(2, 3));
+        properties.setWrites(new AdmissionControlProperties.Limit(1, 1));
+        properties.setTrustedClientKeySources("10\\.1\\.0\\.\\d{1,3}");
+    }
+
+    @Test
+    void testClientOverItsBurstGets429UntilTokensRefill() {
+        AdmissionControlInterceptor interceptor = interceptor();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(complete(interceptor, request("GET", "crawler")));
+        }
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("GET", "crawler"), rejected, null));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+
+        assertTrue(complete(interceptor, request("GET", "storefront"))); // Otro cliente tiene su propio cubo
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500)); // 2 por segundo: un token nuevo
+        assertTrue(complete(interceptor, request("GET", "crawler")));
+        assertFalse(interceptor.preHandle(request("GET", "crawler"), new MockHttpServletResponse(), null));
+
+        assertEquals(5, count("read", "admitted"));
+        assertEquals(2, count("read", "rate_limited"));
+    }
+
+    @Test
+    void testReadsAndWritesHaveSeparateBudgets() {
+        AdmissionControlInterceptor interceptor = interceptor();
+
+        assertTrue(complete(interceptor, request("POST", "bff")));
+        assertFalse(interceptor.preHandle(request("PUT", "bff"), new MockHttpServletResponse(), null));
+        assertTrue(complete(interceptor, request("GET", "bff"))); // Las lecturas siguen teniendo tokens
+
+        assertEquals(1, count("write", "rate_limited"));
+    }
+
+    @Test
+    void testClientWithoutKeyIsLimitedByAddress() {
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest anonymous = request("POST", null);
+        anonymous.setRemoteAddr("10.0.0.7");
+
+        assertTrue(complete(interceptor, anonymous));
+        MockHttpServletRequest sameAddress = request("POST", null);
+        sameAddress.setRemoteAddr("10.0.0.7");
+        assertFalse(interceptor.preHandle(sameAddress, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void testClientKeyHeaderFromAnUntrustedAddressIsIgnored() {
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest first = request("POST", "bff");
+        first.setRemoteAddr("203.0.113.9");
+        assertTrue(complete(interceptor, first));
+
+        MockHttpServletRequest spoofed = request("POST", "another-key");
+        spoofed.setRemoteAddr("203.0.113.9");
+        assertFalse(interceptor.preHandle(spoofed, new MockHttpServletResponse(), null)); // Mismo cubo que su IP
+        assertTrue(complete(interceptor, request("POST", "bff"))); // La clave "bff" desde el BFF sigue intacta
+    }
+
+    @Test
+    void testAuthenticatedUserIsLimitedByIdentityWhateverItsAddress() {
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest first = request("POST", null);
+        first.setUserPrincipal(() -> "ana");
+        first.setRemoteAddr("203.0.113.9");
+        assertTrue(complete(interceptor, first));
+
+        MockHttpServletRequest otherAddress = request("POST", "bff");
+        otherAddress.setUserPrincipal(() -> "ana");
+        assertFalse(interceptor.preHandle(otherAddress, new MockHttpServletResponse(), null));
+    }
+
+    @Test
+    void testShedRequestDoesNotSpendTheClientsTokens() {
+        properties.setMaxConcurrentRequests(1);
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest slow = request("GET", "a");
+        assertTrue(interceptor.preHandle(slow, new MockHttpServletResponse(), null));
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(interceptor.preHandle(request("GET", "crawler"), new MockHttpServletResponse(), null));
+        }
+        interceptor.afterCompletion(slow, new MockHttpServletResponse(), null, null);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(complete(interceptor, request("GET", "crawler"))); // La ráfaga completa sigue disponible
+        }
+        assertEquals(5, count("read", "shed"));
+        assertEquals(0, count("read", "rate_limited"));
+    }
+
+    @Test
+    void testRateLimitedRequestDoesNotKeepASlot() {
+        AdmissionControlInterceptor interceptor = interceptor();
+        assertTrue(complete(interceptor, request("POST", "bff")));
+        assertFalse(interceptor.preHandle(request("POST", "bff"), new MockHttpServletResponse(), null));
+
+        assertEquals(0, interceptor.inFlight());
+    }
+
+    @Test
+    void testExcessConcurrencyIsShedWith503AndSlotsAreReleased() {
+        properties.setMaxConcurrentRequests(2);
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest first = request("GET", "a");
+        MockHttpServletRequest second = request("GET", "b");
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+        assertTrue(interceptor.preHandle(second, new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("GET", "c"), shed, null));
+        assertEquals(503, shed.getStatus());
+        assertEquals("1", shed.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, interceptor.inFlight());
+
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), null, null); // Solo se libera una vez
+        assertEquals(1, interceptor.inFlight());
+        assertTrue(interceptor.preHandle(request("GET", "c"), new MockHttpServletResponse(), null));
+
+        assertEquals(1, count("read", "shed"));
+        assertEquals(3, registry.get("reviews.admission.tracked.clients").gauge().value());
+    }
+
+    @Test
+    void testAsyncResponseKeepsItsSlotUntilTheAsyncDispatchCompletes() throws Exception {
+        properties.setMaxConcurrentRequests(1);
+        AdmissionControlInterceptor interceptor = interceptor();
+        MockHttpServletRequest listing = request("GET", "a");
+        assertTrue(interceptor.preHandle(listing, new MockHttpServletResponse(), null));
+
+        interceptor.afterConcurrentHandlingStarted(listing, new MockHttpServletResponse(), null);
+        assertEquals(1, interceptor.inFlight()); // El Mono sigue resolviéndose: cuenta como petición en curso
+        assertFalse(interceptor.preHandle(request("GET", "b"), new MockHttpServletResponse(), null));
+
+        listing.setDispatcherType(DispatcherType.ASYNC);
+        assertTrue(interceptor.preHandle(listing, new MockHttpServletResponse(), null));
+        interceptor.afterCompletion(listing, new MockHttpServletResponse(), null, null);
+        assertEquals(0, interceptor.inFlight());
+    }
+
+    @Test
+    void testTokenBucketGrantsExactlyTheBurstUnderContention() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 100, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire(0) == 0) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(100, granted); // Con el reloj parado, ni uno más que la ráfaga
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private AdmissionControlInterceptor interceptor() {
+        return new AdmissionControlInterceptor(properties, registry, clock::get);
+    }
+
+    // Admite la petición y la da por terminada; devuelve si se admitió
+    private static boolean complete(AdmissionControlInterceptor interceptor, MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean admitted = interceptor.preHandle(request, response, null);
+        if (admitted) {
+            interceptor.afterCompletion(request, response, null, null);
+        }
+        return admitted;
+    }
+
+    // Con clave, la petición llega desde una dirección de confianza (el BFF)
+    private static MockHttpServletRequest request(String method, String clientKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/reviews/product/101");
+        request.setRemoteAddr("10.1.0.5");
+        if (clientKey != null) {
+            request.addHeader("X-Client-Id", clientKey);
+        }
+        return request;
+    }
+
+    private double count(String kind, String decision) {
+        return registry.get("reviews.admission.decisions").tags("kind", kind, "decision", decision).counter().count();
+    }
+}
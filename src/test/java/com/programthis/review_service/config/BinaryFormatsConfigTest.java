@@ -0,0 +1,71 @@
+package com.programthis.review_service.config;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.programthis.review_service.dto.ReviewPage;
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryFormatsConfigTest {
+
+    private final BinaryFormatsConfig config = new BinaryFormatsConfig();
+
+    @Test
+    void testSmileAndCborRoundTripTheLeanPageWithFewerBytesThanJson() throws Exception {
+        ReviewPage page = page(200);
+        byte[] json = write(new MappingJackson2HttpMessageConverter(builder().build()), page, MediaType.APPLICATION_JSON);
+
+        for (AbstractJackson2HttpMessageConverter converter : List.of(
+                config.smileHttpMessageConverter(builder()), config.cborHttpMessageConverter(builder()))) {
+            MediaType mediaType = converter.getSupportedMediaTypes().get(0);
+            byte[] binary = write(converter, page, mediaType);
+
+            ReviewPage read = (ReviewPage) converter.read(ReviewPage.class, new MockHttpInputMessage(binary));
+            assertEquals(page, read); // Mismos campos y valores que el JSON
+            assertTrue(binary.length < json.length, mediaType + ": " + binary.length + " >= " + json.length);
+        }
+    }
+
+    @Test
+    void testConvertersAnswerTheNegotiatedMediaTypes() {
+        assertTrue(config.smileHttpMessageConverter(builder())
+                .canWrite(ReviewPage.class, MediaType.valueOf("application/x-jackson-smile")));
+        assertTrue(config.cborHttpMessageConverter(builder()).canWrite(ReviewPage.class, MediaType.APPLICATION_CBOR));
+        assertFalse(config.cborHttpMessageConverter(builder()).canWrite(ReviewPage.class, MediaType.APPLICATION_JSON));
+    }
+
+    // Como el que configura Spring Boot: fechas en ISO-8601
+    private static Jackson2ObjectMapperBuilder builder() {
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static byte[] write(AbstractJackson2HttpMessageConverter converter, Object body, MediaType mediaType) throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(body, mediaType, output);
+        return output.getBodyAsBytes();
+    }
+
+    private static ReviewPage page(int reviews) {
+        List<ReviewResponseDto> content = new ArrayList<>(reviews);
+        for (long i = 1; i <= reviews; i++) {
+            Review review = Review.builder().id(i).productId(101L).userId(i).rating((int) (i % 5) + 1)
+                    .title("Review " + i).comment("Comment number " + i + " about the product.")
+                    .reviewDate(LocalDateTime.of(2024, 5, 1, 10, 0).minusMinutes(i)).build();
+            content.add(new ReviewResponseDto(review, new UserDto(i, "user" + i, "User " + i)));
+        }
+        return new ReviewPage(content, "next-cursor");
+    }
+}
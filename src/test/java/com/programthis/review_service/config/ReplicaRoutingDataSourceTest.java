@@ -0,0 +1,140 @@
+package com.programthis.review_service.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Dos bases H2 embebidas hacen de primario y réplica; la "replicación" del latido se copia a mano
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate routed;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primaryDataSource = migrated("primary");
+        DataSource replicaDataSource = migrated("replica");
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        // La réplica tiene una reseña que el primario no tiene: así se sabe qué base respondió
+        replica.update("INSERT INTO review (id, product_id, user_id, rating, title, comment, review_date) "
+                + "VALUES (1, 7, 1, 5, 'Solo en la réplica', 'Comentario', CURRENT_TIMESTAMP)");
+
+        routing = new ReplicaRoutingDataSource(primaryDataSource, Map.of("replica-0", replicaDataSource), Duration.ofSeconds(2));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadRoutingContext.end();
+        primary.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplicaOnceItIsCaughtUp() {
+        assertEquals(0, countReviews(readOnly)); // Sin latido replicado la réplica no recibe lecturas
+
+        routing.checkReplicas();
+        replicateHeartbeat();
+        routing.checkReplicas();
+
+        assertEquals(List.of("replica-0"), routing.getHealthyReplicas());
+        assertEquals(1, countReviews(readOnly));
+        assertEquals(0, countReviews(readWrite)); // Las transacciones de escritura siempre van al primario
+        assertEquals(0, routed.queryForObject("SELECT COUNT(*) FROM review", Integer.class)); // Sin transacción, también
+    }
+
+    @Test
+    void testClientThatJustWroteReadsFromPrimary() {
+        routing.checkReplicas();
+        replicateHeartbeat();
+        routing.checkReplicas();
+
+        ReadRoutingContext.begin(true);
+        assertEquals(0, countReviews(readOnly));
+
+        ReadRoutingContext.begin(false);
+        assertEquals(1, countReviews(readOnly));
+    }
+
+    @Test
+    void testPropagatingExecutorKeepsThePrimaryAfterAWrite() throws Exception {
+        routing.checkReplicas();
+        replicateHeartbeat();
+        routing.checkReplicas();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            ReadRoutingContext.begin(true);
+            CompletableFuture<Integer> propagated = CompletableFuture.supplyAsync(
+                    () -> countReviews(readOnly), ReadYourWritesInterceptor.propagating(executor));
+            CompletableFuture<Integer> plain = CompletableFuture.supplyAsync(() -> countReviews(readOnly), executor);
+
+            assertEquals(0, propagated.get(5, TimeUnit.SECONDS)); // Sigue la decisión de la petición: primario
+            assertEquals(1, plain.get(5, TimeUnit.SECONDS)); // Sin propagar, el hilo no sabe que hubo una escritura
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLaggingOrUnreachableReplicaFallsBackToPrimary() {
+        routing.checkReplicas();
+        replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", LocalDateTime.now().minusSeconds(30));
+        routing.checkReplicas();
+
+        assertTrue(routing.getHealthyReplicas().isEmpty());
+        assertEquals(0, countReviews(readOnly));
+
+        replicateHeartbeat();
+        routing.checkReplicas();
+        assertEquals(1, countReviews(readOnly));
+
+        replica.execute("DROP TABLE replica_heartbeat"); // La comprobación falla como si la réplica no respondiera
+        routing.checkReplicas();
+        assertEquals(0, countReviews(readOnly));
+    }
+
+    private int countReviews(TransactionTemplate transaction) {
+        return transaction.execute(status -> routed.queryForObject("SELECT COUNT(*) FROM review", Integer.class));
+    }
+
+    private void replicateHeartbeat() {
+        LocalDateTime beat = primary.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", LocalDateTime.class);
+        replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", beat);
+    }
+
+    private static DataSource migrated(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        return dataSource;
+    }
+}
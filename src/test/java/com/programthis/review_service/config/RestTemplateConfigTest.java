@@ -0,0 +1,35 @@
+package com.programthis.review_service.config;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestTemplateConfigTest {
+
+    private final RestTemplateConfig config = new RestTemplateConfig();
+
+    @Test
+    void testConnectionManagerUsesConfiguredPoolLimits() throws Exception {
+        UserServiceProperties properties = new UserServiceProperties();
+        properties.getHttp().setMaxTotal(40);
+        properties.getHttp().setMaxPerRoute(10);
+
+        try (PoolingHttpClientConnectionManager connectionManager = config.userServiceConnectionManager(properties)) {
+            assertEquals(40, connectionManager.getMaxTotal());
+            assertEquals(10, connectionManager.getDefaultMaxPerRoute());
+            assertEquals(0, connectionManager.getTotalStats().getLeased());
+        }
+    }
+
+    @Test
+    void testRestTemplateUsesPooledHttpClient() throws Exception {
+        UserServiceProperties properties = new UserServiceProperties();
+        try (PoolingHttpClientConnectionManager connectionManager = config.userServiceConnectionManager(properties)) {
+            RestTemplate restTemplate = config.restTemplate(config.userServiceHttpClient(connectionManager, properties));
+            assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, restTemplate.getRequestFactory());
+        }
+    }
+}
@@ -1,38 +1,109 @@
 package com.programthis.review_service.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.config.HttpCacheProperties;
+import com.programthis.review_service.config.PaginationProperties;
 import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.service.AuthorSnapshotService;
+import com.programthis.review_service.service.BulkReviewIngestService;
+import com.programthis.review_service.service.GroupCommitReviewWriter;
+import com.programthis.review_service.service.IdempotencyService;
+import com.programthis.review_service.service.ProductRatingSummaryService;
+import com.programthis.review_service.service.ReactiveReviewService;
+import com.programthis.review_service.service.ReviewExportService;
 import com.programthis.review_service.service.ReviewService;
+import com.programthis.review_service.service.ReviewVersionService;
+import com.programthis.review_service.dto.BulkIngestReport;
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.dto.ProductReviewsOverviewDto;
+import com.programthis.review_service.dto.ReviewPage;
 import com.programthis.review_service.dto.ReviewResponseDto; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.dto.ReviewSearchPage;
+import com.programthis.review_service.dto.ReviewWriteStatus;
 import com.programthis.review_service.dto.UserDto; // ¡NUEVA ADICIÓN!
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Instant;
 import java.time.LocalDateTime; // ¡NUEVA ADICIÓN!
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors; // ¡NUEVA ADICIÓN!
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 class ReviewControllerTest {
 
     @Mock
     private ReviewService reviewService;
 
+    @Mock
+    private ProductRatingSummaryService ratingSummaryService;
+
+    @Mock
+    private BulkReviewIngestService bulkIngestService;
+
+    @Mock
+    private ReviewExportService exportService;
+
+    @Mock
+    private ReviewVersionService versionService;
+
+    @Mock
+    private GroupCommitReviewWriter reviewWriter; // Desactivado (isEnabled() = false) salvo en sus tests
+
+    @Mock
+    private AuthorSnapshotService authorSnapshotService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private ReactiveReviewService reactiveReviewService;
+
+    @Spy
+    private PaginationProperties paginationProperties = new PaginationProperties();
+
+    @Spy
+    private HttpCacheProperties httpCacheProperties = new HttpCacheProperties();
+
     // Aunque ReviewController no inyecta directamente UserServiceClient,
     // su ReviewService sí lo hace. En los tests de controlador, es común mockear
     // el servicio y no sus dependencias internas a menos que sea necesario para un setup específico.
@@ -49,6 +120,10 @@ class ReviewControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this); // Inicializa los mocks
+        // Sin escrituras registradas todos los recursos están en la versión 0
+        when(versionService.getProductVersion(anyLong())).thenAnswer(inv -> ReviewVersion.initial(ReviewVersion.PRODUCT, inv.getArgument(0)));
+        when(versionService.getUserVersion(anyLong())).thenAnswer(inv -> ReviewVersion.initial(ReviewVersion.USER, inv.getArgument(0)));
+        when(versionService.getReviewVersion(anyLong())).thenAnswer(inv -> ReviewVersion.initial(ReviewVersion.REVIEW, inv.getArgument(0)));
 
         // Configuración de datos de prueba
         testReview = Review.builder().id(1L).productId(101L).userId(1L).rating(5).title("Great Product").comment("Loved it!").reviewDate(LocalDateTime.now()).build();
@@ -66,7 +141,7 @@ class ReviewControllerTest {
         when(reviewService.createReview(any(Review.class))).thenReturn(savedReview);
 
         // El controlador ahora devuelve ResponseEntity<EntityModel<Review>>
-        ResponseEntity<EntityModel<Review>> response = reviewController.createReview(reviewInput);
+        ResponseEntity<EntityModel<Review>> response = reviewController.createReview(reviewInput, null);
 
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -75,6 +150,24 @@ class ReviewControllerTest {
         verify(reviewService, times(1)).createReview(any(Review.class));
     }
 
+    @Test
+    void testUpdateAuthorSnapshot_AppliesPushedProfile() {
+        UserDto profile = new UserDto(null, "renamed", "Renamed User");
+
+        ResponseEntity<Void> response = reviewController.updateAuthorSnapshot(1L, profile);
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(authorSnapshotService).applyProfile(new UserDto(1L, "renamed", "Renamed User"));
+    }
+
+    @Test
+    void testUpdateAuthorSnapshot_MismatchedIdIsBadRequest() {
+        ResponseEntity<Void> response = reviewController.updateAuthorSnapshot(1L, new UserDto(2L, "other", null));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(authorSnapshotService);
+    }
+
     @Test
     void testGetReviewsByProductIdFound() {
         Long productId = 101L;
@@ -84,10 +177,10 @@ class ReviewControllerTest {
             new ReviewResponseDto(Review.builder().id(2L).productId(productId).userId(2L).build(), new UserDto(2L, "user2", "User Two"))
         );
 
-        when(reviewService.getReviewsByProductId(productId)).thenReturn(serviceResponse);
+        when(reviewService.getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 20)).thenReturn(new ReviewPage(serviceResponse, null));
 
         // El controlador ahora devuelve ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>>
-        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId);
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId, null, null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -99,7 +192,47 @@ class ReviewControllerTest {
                                                     .collect(Collectors.toList());
         assertEquals("user1", extractedContent.get(0).getUsername());
         assertEquals("user2", extractedContent.get(1).getUsername());
-        verify(reviewService, times(1)).getReviewsByProductId(productId);
+        assertFalse(response.getBody().getLink(IanaLinkRelations.NEXT).isPresent()); // Única página
+        verify(reviewService, times(1)).getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 20);
+    }
+
+    @Test
+    void testGetReviewsByProductIdAddsNextLinkWhenMorePagesExist() {
+        Long productId = 101L;
+        List<ReviewResponseDto> serviceResponse = List.of(
+            new ReviewResponseDto(Review.builder().id(5L).productId(productId).userId(1L).rating(5).build(), new UserDto(1L, "user1", "User One")));
+        when(reviewService.getReviewsByProductId(productId, ReviewSortOrder.HIGHEST_RATING, null, 1)).thenReturn(new ReviewPage(serviceResponse, "next-token"));
+
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId, null, 1, "highest");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String nextHref = response.getBody().getLink(IanaLinkRelations.NEXT).orElseThrow().getHref();
+        assertTrue(nextHref.contains("cursor=next-token"));
+        assertTrue(nextHref.contains("size=1"));
+        assertTrue(nextHref.contains("sort=highest"));
+    }
+
+    @Test
+    void testGetReviewsByProductIdClampsPageSize() {
+        Long productId = 101L;
+        when(reviewService.getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 100)).thenReturn(new ReviewPage(List.of(testReviewResponseDto), null));
+
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId, null, 5000, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(reviewService, times(1)).getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 100);
+    }
+
+    @Test
+    void testGetReviewsByProductIdInvalidSortOrCursor() {
+        Long productId = 101L;
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> badSort = reviewController.getReviewsByProductId(productId, null, null, "random");
+        assertEquals(HttpStatus.BAD_REQUEST, badSort.getStatusCode());
+
+        when(reviewService.getReviewsByProductId(eq(productId), any(ReviewSortOrder.class), eq("garbage"), anyInt()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor"));
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> badCursor = reviewController.getReviewsByProductId(productId, "garbage", null, null);
+        assertEquals(HttpStatus.BAD_REQUEST, badCursor.getStatusCode());
     }
 
     @Test
@@ -110,9 +243,9 @@ class ReviewControllerTest {
             new ReviewResponseDto(Review.builder().id(2L).productId(102L).userId(userId).build(), new UserDto(userId, "user1", "User One"))
         );
 
-        when(reviewService.getReviewsByUserId(userId)).thenReturn(serviceResponse);
+        when(reviewService.getReviewsByUserId(userId, ReviewSortOrder.NEWEST, null, 20)).thenReturn(new ReviewPage(serviceResponse, null));
 
-        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByUserId(userId);
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByUserId(userId, null, null, null);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
@@ -121,7 +254,142 @@ class ReviewControllerTest {
                                                     .map(EntityModel::getContent)
                                                     .collect(Collectors.toList());
         assertEquals("user1", extractedContent.get(0).getUsername());
-        verify(reviewService, times(1)).getReviewsByUserId(userId);
+        verify(reviewService, times(1)).getReviewsByUserId(userId, ReviewSortOrder.NEWEST, null, 20);
+    }
+
+    @Test
+    void testReviewLinksMatchLinksBuiltWithMethodOn() {
+        EntityModel<ReviewResponseDto> model = reviewController.toReviewResponseModel(testReviewResponseDto);
+
+        assertSameLink(linkTo(methodOn(ReviewController.class).getReviewById(1L)).withSelfRel(),
+                model.getRequiredLink(IanaLinkRelations.SELF));
+        assertSameLink(linkTo(methodOn(ReviewController.class).getReviewsByProductId(101L, null, null, null)).withRel("product-reviews"),
+                model.getRequiredLink("product-reviews"));
+        assertSameLink(linkTo(methodOn(ReviewController.class).getReviewsByUserId(1L, null, null, null)).withRel("user-reviews"),
+                model.getRequiredLink("user-reviews"));
+    }
+
+    // Lo que se serializa en HAL: la relación y el href (con sus variables de plantilla). Las affordances que añade
+    // methodOn(...) solo se publican con HAL-FORMS, así que no se comparan
+    private static void assertSameLink(Link expected, Link actual) {
+        assertEquals(expected.getRel(), actual.getRel());
+        assertEquals(expected.getHref(), actual.getHref());
+        assertEquals(expected.isTemplated(), actual.isTemplated());
+    }
+
+    @Test
+    void testGetReviewsByProductIdLeanReturnsPlainPage() {
+        Long productId = 101L;
+        ReviewPage page = new ReviewPage(List.of(testReviewResponseDto), "next-token");
+        when(reactiveReviewService.getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 20)).thenReturn(Mono.just(page));
+
+        ResponseEntity<ReviewPage> response = reviewController.getReviewsByProductIdLean(productId, null, null, null).block();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody()); // Sin copiar ni envolver las reseñas
+        assertEquals("next-token", response.getBody().getNextCursor());
+    }
+
+    @Test
+    void testGetReviewsByProductIdLeanNotFoundAndInvalidSortOrCursor() {
+        when(reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20))
+                .thenReturn(Mono.just(new ReviewPage(Collections.emptyList(), null)));
+        when(reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, "bad", 20))
+                .thenReturn(Mono.error(new IllegalArgumentException("Invalid cursor")));
+
+        assertEquals(HttpStatus.NOT_FOUND, reviewController.getReviewsByProductIdLean(101L, null, null, null).block().getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getReviewsByProductIdLean(101L, null, null, "random").block().getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getReviewsByProductIdLean(101L, "bad", null, null).block().getStatusCode());
+        verifyNoInteractions(reviewService); // La variante ligera no pasa por la lectura bloqueante
+    }
+
+    @Test
+    void testGetReviewsByUserIdLeanNotFoundAndInvalidSort() {
+        when(reviewService.getReviewsByUserId(1L, ReviewSortOrder.NEWEST, null, 20)).thenReturn(new ReviewPage(Collections.emptyList(), null));
+
+        assertEquals(HttpStatus.NOT_FOUND, reviewController.getReviewsByUserIdLean(1L, null, null, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getReviewsByUserIdLean(1L, null, null, "random").getStatusCode());
+    }
+
+    @Test
+    void testGetReviewsByProductIdAnswers304WithoutLoadingReviewsWhenETagMatches() {
+        when(versionService.getProductVersion(101L)).thenReturn(new ReviewVersion(ReviewVersion.PRODUCT, 101L, 3, LocalDateTime.of(2024, 5, 1, 10, 0)));
+        when(reviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20)).thenReturn(new ReviewPage(List.of(testReviewResponseDto), null));
+
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> first = reviewController.getReviewsByProductId(101L, null, null, null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertTrue(first.getHeaders().getLastModified() > 0);
+        assertTrue(first.getHeaders().getCacheControl().contains("no-cache"));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reviews/product/101");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        try {
+            ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> second = reviewController.getReviewsByProductId(101L, null, null, null);
+
+            assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+            assertNull(second.getBody());
+            assertEquals(etag, second.getHeaders().getETag());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+        verify(reviewService, times(1)).getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20); // Solo la primera
+    }
+
+    @Test
+    void testETagChangesWithVersionPageAndRepresentation() {
+        when(reviewService.getReviewById(1L)).thenReturn(Optional.of(testReviewResponseDto));
+        when(reviewService.getReviewsByUserId(eq(1L), any(ReviewSortOrder.class), any(), anyInt())).thenReturn(new ReviewPage(List.of(testReviewResponseDto), null));
+
+        String v0 = reviewController.getReviewById(1L).getHeaders().getETag();
+        when(versionService.getReviewVersion(1L)).thenReturn(new ReviewVersion(ReviewVersion.REVIEW, 1L, 1, LocalDateTime.now()));
+        String v1 = reviewController.getReviewById(1L).getHeaders().getETag();
+        assertNotEquals(v0, v1); // Una escritura invalida las copias guardadas
+
+        String halPage = reviewController.getReviewsByUserId(1L, null, null, null).getHeaders().getETag();
+        String otherSort = reviewController.getReviewsByUserId(1L, null, null, "oldest").getHeaders().getETag();
+        String leanPage = reviewController.getReviewsByUserIdLean(1L, null, null, null).getHeaders().getETag();
+        assertNotEquals(halPage, otherSort);
+        assertNotEquals(halPage, leanPage);
+    }
+
+    @Test
+    void testLastModifiedIsOnlySentOnceItsSecondHasPassed() {
+        ReviewVersion version = new ReviewVersion(ReviewVersion.PRODUCT, 101L, 3, LocalDateTime.of(2024, 5, 1, 10, 0, 0, 400_000_000));
+        Instant sameSecond = Instant.parse("2024-05-01T10:00:00.900Z");
+        Instant nextSecond = Instant.parse("2024-05-01T10:00:01Z");
+
+        // Otra escritura en ese mismo segundo tendría la misma fecha: solo ETag
+        assertEquals(-1, ConditionalGet.of(version, "hal", CacheControl.noCache(), sameSecond).ok("x").getHeaders().getLastModified());
+        HttpHeaders headers = ConditionalGet.of(version, "hal", CacheControl.noCache(), nextSecond).ok("x").getHeaders();
+        assertEquals(Instant.parse("2024-05-01T10:00:00Z").toEpochMilli(), headers.getLastModified()); // updated_at está en UTC
+        assertNotNull(headers.getETag());
+    }
+
+    @Test
+    void testETagDistinguishesVariantsWithTheSameStringHashCode() {
+        ReviewVersion version = ReviewVersion.initial(ReviewVersion.PRODUCT, 101L);
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        assertNotEquals(ConditionalGet.of(version, "Aa", CacheControl.noCache()).ok("x").getHeaders().getETag(),
+                ConditionalGet.of(version, "BB", CacheControl.noCache()).ok("x").getHeaders().getETag());
+    }
+
+    @Test
+    void testLeanETagDependsOnNegotiatedEncoding() {
+        when(reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20))
+                .thenReturn(Mono.just(new ReviewPage(List.of(testReviewResponseDto), null)));
+
+        String json = leanProductPageETag("application/vnd.reviews.lean+json");
+        String smile = leanProductPageETag("application/x-jackson-smile");
+        String cbor = leanProductPageETag("application/cbor");
+
+        assertEquals(json, reviewController.getReviewsByProductIdLean(101L, null, null, null).block().getHeaders().getETag()); // Sin petición: JSON
+        assertNotEquals(json, smile);
+        assertNotEquals(json, cbor);
+        assertNotEquals(smile, cbor);
+        assertEquals(List.of(HttpHeaders.ACCEPT), reviewController.getReviewsByProductIdLean(101L, null, null, null).block().getHeaders().getVary());
     }
 
     @Test
@@ -165,19 +433,114 @@ class ReviewControllerTest {
     @Test
     void testCreateReviewBadRequest() {
         when(reviewService.createReview(any(Review.class))).thenThrow(new IllegalArgumentException());
-        ResponseEntity<?> response = reviewController.createReview(new Review());
+        ResponseEntity<?> response = reviewController.createReview(new Review(), null);
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         verify(reviewService, times(1)).createReview(any(Review.class));
     }
 
+    @Test
+    void testCreateReviewConflictWhenUserAlreadyReviewedProduct() {
+        when(reviewService.createReview(any(Review.class))).thenThrow(new DataIntegrityViolationException("uk_review_product_user"));
+        ResponseEntity<?> response = reviewController.createReview(new Review(), null);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void testCreateReviewWaitsForGroupCommitWhenWriteQueueIsEnabled() {
+        Review reviewInput = Review.builder().productId(1L).userId(1L).comment("Test").rating(5).title("Title").build();
+        Review savedReview = Review.builder().id(7L).productId(1L).userId(1L).comment("Test").rating(5).title("Title").reviewDate(LocalDateTime.now()).build();
+        when(reviewWriter.isEnabled()).thenReturn(true);
+        when(reviewWriter.submit(reviewInput)).thenReturn(
+                new GroupCommitReviewWriter.PendingWrite("t-1", reviewInput, CompletableFuture.completedFuture(savedReview)));
+
+        ResponseEntity<EntityModel<Review>> response = reviewController.createReview(reviewInput, null);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(7L, response.getBody().getContent().getId());
+        verify(reviewService, never()).createReview(any(Review.class));
+    }
+
+    @Test
+    void testCreateReviewMapsGroupCommitFailuresAndFullQueue() {
+        when(reviewWriter.isEnabled()).thenReturn(true);
+        Review duplicate = Review.builder().productId(1L).userId(1L).comment("Test").rating(5).title("Title").build();
+        when(reviewWriter.submit(duplicate)).thenReturn(new GroupCommitReviewWriter.PendingWrite("t-1", duplicate,
+                CompletableFuture.failedFuture(new DataIntegrityViolationException("uk_review_product_user"))));
+        assertEquals(HttpStatus.CONFLICT, reviewController.createReview(duplicate, null).getStatusCode());
+
+        Review rejected = Review.builder().productId(2L).userId(1L).comment("Test").rating(5).title("Title").build();
+        when(reviewWriter.submit(rejected)).thenThrow(new RejectedExecutionException("Review write queue is full."));
+        ResponseEntity<EntityModel<Review>> response = reviewController.createReview(rejected, null);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testCreateReviewWithIdempotencyKeyMarksReplayedResponses() {
+        Review reviewInput = Review.builder().productId(1L).userId(1L).comment("Test").rating(5).title("Title").build();
+        Review savedReview = Review.builder().id(9L).productId(1L).userId(1L).comment("Test").rating(5).title("Title").reviewDate(LocalDateTime.now()).build();
+        when(idempotencyService.execute(eq(1L), eq("retry-1"), eq(reviewInput), any()))
+                .thenReturn(new IdempotencyService.IdempotentResponse(201, savedReview, true));
+
+        ResponseEntity<EntityModel<Review>> response = reviewController.createReview(reviewInput, "retry-1");
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(9L, response.getBody().getContent().getId());
+        assertEquals("true", response.getHeaders().getFirst(ReviewController.IDEMPOTENT_REPLAYED_HEADER));
+        verify(reviewService, never()).createReview(any(Review.class)); // La respuesta sale de la clave guardada
+
+        when(idempotencyService.execute(any(), eq(" "), any(), any())).thenThrow(new IllegalArgumentException());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.createReview(reviewInput, " ").getStatusCode());
+    }
+
+    @Test
+    void testCreateReviewAsyncAnswers202WithTrackingId() {
+        Review reviewInput = Review.builder().productId(1L).userId(1L).comment("Test").rating(5).title("Title").build();
+        when(reviewWriter.isEnabled()).thenReturn(true);
+        when(reviewWriter.submit(reviewInput)).thenReturn(
+                new GroupCommitReviewWriter.PendingWrite("t-1", reviewInput, new CompletableFuture<>()));
+
+        ResponseEntity<ReviewWriteStatus> response = reviewController.createReviewAsync(reviewInput);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(ReviewWriteStatus.pending("t-1"), response.getBody());
+        assertTrue(response.getHeaders().getLocation().toString().endsWith("/api/reviews/writes/t-1"));
+
+        when(reviewWriter.getStatus("t-1")).thenReturn(Optional.of(ReviewWriteStatus.committed("t-1", 7L)));
+        assertEquals(7L, reviewController.getWriteStatus("t-1").getBody().getReviewId());
+        assertEquals(HttpStatus.NOT_FOUND, reviewController.getWriteStatus("t-2").getStatusCode());
+    }
+
+    @Test
+    void testCreateReviewAsyncIsNotAvailableWhenWriteQueueIsDisabled() {
+        assertEquals(HttpStatus.NOT_IMPLEMENTED, reviewController.createReviewAsync(new Review()).getStatusCode());
+        verify(reviewWriter, never()).submit(any(Review.class));
+    }
+
+    @Test
+    void testGetProductOverviewsUsesDefaultLatestAndRejectsOversizedRequests() {
+        List<ProductReviewsOverviewDto> overviews = List.of(new ProductReviewsOverviewDto(101L, 1, 5.0, List.of(testReviewResponseDto)));
+        when(reviewService.getProductOverviews(List.of(101L, 102L), 5)).thenReturn(overviews);
+
+        ResponseEntity<List<ProductReviewsOverviewDto>> response = reviewController.getProductOverviews(List.of(101L, 102L), null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(overviews, response.getBody());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getProductOverviews(List.of(), null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getProductOverviews(List.of(101L), 21).getStatusCode());
+        List<Long> tooMany = LongStream.rangeClosed(1, 101).boxed().toList();
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.getProductOverviews(tooMany, null).getStatusCode());
+        verify(reviewService, times(1)).getProductOverviews(anyList(), anyInt());
+    }
+
     @Test
     void testGetReviewsByProductIdNotFound() {
         Long productId = 1L;
-        when(reviewService.getReviewsByProductId(productId)).thenReturn(Collections.emptyList());
+        when(reviewService.getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 20)).thenReturn(new ReviewPage(Collections.emptyList(), null));
         // El tipo de respuesta del controlador ha cambiado, ajustamos el tipo esperado
-        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId);
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.getReviewsByProductId(productId, null, null, null);
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        verify(reviewService, times(1)).getReviewsByProductId(productId);
+        verify(reviewService, times(1)).getReviewsByProductId(productId, ReviewSortOrder.NEWEST, null, 20);
     }
 
     @Test
@@ -190,6 +553,38 @@ class ReviewControllerTest {
         verify(reviewService, times(1)).getReviewById(id);
     }
 
+    @Test
+    void testGetProductRatingSummaryFound() {
+        ProductRatingSummaryDto summary = new ProductRatingSummaryDto(101L, 3, 4.33, Map.of(1, 0L, 2, 0L, 3, 0L, 4, 2L, 5, 1L));
+        when(ratingSummaryService.getSummary(101L)).thenReturn(Optional.of(summary));
+
+        ResponseEntity<EntityModel<ProductRatingSummaryDto>> response = reviewController.getProductRatingSummary(101L);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(3, response.getBody().getContent().getReviewCount());
+        assertTrue(response.getBody().getLink("product-reviews").isPresent());
+        verify(reviewService, never()).getReviewsByProductId(anyLong(), any(), any(), anyInt()); // No carga reseñas
+    }
+
+    @Test
+    void testGetProductRatingSummaryNotFound() {
+        when(ratingSummaryService.getSummary(101L)).thenReturn(Optional.empty());
+
+        ResponseEntity<EntityModel<ProductRatingSummaryDto>> response = reviewController.getProductRatingSummary(101L);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testGetProductRatingSummaryLeanReturnsSummaryWithoutLinks() {
+        ProductRatingSummaryDto summary = new ProductRatingSummaryDto(101L, 3, 4.33, Map.of(1, 0L, 2, 0L, 3, 0L, 4, 2L, 5, 1L));
+        when(ratingSummaryService.getSummary(101L)).thenReturn(Optional.of(summary));
+        when(ratingSummaryService.getSummary(102L)).thenReturn(Optional.empty());
+
+        assertSame(summary, reviewController.getProductRatingSummaryLean(101L).getBody());
+        assertEquals(HttpStatus.NOT_FOUND, reviewController.getProductRatingSummaryLean(102L).getStatusCode());
+    }
+
     @Test
     void testDeleteReviewSuccess() {
         Long id = 1L;
@@ -207,4 +602,90 @@ class ReviewControllerTest {
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(reviewService, times(1)).deleteReview(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchReviewsAddsNextLinkWhenMoreHits() {
+        when(reviewService.searchReviews("batería", 101L, null, 0, 20))
+                .thenReturn(new ReviewSearchPage(List.of(testReviewResponseDto), 0, 20, 35));
+
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.searchReviews("batería", 101L, null, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().getContent().size());
+        assertTrue(response.getBody().getLink(IanaLinkRelations.NEXT).isPresent());
+    }
+
+    @Test
+    void testSearchReviewsBadRequest() {
+        when(reviewService.searchReviews(eq(" "), any(), any(), anyInt(), anyInt())).thenThrow(new IllegalArgumentException("Search query cannot be empty."));
+
+        ResponseEntity<CollectionModel<EntityModel<ReviewResponseDto>>> response = reviewController.searchReviews(" ", null, null, null, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testRebuildSearchIndex() throws InterruptedException {
+        ResponseEntity<Void> response = reviewController.rebuildSearchIndex();
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(reviewService, times(1)).rebuildSearchIndex();
+    }
+
+    @Test
+    void testBulkCreateReviewsRoutesByContentType() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        BulkIngestReport report = new BulkIngestReport(2, 2, 0, List.of(), null);
+        when(bulkIngestService.ingestNdjson(body)).thenReturn(report);
+        when(bulkIngestService.ingestJsonArray(body)).thenReturn(report);
+
+        assertEquals(HttpStatus.OK, reviewController.bulkCreateReviews("application/x-ndjson", body).getStatusCode());
+        verify(bulkIngestService, times(1)).ingestNdjson(body);
+
+        ResponseEntity<BulkIngestReport> response = reviewController.bulkCreateReviews("application/json;charset=UTF-8", body);
+        assertEquals(2, response.getBody().getInserted());
+        verify(bulkIngestService, times(1)).ingestJsonArray(body);
+    }
+
+    @Test
+    void testBulkCreateReviewsBadRequestWhenBodyIsNotAnArray() throws Exception {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        when(bulkIngestService.ingestJsonArray(body)).thenThrow(new IllegalArgumentException("Expected a JSON array of reviews."));
+
+        assertEquals(HttpStatus.BAD_REQUEST, reviewController.bulkCreateReviews("application/json", body).getStatusCode());
+    }
+
+    @Test
+    void testExportReviewsStreamsFromService() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(101L, null, null, true, false);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        verify(exportService, times(1)).exportNdjson(101L, null, null, true, out);
+    }
+
+    @Test
+    void testExportReviewsGzipSetsContentEncoding() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(null, null, null, false, true);
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void testExportReviewsBadRequestWhenRangeIsInverted() {
+        LocalDateTime from = LocalDateTime.of(2024, 2, 1, 0, 0);
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(null, from, from.minusDays(1), false, false);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(exportService);
+    }
+
+    private String leanProductPageETag(String accept) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reviews/product/101");
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        try {
+            return reviewController.getReviewsByProductIdLean(101L, null, null, null).block().getHeaders().getETag();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
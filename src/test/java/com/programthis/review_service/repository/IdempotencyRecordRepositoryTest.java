@@ -0,0 +1,60 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.IdempotencyRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La reserva de claves entre instancias depende de que INSERT IGNORE no pise una fila existente
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class IdempotencyRecordRepositoryTest {
+
+    @Autowired
+    private IdempotencyRecordRepository repository;
+
+    @Test
+    void testOnlyTheFirstClaimOfAUsersKeyWins() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(1, repository.insertIfAbsent(1L, "k-1", "fp-a", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1)));
+        assertEquals(0, repository.insertIfAbsent(1L, "k-1", "fp-b", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1)));
+        assertEquals(1, repository.insertIfAbsent(2L, "k-1", "fp-b", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1)));
+
+        IdempotencyRecord claim = repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(1L, "k-1", now).orElseThrow();
+        assertEquals("fp-a", claim.getFingerprint());
+        assertTrue(claim.isPending());
+    }
+
+    @Test
+    void testCompleteFillsTheClaimAndReleaseOnlyDropsPendingRows() {
+        LocalDateTime now = LocalDateTime.now();
+        repository.insertIfAbsent(1L, "k-1", "fp", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1));
+        repository.insertIfAbsent(1L, "k-2", "fp", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1));
+
+        assertEquals(1, repository.complete(1L, "k-1", 201, "{}", now.plusHours(24), IdempotencyRecord.PENDING));
+        assertEquals(0, repository.deletePending(1L, "k-1", IdempotencyRecord.PENDING)); // Ya tiene respuesta
+        assertEquals(1, repository.deletePending(1L, "k-2", IdempotencyRecord.PENDING));
+
+        IdempotencyRecord done = repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(1L, "k-1", now.plusHours(1)).orElseThrow();
+        assertEquals(201, done.getStatus());
+        assertEquals("{}", done.getResponseBody());
+        assertTrue(repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(1L, "k-2", now).isEmpty());
+    }
+
+    @Test
+    void testExpiredClaimCanBeTakenAgain() {
+        LocalDateTime now = LocalDateTime.now();
+        repository.insertIfAbsent(1L, "k-1", "fp-a", IdempotencyRecord.PENDING, null, now.minusMinutes(2), now.minusMinutes(1));
+
+        assertEquals(1, repository.deleteExpired(1L, "k-1", now));
+        assertEquals(1, repository.insertIfAbsent(1L, "k-1", "fp-b", IdempotencyRecord.PENDING, null, now, now.plusMinutes(1)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.programthis.review_service.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Base creada por la versión anterior con ddl-auto=update (solo la tabla review) que pasa a Flyway con
+// la misma configuración que application.properties: baseline en la versión 1 y el resto de migraciones
+class LegacySchemaMigrationTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE review (id BIGINT NOT NULL AUTO_INCREMENT, product_id BIGINT, user_id BIGINT, rating INT, "
+                + "title VARCHAR(255) NOT NULL, comment VARCHAR(500) NOT NULL, review_date DATETIME(6), PRIMARY KEY (id))");
+        insert(7L, 1L, 5);
+        insert(7L, 2L, 3);
+        insert(7L, 3L, 0); // Puntuación fuera de rango de datos antiguos: no cuenta en el resumen
+        insert(8L, 1L, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void testLegacyDatabaseGetsTheSummaryTableWithItsExistingReviews() {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+        Map<String, Object> product7 = jdbc.queryForMap("SELECT * FROM product_rating_summary WHERE product_id = 7");
+        assertEquals(2L, ((Number) product7.get("review_count")).longValue());
+        assertEquals(8L, ((Number) product7.get("rating_sum")).longValue());
+        assertEquals(1L, ((Number) product7.get("five_star_count")).longValue());
+        assertEquals(1L, ((Number) product7.get("three_star_count")).longValue());
+        assertEquals(1L, jdbc.queryForObject("SELECT review_count FROM product_rating_summary WHERE product_id = 8", Long.class));
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM product_rating_summary", Integer.class));
+    }
+
+    @Test
+    void testLegacyRowsWithoutRatingOrDateAreBackfilledBeforeTheColumnsBecomeNotNull() {
+        jdbc.update("INSERT INTO review (product_id, user_id, rating, title, comment, review_date) "
+                + "VALUES (9, 1, NULL, 'Título', 'Comentario', NULL)");
+
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load().migrate();
+
+        Map<String, Object> legacy = jdbc.queryForMap("SELECT rating, review_date FROM review WHERE product_id = 9");
+        assertEquals(0, ((Number) legacy.get("rating")).intValue());
+        assertNotNull(legacy.get("review_date"));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(
+                "INSERT INTO review (product_id, user_id, rating, title, comment, review_date) "
+                        + "VALUES (9, 2, 4, 'Título', 'Comentario', NULL)"));
+    }
+
+    private void insert(Long productId, Long userId, int rating) {
+        jdbc.update("INSERT INTO review (product_id, user_id, rating, title, comment, review_date) "
+                + "VALUES (?, ?, ?, 'Título', 'Comentario', CURRENT_TIMESTAMP)", productId, userId, rating);
+    }
+}
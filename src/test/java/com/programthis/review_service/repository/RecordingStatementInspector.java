@@ -0,0 +1,19 @@
+package com.programthis.review_service.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Registra todas las sentencias que Hibernate envía a la base de datos (hibernate.session_factory.statement_inspector).
+// Hibernate crea la instancia a partir del nombre de la clase, por eso la lista es estática.
+public class RecordingStatementInspector implements StatementInspector {
+
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+}
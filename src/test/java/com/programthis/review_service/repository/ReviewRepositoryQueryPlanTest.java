@@ -0,0 +1,240 @@
+package com.programthis.review_service.repository;
+
+import com.programthis.review_service.entity.Review;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Ejecuta las migraciones de Flyway sobre H2 y comprueba con EXPLAIN que las consultas
+// de ReviewRepository se resuelven con un índice y no recorriendo la tabla entera.
+// Se analiza el SQL que Hibernate genera para cada método (capturado con un StatementInspector),
+// así que un cambio en una consulta derivada, JPQL o Criteria que deje de usar un índice hace fallar el test.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.programthis.review_service.repository.RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ReviewRepositoryQueryPlanTest {
+
+    private static final Pattern ROW_LIMIT = Pattern.compile("\\b(first|next|limit|offset)\\s*$");
+    private static final Pattern PRODUCT_INDEX_LOOKUP =
+            Pattern.compile("/\\* public\\.(idx|uk)_review_\\w+: product_id (=|in\\()");
+    private static final Pattern COLUMN = Pattern.compile("\\b(product_id|user_id|rating|review_date|author_snapshot_at|id|rn)\\b");
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        for (long i = 1; i <= 20; i++) {
+            reviewRepository.save(Review.builder()
+                    .productId(i % 4).userId(i).rating((int) (i % 5) + 1)
+                    .title("Title " + i).comment("Comment " + i)
+                    .reviewDate(LocalDateTime.now().minusDays(i))
+                    .build());
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void testFindByProductIdUsesIndex() {
+        assertUsesIndex(planOf(() -> reviewRepository.findByProductId(1L)));
+    }
+
+    @Test
+    void testFindTop5ByProductIdOrderByReviewDateDescUsesIndex() {
+        assertUsesProductIndex(planOf(() -> reviewRepository.findTop5ByProductIdOrderByReviewDateDesc(1L)));
+    }
+
+    @Test
+    void testFindByUserIdUsesUserDateIndex() {
+        String plan = planOf(() -> reviewRepository.findByUserId(1L));
+        assertTrue(plan.contains("idx_review_user_date"), plan);
+    }
+
+    @Test
+    void testFindByProductIdAndUserIdUsesIndex() {
+        assertUsesIndex(planOf(() -> reviewRepository.findByProductIdAndUserId(1L, 1L)));
+    }
+
+    @Test
+    void testProductKeysetPageUsesIndex() {
+        ReviewCursor after = new ReviewCursor(5, LocalDateTime.now().minusDays(3), 10L);
+        assertUsesProductIndex(planOf(() -> reviewRepository.findPageByProductId(1L, ReviewSortOrder.NEWEST, after, 20)));
+    }
+
+    @Test
+    void testProductPageByRatingUsesIndex() {
+        ReviewCursor after = new ReviewCursor(5, LocalDateTime.now().minusDays(3), 10L);
+        assertUsesIndex(planOf(() -> reviewRepository.findPageByProductId(1L, ReviewSortOrder.HIGHEST_RATING, after, 20)));
+    }
+
+    @Test
+    void testProductExportChunkUsesIndex() {
+        ReviewCursor after = new ReviewCursor(5, LocalDateTime.now().minusDays(3), 10L);
+        assertUsesProductIndex(planOf(() -> reviewRepository.findExportChunk(1L, null, null, after, 500)));
+    }
+
+    @Test
+    void testExportChunkWalksAllRowsOnceInDateOrder() {
+        List<ReviewView> first = reviewRepository.findExportChunk(1L, null, null, null, 3);
+        List<ReviewView> rest = reviewRepository.findExportChunk(1L, null, null, ReviewCursor.of(first.get(2)), 3);
+
+        assertEquals(3, first.size());
+        assertEquals(2, rest.size());
+        assertTrue(first.get(2).reviewDate().isBefore(rest.get(0).reviewDate()));
+    }
+
+    @Test
+    void testUserKeysetPageUsesUserDateIndex() {
+        String plan = planOf(() -> reviewRepository.findPageByUserId(1L, ReviewSortOrder.NEWEST, null, 20));
+        assertTrue(plan.contains("idx_review_user_date"), plan);
+    }
+
+    @Test
+    void testCountByRatingForProductUsesIndex() {
+        assertUsesIndex(planOf(() -> reviewRepository.countByRatingForProduct(1L)));
+    }
+
+    @Test
+    void testFindLatestByProductIdsUsesIndex() {
+        // La consulta externa recorre la tabla derivada; lo que importa es que la interna use el índice
+        assertUsesProductIndex(planOf(() -> reviewRepository.findLatestByProductIds(List.of(1L, 2L), 2)));
+    }
+
+    @Test
+    void testFindAuthorSnapshotsByUserIdUsesUserDateIndex() {
+        String plan = planOf(() -> reviewRepository.findAuthorSnapshotsByUserId(1L));
+        assertTrue(plan.contains("idx_review_user_date"), plan);
+    }
+
+    @Test
+    void testFindUserIdsWithStaleAuthorSnapshotsUsesIndex() {
+        // Recorrido por autores del refresco de la copia: un rango de user_id, no la tabla entera
+        assertUsesIndex(planOf(() -> reviewRepository.findUserIdsWithStaleAuthorSnapshots(0L, LocalDateTime.now(), Limit.of(500))));
+    }
+
+    @Test
+    void testFindExistingPairsUsesIndex() {
+        assertUsesIndex(planOf(() -> reviewRepository.findExistingPairs(List.of(1L, 2L), List.of(1L, 2L))));
+    }
+
+    @Test
+    void testViewQueriesDoNotLoadManagedEntities() {
+        entityManager.clear();
+
+        List<ReviewView> byProduct = reviewRepository.findPageByProductId(1L, ReviewSortOrder.OLDEST, null, 10);
+        List<ReviewView> page = reviewRepository.findPageByProductId(1L, ReviewSortOrder.NEWEST, null, 3);
+
+        assertEquals(5, byProduct.size());
+        assertEquals(3, page.size());
+        assertTrue(page.get(0).reviewDate().isAfter(page.get(1).reviewDate()));
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void testFindLatestByProductIdsReturnsNewestReviewsOfEachProductInOneQuery() {
+        entityManager.clear();
+
+        List<ReviewView> latest = reviewRepository.findLatestByProductIds(List.of(2L, 1L, 42L), 2);
+
+        // En setUp la reseña i es del producto i % 4, del usuario i y de hace i días
+        assertEquals(List.of(1L, 5L, 2L, 6L), latest.stream().map(ReviewView::userId).toList());
+        assertEquals(List.of(1L, 1L, 2L, 2L), latest.stream().map(ReviewView::productId).toList());
+        assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        assertTrue(reviewRepository.findLatestByProductIds(List.of(), 2).isEmpty());
+    }
+
+    @Test
+    void testSecondReviewForSameProductAndUserIsRejected() {
+        Review duplicate = Review.builder()
+                .productId(1L).userId(1L).rating(3)
+                .title("Otra").comment("Otra reseña")
+                .reviewDate(LocalDateTime.now())
+                .build();
+        assertThrows(DataIntegrityViolationException.class, () -> reviewRepository.saveAndFlush(duplicate));
+    }
+
+    // Ejecuta la llamada al repositorio y devuelve el plan de la SELECT que Hibernate generó para ella
+    private String planOf(Runnable repositoryCall) {
+        entityManager.clear();
+        RecordingStatementInspector.STATEMENTS.clear();
+        repositoryCall.run();
+        List<String> selects = RecordingStatementInspector.STATEMENTS.stream()
+                .filter(sql -> sql.stripLeading().toLowerCase().startsWith("select"))
+                .toList();
+        assertEquals(1, selects.size(), selects::toString);
+        return explain(selects.get(0));
+    }
+
+    private static void assertUsesIndex(String plan) {
+        assertFalse(plan.contains("tablescan"), plan);
+        assertTrue(plan.contains("idx_review_") || plan.contains("uk_review_"), plan);
+    }
+
+    // H2 no usa un índice para ordenar cuando las columnas de orden van tras una igualdad (product_id = ?), así que
+    // con un coste parecido puede elegir cualquier índice que empiece por product_id, también uk_review_product_user.
+    // Aquí se comprueba que la búsqueda por producto va por un índice; que MySQL ordene con idx_review_product_date
+    // (sin "Using filesort") solo se puede ver con EXPLAIN en MySQL.
+    private static void assertUsesProductIndex(String plan) {
+        assertFalse(plan.contains("tablescan"), plan);
+        assertTrue(PRODUCT_INDEX_LOOKUP.matcher(plan).find(), plan);
+    }
+    // EXPLAIN de la sentencia tal cual la emite Hibernate, con un valor de ejemplo en cada parámetro
+    private String explain(String sql) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                bindSampleValues(statement, sql);
+                try (ResultSet plan = statement.executeQuery()) {
+                    assertTrue(plan.next());
+                    return plan.getString(1).toLowerCase();
+                }
+            }
+        });
+    }
+
+    // El tipo de cada "?" se deduce de la columna con la que se compara (o de FETCH FIRST / LIMIT)
+    private static void bindSampleValues(PreparedStatement statement, String sql) throws SQLException {
+        int index = 0;
+        for (int position = sql.indexOf('?'); position >= 0; position = sql.indexOf('?', position + 1)) {
+            String before = sql.substring(0, position).toLowerCase();
+            index++;
+            if (ROW_LIMIT.matcher(before).find()) {
+                statement.setInt(index, 5);
+                continue;
+            }
+            Matcher column = COLUMN.matcher(before);
+            String last = null;
+            while (column.find()) {
+                last = column.group(1);
+            }
+            switch (last == null ? "" : last) {
+                case "product_id", "user_id" -> statement.setLong(index, 1L);
+                case "id" -> statement.setLong(index, 10L);
+                case "rating", "rn" -> statement.setInt(index, 5);
+                case "review_date", "author_snapshot_at" -> statement.setTimestamp(index, Timestamp.valueOf(LocalDateTime.now()));
+                default -> fail("No sample value for parameter " + index + " of: " + sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.AuthorSnapshotProperties;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewVersionRepository;
+import com.programthis.review_service.repository.ReviewView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// Las actualizaciones masivas se confirman en sus propias transacciones, así que el test no se ejecuta dentro de una
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthorSnapshotServiceTest {
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ReviewVersionRepository versionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserLookup userLookup;
+    private AuthorSnapshotProperties properties;
+    private AuthorSnapshotService authorSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        userLookup = mock(UserLookup.class);
+        properties = new AuthorSnapshotProperties();
+        properties.setBatchSize(2);
+        authorSnapshotService = new AuthorSnapshotService(reviewRepository, userLookup,
+                new ReviewVersionService(versionRepository), transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewRepository.deleteAllInBatch();
+        versionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testApplyProfile_UpdatesAllReviewsOfTheUserAndTheirVersions() {
+        Review first = save(7L, 1L, "old", LocalDateTime.now().minusMinutes(5));
+        Review second = save(8L, 1L, "old", LocalDateTime.now().minusMinutes(5));
+        save(7L, 2L, "other", LocalDateTime.now().minusMinutes(5));
+
+        assertEquals(2, authorSnapshotService.applyProfile(new UserDto(1L, "renamed", "Renamed User")));
+
+        ReviewView view = reviewRepository.findViewById(first.getId()).orElseThrow();
+        assertEquals("renamed", view.authorUsername());
+        assertEquals("Renamed User", view.authorFullName());
+        assertEquals("renamed", reviewRepository.findViewById(second.getId()).orElseThrow().authorUsername());
+        // Las respuestas cambian: nuevas versiones para las reseñas, sus productos y el usuario
+        assertEquals(1, version(ReviewVersion.REVIEW, first.getId()));
+        assertEquals(1, version(ReviewVersion.PRODUCT, 8L));
+        assertEquals(1, version(ReviewVersion.USER, 1L));
+        assertEquals(0, version(ReviewVersion.USER, 2L));
+        verify(userLookup).invalidate(1L); // Las reseñas que aún se enriquecen al leerlas no ven el perfil anterior
+    }
+
+    @Test
+    void testApplyProfile_UnchangedProfileKeepsVersions() {
+        Review review = save(7L, 1L, "same", LocalDateTime.now().minusMinutes(5));
+
+        authorSnapshotService.applyProfile(new UserDto(1L, "same", "Full same"));
+
+        assertEquals(0, version(ReviewVersion.REVIEW, review.getId())); // Los ETag siguen siendo válidos
+        assertTrue(reviewRepository.findViewById(review.getId()).orElseThrow().authorSnapshotAt()
+                .isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    @Test
+    void testRefreshStaleSnapshots_BackfillsLegacyAndStaleRowsInBatches() {
+        Review legacy = save(7L, 1L, null, null);
+        Review stale = save(8L, 2L, "old", LocalDateTime.now().minus(properties.getStaleAfter()).minusMinutes(1));
+        Review fresh = save(9L, 3L, "fresh", LocalDateTime.now());
+        Review missing = save(10L, 4L, null, null);
+        when(userLookup.getUsersByIds(anyCollection())).thenReturn(Map.of(
+                1L, new UserDto(1L, "user1", "User One"),
+                2L, new UserDto(2L, "user2", "User Two"),
+                3L, new UserDto(3L, "changed", "Changed")));
+
+        assertEquals(2, authorSnapshotService.refreshStaleSnapshots());
+
+        assertEquals("user1", reviewRepository.findViewById(legacy.getId()).orElseThrow().authorUsername());
+        assertEquals("user2", reviewRepository.findViewById(stale.getId()).orElseThrow().authorUsername());
+        assertEquals("fresh", reviewRepository.findViewById(fresh.getId()).orElseThrow().authorUsername()); // No caducada
+        // El usuario 4 no llegó: su reseña sigue sin copia y se enriquece al leerla
+        assertFalse(reviewRepository.findViewById(missing.getId()).orElseThrow().hasAuthorSnapshot());
+        verify(userLookup, times(2)).getUsersByIds(anyCollection()); // Dos bloques: autores 1 y 2, y autor 4
+    }
+
+    @Test
+    void testRefreshStaleSnapshots_SkipsMissingUsersUntilTheirRetryTime() {
+        save(7L, 1L, null, null);
+        save(8L, 4L, null, null);
+        when(userLookup.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, new UserDto(1L, "user1", "User One")));
+
+        authorSnapshotService.refreshStaleSnapshots();
+        authorSnapshotService.refreshStaleSnapshots();
+
+        verify(userLookup).getUsersByIds(List.of(1L, 4L));
+        verifyNoMoreInteractions(userLookup); // El usuario 4 no existe: la segunda vuelta no lo vuelve a pedir
+    }
+
+    @Test
+    void testRefreshStaleSnapshots_RetriesMissingUsersAfterTheirRetryTime() {
+        properties.setMissingUserRetryAfter(Duration.ZERO);
+        authorSnapshotService = new AuthorSnapshotService(reviewRepository, userLookup,
+                new ReviewVersionService(versionRepository), transactionManager, properties);
+        save(8L, 4L, null, null);
+        when(userLookup.getUsersByIds(anyCollection())).thenReturn(Map.of());
+
+        authorSnapshotService.refreshStaleSnapshots();
+        authorSnapshotService.refreshStaleSnapshots();
+
+        verify(userLookup, times(2)).getUsersByIds(List.of(4L));
+    }
+
+    @Test
+    void testApplyProfile_MakesAMissingUserEligibleAgain() {
+        save(8L, 4L, null, null);
+        when(userLookup.getUsersByIds(anyCollection())).thenReturn(Map.of());
+        authorSnapshotService.refreshStaleSnapshots();
+
+        authorSnapshotService.applyProfile(new UserDto(4L, "user4", "User Four"));
+        properties.setStaleAfter(Duration.ZERO); // La copia recién avisada ya cuenta como caducada
+        authorSnapshotService.refreshStaleSnapshots();
+
+        verify(userLookup, times(2)).getUsersByIds(List.of(4L));
+    }
+
+    @Test
+    void testRefreshStaleSnapshots_RefreshesEveryReviewOfAnAuthorAtOnce() {
+        for (long productId = 1; productId <= 5; productId++) {
+            save(productId, 1L, null, null); // Más reseñas que el tamaño del bloque, todas del mismo autor
+        }
+        save(6L, 2L, "old", LocalDateTime.now().minus(properties.getStaleAfter()).minusMinutes(1));
+        properties.setMaxBatchesPerRun(1);
+        when(userLookup.getUsersByIds(anyCollection())).thenReturn(Map.of(
+                1L, new UserDto(1L, "user1", "User One"),
+                2L, new UserDto(2L, "user2", "User Two")));
+
+        assertEquals(6, authorSnapshotService.refreshStaleSnapshots());
+
+        verify(userLookup).getUsersByIds(List.of(1L, 2L)); // Un bloque de autores distintos, no de reseñas
+        assertTrue(reviewRepository.findAuthorSnapshotsByUserId(1L).stream()
+                .allMatch(row -> "user1".equals(row.getAuthorUsername())));
+    }
+
+    @Test
+    void testRefreshStaleSnapshots_DoesNotOverwriteNewerPushedProfile() {
+        Review review = save(7L, 1L, null, null);
+        // El perfil llega por aviso mientras el refresco espera al User Service con datos anteriores
+        when(userLookup.getUsersByIds(anyCollection())).thenAnswer(invocation -> {
+            authorSnapshotService.applyProfile(new UserDto(1L, "pushed", "Pushed"));
+            return Map.of(1L, new UserDto(1L, "cached", "Cached"));
+        });
+
+        authorSnapshotService.refreshStaleSnapshots();
+
+        assertEquals("pushed", reviewRepository.findViewById(review.getId()).orElseThrow().authorUsername());
+    }
+
+    private Review save(Long productId, Long userId, String username, LocalDateTime snapshotAt) {
+        return reviewRepository.save(Review.builder().productId(productId).userId(userId).rating(4)
+                .title("Título").comment("Comentario").reviewDate(LocalDateTime.now())
+                .authorUsername(username).authorFullName(username != null ? "Full " + username : null)
+                .authorSnapshotAt(snapshotAt).build());
+    }
+
+    private long version(String scope, Long ownerId) {
+        return versionRepository.findById(new ReviewVersion.Key(scope, ownerId)).map(ReviewVersion::getVersion).orElse(0L);
+    }
+}
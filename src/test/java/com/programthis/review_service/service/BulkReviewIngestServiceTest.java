@@ -0,0 +1,130 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.programthis.review_service.config.IngestProperties;
+import com.programthis.review_service.dto.BulkIngestReport;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.ProductRatingSummaryRepository;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewVersionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La carga masiva confirma cada lote en su propia transacción, así que el test no se ejecuta dentro de una
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkReviewIngestServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRatingSummaryRepository summaryRepository;
+
+    @Autowired
+    private ReviewVersionRepository versionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private BulkReviewIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        IngestProperties properties = new IngestProperties();
+        properties.setBatchSize(2);
+        ingestService = new BulkReviewIngestService(entityManager, reviewRepository,
+                new ProductRatingSummaryService(summaryRepository, reviewRepository, transactionManager),
+                new ReviewVersionService(versionRepository), transactionManager,
+                new ObjectMapper().findAndRegisterModules(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewRepository.deleteAllInBatch();
+        summaryRepository.deleteAllInBatch();
+        versionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testIngestNdjson_InsertsValidRowsAndReportsInvalidOnes() throws Exception {
+        reviewRepository.save(Review.builder().productId(7L).userId(99L).rating(3).title("Existente").comment("Ya estaba")
+                .reviewDate(LocalDateTime.now()).build());
+        String body = """
+                {"productId":7,"userId":1,"rating":5,"title":"Genial","comment":"Muy bueno"}
+                {"productId":7,"userId":2,"rating":9,"title":"Mal","comment":"Puntuación fuera de rango"}
+                {"productId":7,"userId":3,"rating":4,
+                {"productId":7,"userId":4,"rating":4,"title":"Bien","comment":"Correcto","reviewDate":"2024-01-15T10:00:00"}
+
+                {"productId":7,"userId":1,"rating":2,"title":"Repetida","comment":"Mismo usuario y producto"}
+                {"productId":7,"userId":99,"rating":2,"title":"Repetida","comment":"Ya existe en la base"}
+                {"productId":8,"userId":5,"rating":1,"title":"Flojo","comment":"No me gustó"}
+                """;
+
+        BulkIngestReport report = ingestService.ingestNdjson(stream(body));
+
+        assertEquals(7, report.getReceived());
+        assertEquals(3, report.getInserted());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(2L, 3L, 6L, 7L), report.getErrors().stream().map(BulkIngestReport.RowError::getRow).toList());
+        assertNull(report.getAbortedReason());
+
+        assertEquals(4, reviewRepository.count());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 10, 0),
+                reviewRepository.findByProductIdAndUserId(7L, 4L).orElseThrow().getReviewDate());
+        assertEquals(2, summaryRepository.findById(7L).orElseThrow().getReviewCount()); // La reseña previa no tenía resumen
+        assertEquals(1, summaryRepository.findById(8L).orElseThrow().getOneStarCount());
+        // Un incremento por lote confirmado que tocó el producto o el usuario, para invalidar los ETag de sus listados
+        assertEquals(1, versionRepository.findById(new ReviewVersion.Key(ReviewVersion.PRODUCT, 7L)).orElseThrow().getVersion());
+        assertEquals(1, versionRepository.findById(new ReviewVersion.Key(ReviewVersion.PRODUCT, 8L)).orElseThrow().getVersion());
+        assertTrue(versionRepository.findById(new ReviewVersion.Key(ReviewVersion.USER, 99L)).isEmpty()); // Sus filas se rechazaron
+    }
+
+    @Test
+    void testIngestJsonArray_StopsAtUnreadableJsonKeepingEarlierRows() throws Exception {
+        String body = "[{\"productId\":1,\"userId\":1,\"rating\":5,\"title\":\"A\",\"comment\":\"Uno\"},"
+                + "{\"productId\":1,\"userId\":2,\"rating\":4,\"title\":\"B\",\"comment\":\"Dos\"},"
+                + "{\"productId\":1,\"userId\":3,\"rating\":\"x\",\"title\":\"C\",\"comment\":\"Tres\"},"
+                + "{\"productId\":1,\"userId\":4,\"rating\":3 \"title\"";
+
+        BulkIngestReport report = ingestService.ingestJsonArray(stream(body));
+
+        assertEquals(3, report.getReceived());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertNotNull(report.getAbortedReason());
+        assertEquals(2, reviewRepository.count());
+    }
+
+    @Test
+    void testIngestJsonArray_RejectsBodyThatIsNotAnArray() {
+        assertThrows(IllegalArgumentException.class, () -> ingestService.ingestJsonArray(stream("{\"productId\":1}")));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,127 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.config.WriteQueueProperties;
+import com.programthis.review_service.dto.ReviewWriteStatus;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.entity.ReviewVersion;
+import com.programthis.review_service.repository.ProductRatingSummaryRepository;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewVersionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// El escritor confirma en su propio hilo y sus propias transacciones, así que el test no se ejecuta dentro de una
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GroupCommitReviewWriterTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ProductRatingSummaryRepository summaryRepository;
+
+    @Autowired
+    private ReviewVersionRepository versionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCommitReviewWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+        reviewRepository.deleteAllInBatch();
+        summaryRepository.deleteAllInBatch();
+        versionRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testSubmit_CommitsEachReviewOrRejectsItOnItsOwn() throws Exception {
+        // Una espera larga para que las tres reseñas vayan en el mismo lote
+        writer = startWriter(10, Duration.ofMillis(500));
+
+        GroupCommitReviewWriter.PendingWrite first = writer.submit(review(7L, 1L, 5));
+        GroupCommitReviewWriter.PendingWrite duplicate = writer.submit(review(7L, 1L, 1));
+        GroupCommitReviewWriter.PendingWrite other = writer.submit(review(8L, 1L, 3));
+
+        Review saved = first.committed().get(5, TimeUnit.SECONDS);
+        assertNotNull(saved.getId());
+        assertNotNull(other.committed().get(5, TimeUnit.SECONDS).getId());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> duplicate.committed().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, failure.getCause());
+
+        assertEquals(ReviewWriteStatus.committed(first.trackingId(), saved.getId()), writer.getStatus(first.trackingId()).orElseThrow());
+        assertEquals(ReviewWriteStatus.State.FAILED, writer.getStatus(duplicate.trackingId()).orElseThrow().getState());
+        assertEquals(2, reviewRepository.count());
+        assertEquals(5, summaryRepository.findById(7L).orElseThrow().getRatingSum()); // La duplicada no cuenta
+        assertTrue(versionRepository.findById(new ReviewVersion.Key(ReviewVersion.USER, 1L)).isPresent());
+    }
+
+    @Test
+    void testSubmit_RejectsInvalidReviewsBeforeQueueingThem() {
+        writer = startWriter(10, Duration.ZERO);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.submit(review(7L, 1L, 9)));
+    }
+
+    @Test
+    void testShutdown_DrainsAcceptedReviewsAndRejectsNewOnes() throws Exception {
+        writer = startWriter(5, Duration.ZERO);
+        List<GroupCommitReviewWriter.PendingWrite> writes = new ArrayList<>();
+        for (long userId = 1; userId <= 50; userId++) {
+            writes.add(writer.submit(review(7L, userId, 4)));
+        }
+
+        writer.shutdown();
+
+        assertTrue(writes.stream().allMatch(write -> write.committed().isDone() && !write.committed().isCompletedExceptionally()));
+        assertEquals(50, reviewRepository.count());
+        assertEquals(50, summaryRepository.findById(7L).orElseThrow().getReviewCount());
+        assertThrows(RejectedExecutionException.class, () -> writer.submit(review(7L, 51L, 4)));
+    }
+
+    private GroupCommitReviewWriter startWriter(int batchSize, Duration maxWait) {
+        WriteQueueProperties properties = new WriteQueueProperties();
+        properties.setEnabled(true);
+        properties.setBatchSize(batchSize);
+        properties.setMaxWait(maxWait);
+        GroupCommitReviewWriter groupWriter = new GroupCommitReviewWriter(entityManager, reviewRepository,
+                new ProductRatingSummaryService(summaryRepository, reviewRepository, transactionManager),
+                new ReviewVersionService(versionRepository), mock(UserLookup.class), transactionManager,
+                new SimpleMeterRegistry(), properties);
+        groupWriter.start();
+        return groupWriter;
+    }
+
+    private static Review review(Long productId, Long userId, int rating) {
+        return Review.builder().productId(productId).userId(userId).rating(rating).title("Título").comment("Comentario").build();
+    }
+}
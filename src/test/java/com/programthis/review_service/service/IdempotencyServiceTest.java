@@ -0,0 +1,319 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.programthis.review_service.config.IdempotencyProperties;
+import com.programthis.review_service.entity.IdempotencyRecord;
+import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.IdempotencyRecordRepository;
+import com.programthis.review_service.service.IdempotencyService.IdempotentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private SimpleMeterRegistry registry;
+    private IdempotencyProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        registry = new SimpleMeterRegistry();
+        properties = new IdempotencyProperties();
+    }
+
+    @Test
+    void testRetryWithSameKeyReplaysTheOriginalResponseWithoutCreatingAgain() {
+        IdempotencyService service = service();
+        AtomicInteger creations = new AtomicInteger();
+        Review saved = saved(10L);
+
+        IdempotentResponse first = service.execute(1L, "k-1", request(), () -> {
+            creations.incrementAndGet();
+            return new IdempotentResponse(201, saved, false);
+        });
+        IdempotentResponse retry = service.execute(1L, "k-1", request(), () -> {
+            creations.incrementAndGet();
+            return new IdempotentResponse(201, saved(11L), false);
+        });
+
+        assertEquals(1, creations.get());
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(201, retry.status());
+        assertEquals(10L, retry.review().getId());
+        assertEquals(1, count("replayed"));
+        verifyNoInteractions(repository); // Sin persistent no se toca la tabla
+    }
+
+    @Test
+    void testSameKeyWithDifferentReviewIsRejectedWith422() {
+        IdempotencyService service = service();
+        service.execute(1L, "k-1", request(), () -> new IdempotentResponse(201, saved(10L), false));
+
+        Review changed = request();
+        changed.setRating(1);
+        IdempotentResponse response = service.execute(1L, "k-1", changed, () -> fail("No debe volver a crear"));
+
+        assertEquals(422, response.status());
+        assertNull(response.review());
+        assertEquals(1, count("mismatch"));
+    }
+
+    @Test
+    void testTransientFailuresAreNotRememberedAndTheRetryExecutesAgain() {
+        IdempotencyService service = service();
+        assertEquals(503, service.execute(1L, "k-1", request(), () -> IdempotentResponse.of(503)).status());
+        assertThrows(IllegalStateException.class,
+                () -> service.execute(1L, "k-2", request(), () -> { throw new IllegalStateException("boom"); }));
+
+        assertEquals(201, service.execute(1L, "k-1", request(), () -> new IdempotentResponse(201, saved(10L), false)).status());
+        assertFalse(service.execute(1L, "k-2", request(), () -> new IdempotentResponse(201, saved(11L), false)).replayed());
+
+        // Un 4xx sí es definitivo: el reintento recibe el mismo 409
+        service.execute(1L, "k-3", request(), () -> IdempotentResponse.of(409));
+        IdempotentResponse duplicate = service.execute(1L, "k-3", request(), () -> fail("No debe volver a crear"));
+        assertEquals(409, duplicate.status());
+        assertTrue(duplicate.replayed());
+    }
+
+    @Test
+    void testConcurrentDuplicatesCreateOnce() throws Exception {
+        IdempotencyService service = service();
+        AtomicInteger creations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotentResponse>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.execute(1L, "k-1", request(), () -> {
+                        creations.incrementAndGet();
+                        sleep(50); // Los demás llegan mientras la original sigue en curso
+                        return new IdempotentResponse(201, saved(10L), false);
+                    });
+                }));
+            }
+            start.countDown();
+            int replayed = 0;
+            for (Future<IdempotentResponse> result : results) {
+                IdempotentResponse response = result.get(5, TimeUnit.SECONDS);
+                assertEquals(201, response.status());
+                assertEquals(10L, response.review().getId());
+                replayed += response.replayed() ? 1 : 0;
+            }
+            assertEquals(1, creations.get());
+            assertEquals(7, replayed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDuplicateAnswers409WhenTheOriginalIsStillRunning() throws Exception {
+        properties.setInFlightWait(Duration.ofMillis(20));
+        IdempotencyService service = service();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotentResponse> original = executor.submit(() -> service.execute(1L, "k-1", request(), () -> {
+                running.countDown();
+                await(finish);
+                return new IdempotentResponse(201, saved(10L), false);
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            assertEquals(409, service.execute(1L, "k-1", request(), () -> fail("No debe volver a crear")).status());
+            finish.countDown();
+            assertEquals(201, original.get(5, TimeUnit.SECONDS).status());
+            assertEquals(1, count("in_progress"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidKeysAreRejected() {
+        IdempotencyService service = service();
+        assertThrows(IllegalArgumentException.class, () -> service.execute(1L, " ", request(), () -> IdempotentResponse.of(201)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.execute(1L, "k".repeat(256), request(), () -> IdempotentResponse.of(201)));
+    }
+
+    @Test
+    void testKeysAreScopedByCaller() {
+        IdempotencyService service = service();
+        AtomicInteger creations = new AtomicInteger();
+
+        IdempotentResponse first = service.execute(1L, "k-1", request(), () -> {
+            creations.incrementAndGet();
+            return new IdempotentResponse(201, saved(10L), false);
+        });
+        Review otherUser = request();
+        otherUser.setUserId(2L);
+        IdempotentResponse second = service.execute(2L, "k-1", otherUser, () -> {
+            creations.incrementAndGet();
+            return new IdempotentResponse(201, saved(11L), false);
+        });
+
+        assertEquals(2, creations.get()); // La misma clave de otro usuario no repite (ni rechaza) la respuesta ajena
+        assertFalse(second.replayed());
+        assertEquals(11L, second.review().getId());
+        assertEquals(10L, first.review().getId());
+    }
+
+    @Test
+    void testPersistentStoreKeepsResponsesAcrossRestarts() {
+        properties.setPersistent(true);
+        when(repository.insertIfAbsent(eq(1L), eq("k-1"), anyString(), eq(IdempotencyRecord.PENDING), any(), any(), any())).thenReturn(1);
+        when(repository.complete(eq(1L), eq("k-1"), anyInt(), any(), any(), eq(IdempotencyRecord.PENDING))).thenReturn(1);
+        Review saved = saved(10L);
+        saved.setAuthorUsername("testuser");
+        service().execute(1L, "k-1", request(), () -> new IdempotentResponse(201, saved, false));
+
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(repository).insertIfAbsent(eq(1L), eq("k-1"), fingerprint.capture(), eq(IdempotencyRecord.PENDING), isNull(), any(), any());
+        verify(repository).complete(eq(1L), eq("k-1"), eq(201), body.capture(), any(), eq(IdempotencyRecord.PENDING));
+
+        // Otra instancia (o la misma tras reiniciar) no tiene la clave en memoria y la recupera de la tabla
+        reset(repository);
+        when(repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("k-1"), any())).thenReturn(Optional.of(
+                record(fingerprint.getValue(), 201, body.getValue())));
+        IdempotentResponse replay = service().execute(1L, "k-1", request(), () -> fail("No debe volver a crear"));
+
+        assertTrue(replay.replayed());
+        assertEquals(10L, replay.review().getId());
+        assertEquals("testuser", replay.review().getAuthorUsername());
+    }
+
+    @Test
+    void testDuplicateOnAnotherInstanceWaitsForTheClaimedOriginal() {
+        properties.setPersistent(true);
+        String fingerprint = IdempotencyService.fingerprint(request());
+        Review saved = saved(10L);
+        // La otra instancia reservó la clave y responde mientras esta espera
+        when(repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("k-1"), any()))
+                .thenReturn(Optional.of(record(fingerprint, IdempotencyRecord.PENDING, null)))
+                .thenAnswer(invocation -> Optional.of(record(fingerprint, 201, objectMapper.writeValueAsString(saved))));
+
+        IdempotentResponse response = service().execute(1L, "k-1", request(), () -> fail("No debe volver a crear"));
+
+        assertTrue(response.replayed());
+        assertEquals(201, response.status());
+        assertEquals(10L, response.review().getId());
+    }
+
+    @Test
+    void testDuplicateOnAnotherInstanceAnswers409WhileTheClaimIsPending() {
+        properties.setPersistent(true);
+        properties.setInFlightWait(Duration.ofMillis(20));
+        when(repository.findByUserIdAndIdempotencyKeyAndExpiresAtAfter(eq(1L), eq("k-1"), any()))
+                .thenReturn(Optional.of(record(IdempotencyService.fingerprint(request()), IdempotencyRecord.PENDING, null)));
+        IdempotencyService service = service();
+
+        assertEquals(409, service.execute(1L, "k-1", request(), () -> fail("No debe volver a crear")).status());
+        assertEquals(1, count("in_progress"));
+
+        Review changed = request();
+        changed.setRating(1);
+        assertEquals(422, service.execute(1L, "k-1", changed, () -> fail("No debe volver a crear")).status());
+    }
+
+    @Test
+    void testClaimIsReleasedWhenTheResponseIsNotFinal() {
+        properties.setPersistent(true);
+        when(repository.insertIfAbsent(anyLong(), anyString(), anyString(), anyInt(), any(), any(), any())).thenReturn(1);
+
+        assertEquals(503, service().execute(1L, "k-1", request(), () -> IdempotentResponse.of(503)).status());
+
+        verify(repository).deletePending(1L, "k-1", IdempotencyRecord.PENDING);
+        verify(repository, never()).complete(anyLong(), anyString(), anyInt(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testPersistFailureDoesNotFailTheCreatedReview() {
+        properties.setPersistent(true);
+        when(repository.insertIfAbsent(anyLong(), anyString(), anyString(), anyInt(), any(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("db down"));
+
+        IdempotentResponse response = service().execute(1L, "k-1", request(), () -> new IdempotentResponse(201, saved(10L), false));
+
+        assertEquals(201, response.status());
+    }
+
+    private IdempotencyService service() {
+        return new IdempotencyService(repository, transactionManager, objectMapper, registry, properties);
+    }
+
+    private static IdempotencyRecord record(String fingerprint, int status, String body) {
+        return new IdempotencyRecord(1L, "k-1", fingerprint, status, body, LocalDateTime.now(), LocalDateTime.now().plusHours(24));
+    }
+
+    private static Review request() {
+        return Review.builder().productId(101L).userId(1L).rating(5).title("Great Product").comment("Loved it!").build();
+    }
+
+    private static Review saved(Long id) {
+        Review review = request();
+        review.setId(id);
+        review.setReviewDate(LocalDateTime.now());
+        return review;
+    }
+
+    private double count(String outcome) {
+        return registry.get("reviews.idempotency.requests").tag("outcome", outcome).counter().count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
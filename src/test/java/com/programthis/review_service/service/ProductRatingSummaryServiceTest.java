@@ -0,0 +1,156 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.entity.ProductRatingSummary;
+import com.programthis.review_service.repository.ProductRatingSummaryRepository;
+import com.programthis.review_service.repository.RatingCount;
+import com.programthis.review_service.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductRatingSummaryServiceTest {
+
+    @Mock
+    private ProductRatingSummaryRepository summaryRepository;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ProductRatingSummaryService ratingSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testRecordReviewAdded() {
+        ratingSummaryService.recordReviewAdded(101L, 4);
+        verify(summaryRepository).applyDelta(eq(101L), eq(1L), eq(4L), eq(0L), eq(0L), eq(0L), eq(1L), eq(0L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRecordReviewRemoved() {
+        ratingSummaryService.recordReviewRemoved(101L, 2);
+        verify(summaryRepository).applyDelta(eq(101L), eq(-1L), eq(-2L), eq(0L), eq(-1L), eq(0L), eq(0L), eq(0L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRecordRatingChanged_MovesOneReviewBetweenBuckets() {
+        ratingSummaryService.recordRatingChanged(101L, 5, 2);
+        verify(summaryRepository).applyDelta(eq(101L), eq(0L), eq(-3L), eq(0L), eq(1L), eq(0L), eq(0L), eq(-1L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void testRecordRatingChanged_SameRatingDoesNothing() {
+        ratingSummaryService.recordRatingChanged(101L, 3, 3);
+        verifyNoInteractions(summaryRepository);
+    }
+
+    @Test
+    void testRecordReviewAdded_IgnoresInvalidRating() {
+        ratingSummaryService.recordReviewAdded(101L, null);
+        verifyNoInteractions(summaryRepository);
+    }
+
+    @Test
+    void testGetSummary_ComputesAverageAndHistogram() {
+        ProductRatingSummary summary = ProductRatingSummary.builder().productId(101L).build();
+        summary.add(5, 2);
+        summary.add(4, 1);
+        when(summaryRepository.findById(101L)).thenReturn(Optional.of(summary));
+
+        ProductRatingSummaryDto dto = ratingSummaryService.getSummary(101L).orElseThrow();
+
+        assertEquals(3, dto.getReviewCount());
+        assertEquals(4.67, dto.getAverageRating());
+        assertEquals(2L, dto.getRatingHistogram().get(5));
+        assertEquals(1L, dto.getRatingHistogram().get(4));
+        assertEquals(0L, dto.getRatingHistogram().get(1));
+    }
+
+    @Test
+    void testRebuildAll_RecomputesEachProductInItsOwnTransaction() {
+        when(reviewRepository.findDistinctProductIds()).thenReturn(List.of(202L, 101L));
+        when(summaryRepository.findAllProductIds()).thenReturn(List.of(101L, 303L)); // 303 ya no tiene reseñas
+        when(reviewRepository.countByRatingForProduct(101L)).thenReturn(List.of(ratingCount(101L, 5, 10L), ratingCount(101L, 1, 2L)));
+        when(reviewRepository.countByRatingForProduct(202L)).thenReturn(List.of(ratingCount(202L, 3, 1L)));
+        when(reviewRepository.countByRatingForProduct(303L)).thenReturn(List.of());
+        when(summaryRepository.save(any(ProductRatingSummary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        int products = ratingSummaryService.rebuildAll();
+
+        assertEquals(2, products);
+        ArgumentCaptor<ProductRatingSummary> captor = ArgumentCaptor.forClass(ProductRatingSummary.class);
+        verify(summaryRepository, times(2)).save(captor.capture());
+        ProductRatingSummary first = captor.getAllValues().stream().filter(s -> s.getProductId().equals(101L)).findFirst().orElseThrow();
+        assertEquals(12, first.getReviewCount());
+        assertEquals(52, first.getRatingSum());
+        assertEquals(10, first.getFiveStarCount());
+        assertEquals(2, first.getOneStarCount());
+        verify(summaryRepository).deleteById(303L);
+        verify(summaryRepository, never()).deleteAllInBatch(); // Nunca hay un momento sin resúmenes
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void testRebuild_LocksTheSummaryRowBeforeCounting() {
+        when(reviewRepository.countByRatingForProduct(101L)).thenReturn(List.of(ratingCount(101L, 4, 1L)));
+        when(summaryRepository.save(any(ProductRatingSummary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(1, ratingSummaryService.rebuild(101L).orElseThrow().getReviewCount());
+
+        // El upsert vacío crea y bloquea la fila: las escrituras concurrentes del producto esperan al recuento
+        InOrder order = inOrder(summaryRepository, reviewRepository);
+        order.verify(summaryRepository).applyDelta(eq(101L), eq(0L), eq(0L), eq(0L), eq(0L), eq(0L), eq(0L), eq(0L), any(LocalDateTime.class));
+        order.verify(reviewRepository).countByRatingForProduct(101L);
+        order.verify(summaryRepository).save(any(ProductRatingSummary.class));
+    }
+
+    @Test
+    void testRebuild_ProductWithoutReviewsRemovesSummary() {
+        when(reviewRepository.countByRatingForProduct(101L)).thenReturn(List.of());
+
+        assertTrue(ratingSummaryService.rebuild(101L).isEmpty());
+        verify(summaryRepository).deleteById(101L);
+        verify(summaryRepository, never()).save(any(ProductRatingSummary.class));
+    }
+
+    private static RatingCount ratingCount(Long productId, Integer rating, Long reviewCount) {
+        return new RatingCount() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Integer getRating() {
+                return rating;
+            }
+
+            @Override
+            public Long getReviewCount() {
+                return reviewCount;
+            }
+        };
+    }
+}
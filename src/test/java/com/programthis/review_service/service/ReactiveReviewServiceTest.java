@@ -0,0 +1,100 @@
+package com.programthis.review_service.service;
+
+import com.programthis.review_service.client.UserLookup;
+import com.programthis.review_service.dto.ReviewPage;
+import com.programthis.review_service.dto.ReviewResponseDto;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.repository.ReviewCursor;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.repository.ReviewView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class ReactiveReviewServiceTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private UserLookup userLookup;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReactiveReviewService reactiveReviewService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reactiveReviewService = new ReactiveReviewService(reviewRepository, userLookup, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reactiveReviewService.shutdown();
+    }
+
+    @Test
+    void testGetReviewsByProductId_EnrichesPageWithOneBatchLookup() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 10, 0);
+        List<ReviewView> rows = List.of(
+                view(3L, 1L, date),
+                view(2L, 2L, date.minusDays(1)),
+                view(1L, 1L, date.minusDays(2)));
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 3)).thenReturn(rows);
+        when(userLookup.lookupUsers(Set.of(1L, 2L))).thenReturn(Mono.just(Map.of(1L, new UserDto(1L, "user1", "User One"))));
+
+        ReviewPage page = reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 2).block(TIMEOUT);
+
+        assertEquals(List.of(3L, 2L), page.getContent().stream().map(ReviewResponseDto::getId).toList());
+        assertEquals("user1", page.getContent().get(0).getUsername());
+        assertEquals("Usuario Desconocido", page.getContent().get(1).getUsername()); // Autor que no llegó
+        assertEquals(new ReviewCursor(5, date.minusDays(1), 2L), ReviewCursor.decode(page.getNextCursor()));
+        // La consulta va en una transacción de solo lectura, como en ReviewService
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(userLookup, never()).getUsersByIds(any());
+    }
+
+    @Test
+    void testGetReviewsByProductId_EmptyPageMakesNoLookup() {
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 11)).thenReturn(List.of());
+
+        ReviewPage page = reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 10).block(TIMEOUT);
+
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getNextCursor());
+        verifyNoInteractions(userLookup);
+    }
+
+    @Test
+    void testGetReviewsByProductId_InvalidCursorEndsWithError() {
+        Mono<ReviewPage> page = reactiveReviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, "not-a-cursor", 2);
+
+        assertThrows(IllegalArgumentException.class, () -> page.block(TIMEOUT));
+        verifyNoInteractions(reviewRepository);
+    }
+
+    private static ReviewView view(Long id, Long userId, LocalDateTime reviewDate) {
+        return new ReviewView(id, 101L, userId, 5, "Title " + id, "Comment " + id, reviewDate);
+    }
+}
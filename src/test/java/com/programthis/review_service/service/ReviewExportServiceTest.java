@@ -0,0 +1,113 @@
+package com.programthis.review_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.programthis.review_service.client.UserServiceClient;
+import com.programthis.review_service.config.ExportProperties;
+import com.programthis.review_service.dto.UserDto;
+import com.programthis.review_service.repository.ReviewCursor;
+import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ReviewExportServiceTest {
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private UserServiceClient userServiceClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private ReviewExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ExportProperties properties = new ExportProperties();
+        properties.setChunkSize(2);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        exportService = new ReviewExportService(reviewRepository, userServiceClient, objectMapper, properties, transactionManager);
+    }
+
+    @Test
+    void testExportNdjson_WritesOneLinePerReview() throws Exception {
+        when(reviewRepository.findExportChunk(101L, null, null, null, 2)).thenReturn(List.of(review(1), review(2)));
+        when(reviewRepository.findExportChunk(101L, null, null, ReviewCursor.of(review(2)), 2)).thenReturn(List.of(review(3), review(4)));
+        when(reviewRepository.findExportChunk(101L, null, null, ReviewCursor.of(review(4)), 2)).thenReturn(List.of(review(5)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportNdjson(101L, null, null, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, written);
+        assertEquals(5, lines.length);
+        assertEquals(3L, objectMapper.readTree(lines[2]).get("id").asLong());
+        assertTrue(objectMapper.readTree(lines[0]).get("username").isNull()); // Sin enriquecer no se inventa el usuario
+        verifyNoInteractions(userServiceClient);
+        // Un bloque incompleto es el último: no se hace otra consulta para comprobarlo
+        verify(reviewRepository, times(3)).findExportChunk(eq(101L), any(), any(), any(), eq(2));
+    }
+
+    @Test
+    void testExportNdjson_EnrichesWithOneBatchLookupPerChunk() throws Exception {
+        when(reviewRepository.findExportChunk(null, null, null, null, 2)).thenReturn(List.of(review(1), review(2)));
+        when(reviewRepository.findExportChunk(null, null, null, ReviewCursor.of(review(2)), 2)).thenReturn(List.of(review(3)));
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, new UserDto(1L, "user1", "User One")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportNdjson(null, null, null, true, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("user1", objectMapper.readTree(lines[0]).get("username").asText());
+        verify(userServiceClient, times(2)).getUsersByIds(anyCollection());
+        verify(userServiceClient).getUsersByIds(Set.of(1L, 2L));
+    }
+
+    @Test
+    void testExportNdjson_ReadsEachChunkInItsOwnTransactionAndEnrichesOutsideIt() throws Exception {
+        when(reviewRepository.findExportChunk(null, null, null, null, 2)).thenReturn(List.of(review(1), review(2)));
+        when(reviewRepository.findExportChunk(null, null, null, ReviewCursor.of(review(2)), 2)).thenReturn(List.of());
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of());
+
+        exportService.exportNdjson(null, null, null, true, new ByteArrayOutputStream());
+
+        InOrder order = inOrder(transactionManager, reviewRepository, userServiceClient);
+        order.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        order.verify(reviewRepository).findExportChunk(null, null, null, null, 2);
+        order.verify(transactionManager).commit(any());
+        order.verify(userServiceClient).getUsersByIds(anyCollection()); // Con la transacción del bloque ya cerrada
+        order.verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+        order.verify(reviewRepository).findExportChunk(null, null, null, ReviewCursor.of(review(2)), 2);
+        order.verify(transactionManager).commit(any());
+        verify(transactionManager, times(2)).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    private ReviewView review(long id) {
+        return new ReviewView(id, 101L, id, 4, "Title " + id, "Comment " + id, LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+    }
+}
@@ -1,24 +1,42 @@
 package com.programthis.review_service.service;
 
 import com.programthis.review_service.entity.Review;
+import com.programthis.review_service.repository.ReviewCursor;
 import com.programthis.review_service.repository.ReviewRepository;
+import com.programthis.review_service.repository.ReviewSearchHits;
+import com.programthis.review_service.repository.ReviewSortOrder;
+import com.programthis.review_service.repository.ReviewView;
+import com.programthis.review_service.dto.ProductRatingSummaryDto;
+import com.programthis.review_service.dto.ProductReviewsOverviewDto;
+import com.programthis.review_service.dto.ReviewPage;
 import com.programthis.review_service.client.UserServiceClient; // ¡NUEVA ADICIÓN!
 import com.programthis.review_service.dto.ReviewResponseDto; // ¡NUEVA ADICIÓN!
+import com.programthis.review_service.dto.ReviewSearchPage;
 import com.programthis.review_service.dto.UserDto; // ¡NUEVA ADICIÓN!
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime; // ¡NUEVA ADICIÓN!
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ReviewServiceTest {
@@ -29,6 +47,15 @@ public class ReviewServiceTest {
     @Mock // ¡NUEVA ADICIÓN! Mock para UserServiceClient
     private UserServiceClient userServiceClient;
 
+    @Mock
+    private ProductRatingSummaryService ratingSummaryService;
+
+    @Mock
+    private ReviewVersionService versionService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ReviewService reviewService;
 
@@ -65,6 +92,48 @@ public class ReviewServiceTest {
         assertEquals(4, result.getRating());
         assertEquals("Buen producto", result.getComment());
         verify(reviewRepository, times(1)).save(any(Review.class));
+        verify(ratingSummaryService, times(1)).recordReviewAdded(1L, 4); // El resumen del producto se actualiza
+        verify(versionService, times(1)).recordReviewChanged(null, 1L, 1L); // Invalida los ETag del producto y del usuario
+    }
+
+    @Test
+    void testCreateReview_StoresAuthorSnapshotAndIgnoresClientValues() {
+        Review review = Review.builder().productId(1L).userId(1L).rating(4).comment("Buen producto")
+                .authorUsername("impostor").build();
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Review result = reviewService.createReview(review);
+
+        assertEquals("testuser", result.getAuthorUsername());
+        assertEquals("Test User Full Name", result.getAuthorFullName());
+        assertNotNull(result.getAuthorSnapshotAt());
+    }
+
+    @Test
+    void testCreateReview_WithoutUserResponseIsSavedWithoutSnapshot() {
+        when(userServiceClient.getUserById(2L)).thenReturn(Optional.empty());
+        Review review = Review.builder().productId(1L).userId(2L).rating(4).comment("Buen producto").build();
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Review result = reviewService.createReview(review);
+
+        assertNull(result.getAuthorUsername());
+        assertNull(result.getAuthorSnapshotAt()); // Se enriquecerá al leerla hasta que el refresco la rellene
+    }
+
+    @Test
+    void testCreateReview_LooksUpTheAuthorBeforeOpeningTheTransaction() {
+        Review review = Review.builder().productId(1L).userId(1L).rating(4).comment("Buen producto").build();
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        reviewService.createReview(review);
+
+        // La llamada remota no retiene una conexión: la transacción empieza cuando ya se tiene la copia
+        InOrder order = inOrder(userServiceClient, transactionManager, reviewRepository);
+        order.verify(userServiceClient).getUserById(1L);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(reviewRepository).save(review);
+        order.verify(transactionManager).commit(any());
     }
 
     @Test
@@ -108,46 +177,114 @@ public class ReviewServiceTest {
     }
 
     @Test
-    // ¡MODIFICACIÓN CLAVE! El test ahora espera List<ReviewResponseDto>
+    // ¡MODIFICACIÓN CLAVE! El test ahora espera ReviewResponseDto
     void testGetReviewsByProductId() {
-        Review review = Review.builder().id(1L).productId(101L).userId(1L).build();
-        when(reviewRepository.findByProductId(101L)).thenReturn(Arrays.asList(review));
+        ReviewView review = view(1L, 101L, 1L, 5, LocalDateTime.of(2024, 5, 1, 10, 0));
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 21)).thenReturn(Arrays.asList(review));
 
-        // Cuando getReviewsByProductId llama a userServiceClient, mockeamos la respuesta del usuario
-        when(userServiceClient.getUserById(1L)).thenReturn(Optional.of(new UserDto(1L, "user1", "User One")));
+        // Cuando getReviewsByProductId llama a userServiceClient, mockeamos la respuesta del lote de usuarios
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, new UserDto(1L, "user1", "User One")));
 
-        List<ReviewResponseDto> reviews = reviewService.getReviewsByProductId(101L); // Espera ReviewResponseDto
+        List<ReviewResponseDto> reviews = reviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20).getContent();
         assertNotNull(reviews);
         assertEquals(1, reviews.size());
         assertEquals(101L, reviews.get(0).getProductId());
         assertEquals("user1", reviews.get(0).getUsername()); // Verifica el campo enriquecido
-        verify(reviewRepository, times(1)).findByProductId(101L);
-        verify(userServiceClient, times(1)).getUserById(1L); // Verifica que se llamó a UserServiceClient
+        verify(reviewRepository, times(1)).findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 21);
+        verify(userServiceClient, times(1)).getUsersByIds(anyCollection()); // Una sola consulta por lote
+        verify(userServiceClient, never()).getUserById(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetReviewsByProductId_DeduplicatesUsersInOneLookup() {
+        List<ReviewView> reviews = Arrays.asList(
+                view(1L, 101L, 1L, null, null),
+                view(2L, 101L, 2L, null, null),
+                view(3L, 101L, 1L, null, null),
+                view(4L, 101L, 3L, null, null));
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 21)).thenReturn(reviews);
+        // El usuario 3 no existe en el User Service
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(
+                1L, new UserDto(1L, "user1", "User One"),
+                2L, new UserDto(2L, "user2", "User Two")));
+
+        List<ReviewResponseDto> result = reviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20).getContent();
+
+        ArgumentCaptor<Collection<Long>> idsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(userServiceClient, times(1)).getUsersByIds(idsCaptor.capture());
+        assertEquals(Set.of(1L, 2L, 3L), new HashSet<>(idsCaptor.getValue()));
+        assertEquals(3, idsCaptor.getValue().size());
+
+        assertEquals(4, result.size());
+        assertEquals("user1", result.get(0).getUsername());
+        assertEquals("user2", result.get(1).getUsername());
+        assertEquals("user1", result.get(2).getUsername());
+        assertEquals("Usuario Desconocido", result.get(3).getUsername());
+    }
+
+    @Test
+    void testGetReviewsByProductIdPage_ReturnsNextCursorWhenMoreRowsExist() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 10, 0);
+        List<ReviewView> rows = Arrays.asList(
+                view(3L, 101L, 1L, 5, date),
+                view(2L, 101L, 2L, 4, date.minusDays(1)),
+                view(1L, 101L, 1L, 3, date.minusDays(2)));
+        // Se pide una fila de más para detectar la página siguiente
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 3)).thenReturn(rows);
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, new UserDto(1L, "user1", "User One")));
+
+        ReviewPage page = reviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 2);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(3L, page.getContent().get(0).getId());
+        assertEquals(2L, page.getContent().get(1).getId());
+        assertEquals(new ReviewCursor(4, date.minusDays(1), 2L), ReviewCursor.decode(page.getNextCursor()));
     }
 
     @Test
-    // ¡MODIFICACIÓN CLAVE! El test ahora espera List<ReviewResponseDto>
+    void testGetReviewsByProductIdPage_LastPageHasNoCursorAndDecodesIncomingCursor() {
+        ReviewCursor cursor = new ReviewCursor(4, LocalDateTime.of(2024, 5, 1, 10, 0), 2L);
+        ReviewView last = view(1L, 101L, 1L, 3, LocalDateTime.of(2024, 4, 29, 10, 0));
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.HIGHEST_RATING, cursor, 3)).thenReturn(List.of(last));
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of());
+
+        ReviewPage page = reviewService.getReviewsByProductId(101L, ReviewSortOrder.HIGHEST_RATING, cursor.encode(), 2);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetReviewsByUserIdPage_InvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> reviewService.getReviewsByUserId(1L, ReviewSortOrder.NEWEST, "not-a-cursor", 20));
+        verify(reviewRepository, never()).findPageByUserId(anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    // ¡MODIFICACIÓN CLAVE! El test ahora espera ReviewResponseDto
     void testGetReviewsByUserId() {
-        Review review = Review.builder().id(1L).productId(101L).userId(1L).build();
-        when(reviewRepository.findByUserId(1L)).thenReturn(Arrays.asList(review));
+        ReviewView review = view(1L, 101L, 1L, 5, LocalDateTime.of(2024, 5, 1, 10, 0));
+        when(reviewRepository.findPageByUserId(1L, ReviewSortOrder.NEWEST, null, 21)).thenReturn(Arrays.asList(review));
 
-        // Cuando getReviewsByUserId llama a userServiceClient, mockeamos la respuesta del usuario
-        when(userServiceClient.getUserById(1L)).thenReturn(Optional.of(new UserDto(1L, "user1", "User One")));
+        // Cuando getReviewsByUserId llama a userServiceClient, mockeamos la respuesta del lote de usuarios
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, new UserDto(1L, "user1", "User One")));
 
-        List<ReviewResponseDto> reviews = reviewService.getReviewsByUserId(1L); // Espera ReviewResponseDto
+        List<ReviewResponseDto> reviews = reviewService.getReviewsByUserId(1L, ReviewSortOrder.NEWEST, null, 20).getContent();
         assertNotNull(reviews);
         assertEquals(1, reviews.size());
         assertEquals(1L, reviews.get(0).getUserId());
         assertEquals("user1", reviews.get(0).getUsername()); // Verifica el campo enriquecido
-        verify(reviewRepository, times(1)).findByUserId(1L);
-        verify(userServiceClient, times(1)).getUserById(1L);
+        verify(reviewRepository, times(1)).findPageByUserId(1L, ReviewSortOrder.NEWEST, null, 21);
+        verify(userServiceClient, times(1)).getUsersByIds(anyCollection());
     }
 
     @Test
     // ¡MODIFICACIÓN CLAVE! El test ahora espera Optional<ReviewResponseDto>
     void testGetReviewById() {
-        Review review = Review.builder().id(1L).productId(101L).userId(1L).build();
-        when(reviewRepository.findById(1L)).thenReturn(Optional.of(review));
+        ReviewView review = view(1L, 101L, 1L, null, null);
+        when(reviewRepository.findViewById(1L)).thenReturn(Optional.of(review));
 
         // Cuando getReviewById llama a userServiceClient, mockeamos la respuesta del usuario
         when(userServiceClient.getUserById(1L)).thenReturn(Optional.of(new UserDto(1L, "user1", "User One")));
@@ -156,23 +293,27 @@ public class ReviewServiceTest {
         assertTrue(result.isPresent());
         assertEquals(1L, result.get().getId());
         assertEquals("user1", result.get().getUsername()); // Verifica el campo enriquecido
-        verify(reviewRepository, times(1)).findById(1L);
+        verify(reviewRepository, times(1)).findViewById(1L);
+        verify(reviewRepository, never()).findById(anyLong()); // La lectura no carga la entidad
         verify(userServiceClient, times(1)).getUserById(1L);
     }
 
     @Test
     void testDeleteReview_WhenExists() {
-        when(reviewRepository.existsById(1L)).thenReturn(true);
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(testReview));
         boolean deleted = reviewService.deleteReview(1L);
-        verify(reviewRepository, times(1)).deleteById(1L);
+        verify(reviewRepository, times(1)).delete(testReview);
+        verify(ratingSummaryService, times(1)).recordReviewRemoved(101L, 5);
+        verify(versionService, times(1)).recordReviewChanged(1L, 101L, 1L);
         assertTrue(deleted);
     }
 
     @Test
     void testDeleteReview_WhenNotExists() {
-        when(reviewRepository.existsById(1L)).thenReturn(false);
+        when(reviewRepository.findById(1L)).thenReturn(Optional.empty());
         boolean deleted = reviewService.deleteReview(1L);
-        verify(reviewRepository, never()).deleteById(anyLong());
+        verify(reviewRepository, never()).delete(any(Review.class));
+        verify(ratingSummaryService, never()).recordReviewRemoved(anyLong(), anyInt());
         assertFalse(deleted);
     }
 
@@ -200,6 +341,18 @@ public class ReviewServiceTest {
         assertEquals(4, result.getRating());
         verify(reviewRepository, times(1)).findById(1L);
         verify(reviewRepository, times(1)).save(any(Review.class));
+        verify(ratingSummaryService, times(1)).recordRatingChanged(101L, 3, 4);
+    }
+
+    @Test
+    void testUpdateReview_InvalidRating() {
+        Review existing = Review.builder().id(1L).productId(101L).userId(1L).rating(3).comment("Antiguo").build();
+        Review updated = Review.builder().rating(9).comment("Nuevo").build();
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(existing));
+
+        assertThrows(IllegalArgumentException.class, () -> reviewService.updateReview(1L, updated));
+        verify(reviewRepository, never()).save(any(Review.class));
+        verify(ratingSummaryService, never()).recordRatingChanged(anyLong(), any(), any());
     }
 
     @Test
@@ -217,4 +370,87 @@ public class ReviewServiceTest {
         verify(reviewRepository, times(1)).findById(99L);
         verify(reviewRepository, never()).save(any(Review.class)); // Asegura que no se guardó
     }
-}
\ No newline at end of file
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetProductOverviews_OneReviewQueryAndOneUserLookupForAllProducts() {
+        when(reviewRepository.findLatestByProductIds(anyCollection(), eq(2))).thenReturn(List.of(
+                view(1L, 101L, 1L, 5, null),
+                view(2L, 101L, 2L, 4, null),
+                view(3L, 102L, 1L, 3, null)));
+        when(ratingSummaryService.getSummaries(anyCollection())).thenReturn(Map.of(
+                101L, new ProductRatingSummaryDto(101L, 10, 4.5, Map.of()),
+                102L, new ProductRatingSummaryDto(102L, 1, 3.0, Map.of())));
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, testUserDto));
+
+        List<ProductReviewsOverviewDto> result = reviewService.getProductOverviews(List.of(102L, 101L, 103L, 101L), 2);
+
+        assertEquals(List.of(102L, 101L, 103L), result.stream().map(ProductReviewsOverviewDto::getProductId).toList());
+        assertEquals(1, result.get(0).getLatestReviews().size());
+        assertEquals(List.of(1L, 2L), result.get(1).getLatestReviews().stream().map(ReviewResponseDto::getId).toList());
+        assertEquals(10, result.get(1).getReviewCount());
+        assertEquals(4.5, result.get(1).getAverageRating());
+        assertEquals(0, result.get(2).getReviewCount()); // Sin reseñas
+        assertTrue(result.get(2).getLatestReviews().isEmpty());
+
+        ArgumentCaptor<Collection<Long>> productIds = ArgumentCaptor.forClass(Collection.class);
+        verify(reviewRepository, times(1)).findLatestByProductIds(productIds.capture(), eq(2));
+        assertEquals(List.of(102L, 101L, 103L), List.copyOf(productIds.getValue()));
+        ArgumentCaptor<Collection<Long>> userIds = ArgumentCaptor.forClass(Collection.class);
+        verify(userServiceClient, times(1)).getUsersByIds(userIds.capture());
+        assertEquals(Set.of(1L, 2L), new HashSet<>(userIds.getValue()));
+    }
+
+    @Test
+    void testSearchReviews_EnrichesHitsAndComputesOffset() {
+        when(reviewRepository.search("batería", 101L, 4, 40, 20)).thenReturn(new ReviewSearchHits(List.of(testReview), 41));
+        when(userServiceClient.getUsersByIds(anyCollection())).thenReturn(Map.of(1L, testUserDto));
+
+        ReviewSearchPage result = reviewService.searchReviews("  batería ", 101L, 4, 2, 20);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals("testuser", result.getContent().get(0).getUsername());
+        assertEquals(41, result.getTotalHits());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void testSearchReviews_RejectsBlankQueryAndInvalidRating() {
+        assertThrows(IllegalArgumentException.class, () -> reviewService.searchReviews(" ", null, null, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> reviewService.searchReviews("batería", null, 6, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> reviewService.searchReviews("batería", null, null, -1, 20));
+        verify(reviewRepository, never()).search(any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testGetReviewsByProductId_ServesSnapshotsLocallyAndLooksUpLegacyRowsOnly() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 10, 0);
+        ReviewView withSnapshot = new ReviewView(2L, 101L, 1L, 5, "Title 2", "Comment 2", date,
+                "snapshotuser", "Snapshot User", date);
+        ReviewView legacy = view(1L, 101L, 2L, 4, date.minusDays(1));
+        when(reviewRepository.findPageByProductId(101L, ReviewSortOrder.NEWEST, null, 21)).thenReturn(List.of(withSnapshot, legacy));
+        when(userServiceClient.getUsersByIds(Set.of(2L))).thenReturn(Map.of(2L, new UserDto(2L, "user2", "User Two")));
+
+        List<ReviewResponseDto> result = reviewService.getReviewsByProductId(101L, ReviewSortOrder.NEWEST, null, 20).getContent();
+
+        assertEquals("snapshotuser", result.get(0).getUsername());
+        assertEquals("Snapshot User", result.get(0).getFullName());
+        assertEquals("user2", result.get(1).getUsername());
+        verify(userServiceClient, times(1)).getUsersByIds(Set.of(2L)); // Solo el autor de la reseña sin copia
+    }
+
+    @Test
+    void testGetReviewById_WithSnapshotMakesNoRemoteCall() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 10, 0);
+        when(reviewRepository.findViewById(1L)).thenReturn(Optional.of(
+                new ReviewView(1L, 101L, 1L, 5, "Title", "Comment", date, "snapshotuser", null, date)));
+
+        assertEquals("snapshotuser", reviewService.getReviewById(1L).orElseThrow().getUsername());
+        verify(userServiceClient, never()).getUserById(anyLong());
+        verify(userServiceClient, never()).getUsersByIds(anyCollection());
+    }
+
+    private static ReviewView view(Long id, Long productId, Long userId, Integer rating, LocalDateTime reviewDate) {
+        return new ReviewView(id, productId, userId, rating, "Title " + id, "Comment " + id, reviewDate);
+    }
+}